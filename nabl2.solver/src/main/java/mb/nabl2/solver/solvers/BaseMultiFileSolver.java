@@ -13,7 +13,6 @@ import org.metaborg.util.functions.Predicate2;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 
-import io.usethesource.capsule.Set;
 import mb.nabl2.config.NaBL2DebugConfig;
 import mb.nabl2.constraints.IConstraint;
 import mb.nabl2.relations.variants.IVariantRelation;
@@ -97,16 +96,13 @@ public class BaseMultiFileSolver extends BaseSolver {
         // @formatter:on
         final FixedPointSolver solver = new FixedPointSolver(cancel, progress, component);
 
-        solver.step().subscribe(r -> {
-            Set.Immutable<ITermVar> vars = r.result.unifierDiff().domainSet();
-            if(!vars.isEmpty()) {
-                try {
-                    final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(vars);
-                    nameResolution.update(criticalEdges, cancel, progress);
-                    r.resolveCriticalEdges(criticalEdges);
-                } catch(InterruptedException ex) {
-                    // ignore here
-                }
+        solver.round().subscribe(r -> {
+            try {
+                final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(r.vars);
+                nameResolution.update(criticalEdges, cancel, progress);
+                r.resolveCriticalEdges(criticalEdges);
+            } catch(InterruptedException ex) {
+                // ignore here
             }
         });
 
@@ -12,7 +12,6 @@ import org.metaborg.util.task.IProgress;
 
 import com.google.common.collect.ImmutableSet;
 
-import io.usethesource.capsule.Set.Immutable;
 import mb.nabl2.config.NaBL2DebugConfig;
 import mb.nabl2.constraints.IConstraint;
 import mb.nabl2.solver.ISolver;
@@ -29,7 +28,6 @@ import mb.nabl2.solver.exceptions.DelayException;
 import mb.nabl2.solver.exceptions.SolverException;
 import mb.nabl2.solver.messages.IMessages;
 import mb.nabl2.terms.ITerm;
-import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.util.collections.IProperties;
@@ -82,15 +80,12 @@ public class BaseSolver {
 
             final FixedPointSolver solver = new FixedPointSolver(cancel, progress, component);
 
-            solver.step().subscribe(r -> {
-                final Immutable<ITermVar> vars = r.result.unifierDiff().domainSet();
-                if(!vars.isEmpty()) {
-                    try {
-                        final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(vars);
-                        r.resolveCriticalEdges(criticalEdges);
-                    } catch(InterruptedException ex) {
-                        // ignore here
-                    }
+            solver.round().subscribe(r -> {
+                try {
+                    final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(r.vars);
+                    r.resolveCriticalEdges(criticalEdges);
+                } catch(InterruptedException ex) {
+                    // ignore here
                 }
             });
 
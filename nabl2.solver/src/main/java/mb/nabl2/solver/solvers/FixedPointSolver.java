@@ -1,8 +1,11 @@
 package mb.nabl2.solver.solvers;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.metaborg.util.Ref;
 import org.metaborg.util.functions.Action1;
@@ -14,6 +17,7 @@ import org.metaborg.util.task.IProgress;
 import org.metaborg.util.task.RateLimitedCancel;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.subjects.PublishSubject;
@@ -40,6 +44,7 @@ public class FixedPointSolver {
     private static final ILogger log = LoggerUtils.logger(FixedPointSolver.class);
 
     private final PublishSubject<Step> stepSubject;
+    private final PublishSubject<Round> roundSubject;
 
     private final ICancel cancel;
     private final IProgress progress;
@@ -51,40 +56,41 @@ public class FixedPointSolver {
         this.progress = progress;
         this.component = component;
         this.stepSubject = PublishSubject.create();
+        this.roundSubject = PublishSubject.create();
     }
 
+    /**
+     * Solve the constraints until no more progress can be made.
+     *
+     * Constraints are solved in rounds. A round ends when the worklist is empty. Delayed constraints are only released
+     * at the end of a round: variable delays are reindexed once for all variables that were bound during the round, and
+     * critical edges and relations that were resolved during the round are released together.
+     */
     public SolveResult solve(Iterable<? extends IConstraint> initialConstraints, Ref<IUnifier.Immutable> unifier)
             throws InterruptedException {
         final IMessages.Transient messages = Messages.Transient.of();
 
-        final Deque<IConstraint> constraints = Lists.newLinkedList(initialConstraints);
+        final Worklist constraints = new Worklist();
+        initialConstraints.forEach(constraints::addLast);
         final IndexedBag<IConstraint, CriticalEdge> criticalEdgeDelays = new IndexedBag<>(RemovalPolicy.ALL);
         final IndexedBag<IConstraint, String> relationDelays = new IndexedBag<>(RemovalPolicy.ALL);
         final IndexedBag<IConstraint, ITermVar> variableDelays = new IndexedBag<>(RemovalPolicy.ANY);
         final List<IConstraint> unsolved = Lists.newArrayList();
 
-        final Action1<Iterable<CriticalEdge>> resolveCriticalEdges = es -> {
-            es.forEach(e -> {
-                Collection<IConstraint> newConstraints = criticalEdgeDelays.reindex(e, ce -> Iterables2.empty());
-                newConstraints.forEach(constraints::addFirst);
-            });
-        };
-        final Action1<Iterable<String>> resolveRelation = names -> {
-            names.forEach(name -> {
-                Collection<IConstraint> newConstraints = relationDelays.reindex(name, ce -> Iterables2.empty());
-                newConstraints.forEach(constraints::addFirst);
-            });
-        };
+        final Set<ITermVar> boundVars = new LinkedHashSet<>();
+        final Set<CriticalEdge> resolvedCriticalEdges = new LinkedHashSet<>();
+        final Set<String> resolvedRelations = new LinkedHashSet<>();
+        final Action1<Iterable<CriticalEdge>> resolveCriticalEdges = es -> es.forEach(resolvedCriticalEdges::add);
+        final Action1<Iterable<String>> resolveRelations = names -> names.forEach(resolvedRelations::add);
 
         int solvedCount = 0;
+        int roundCount = 0;
         int criticalEdgeDelayCount = 0;
         int relationDelayCount = 0;
         int unconditionalDelayCount = 0;
         int variableDelayCount = 0;
 
-        boolean progress;
-        do {
-            progress = false;
+        while(!constraints.isEmpty()) {
             while(!constraints.isEmpty()) {
                 cancel.throwIfCancelled();
                 final IConstraint constraint = constraints.removeFirst();
@@ -114,26 +120,44 @@ public class FixedPointSolver {
                     throw new IllegalStateException(e);
                 }
 
-                result.unifierDiff().domainSet().forEach(v -> {
-                    constraints.addAll(variableDelays.reindex(v, unifier.get()::getVars));
-                });
+                boundVars.addAll(result.unifierDiff().domainSet());
 
                 messages.addAll(result.messages());
 
                 result.constraints().forEach(constraints::addFirst);
 
-                stepSubject.onNext(new Step(constraint, result, resolveCriticalEdges, resolveRelation));
+                stepSubject.onNext(new Step(constraint, result, resolveCriticalEdges, resolveRelations));
 
                 this.progress.work(1);
-                progress |= true;
                 solvedCount++;
             }
-        } while(progress);
+            roundCount++;
 
-        //log.info("Solved {} with {} delays, {} var delays, {} critical edge delays, {} relation delays", solvedCount,
-        //        unconditionalDelayCount, variableDelayCount, criticalEdgeDelayCount, relationDelayCount);
+            if(!boundVars.isEmpty()) {
+                roundSubject.onNext(new Round(Collections.unmodifiableSet(Sets.newHashSet(boundVars)),
+                        resolveCriticalEdges, resolveRelations));
+            }
+
+            // release delayed constraints in batch
+            final IUnifier.Immutable currentUnifier = unifier.get();
+            for(ITermVar var : boundVars) {
+                variableDelays.reindex(var, currentUnifier::getVars).forEach(constraints::addLast);
+            }
+            boundVars.clear();
+            for(CriticalEdge criticalEdge : resolvedCriticalEdges) {
+                criticalEdgeDelays.reindex(criticalEdge, ce -> Iterables2.empty()).forEach(constraints::addFirst);
+            }
+            resolvedCriticalEdges.clear();
+            for(String relation : resolvedRelations) {
+                relationDelays.reindex(relation, r -> Iterables2.empty()).forEach(constraints::addFirst);
+            }
+            resolvedRelations.clear();
+        }
+
+        //log.info("Solved {} in {} rounds with {} delays, {} var delays, {} critical edge delays, {} relation delays",
+        //        solvedCount, roundCount, unconditionalDelayCount, variableDelayCount, criticalEdgeDelayCount,
+        //        relationDelayCount);
 
-        unsolved.addAll(constraints);
         unsolved.addAll(variableDelays.values());
         unsolved.addAll(criticalEdgeDelays.values());
         unsolved.addAll(relationDelays.values());
@@ -150,6 +174,14 @@ public class FixedPointSolver {
         return stepSubject;
     }
 
+    /**
+     * Observe the end of every round in which variables were bound. Observers can resolve critical edges and relations
+     * for all variables together, instead of for every step.
+     */
+    public Observable<Round> round() {
+        return roundSubject;
+    }
+
     public class Step {
 
         public final IConstraint constraint;
@@ -176,4 +208,82 @@ public class FixedPointSolver {
 
     }
 
+    public class Round {
+
+        public final Set<ITermVar> vars;
+
+        private final Action1<Iterable<CriticalEdge>> resolveCriticalEdges;
+        private final Action1<Iterable<String>> resolveRelations;
+
+        private Round(Set<ITermVar> vars, Action1<Iterable<CriticalEdge>> resolveCriticalEdges,
+                Action1<Iterable<String>> resolveRelations) {
+            this.vars = vars;
+            this.resolveCriticalEdges = resolveCriticalEdges;
+            this.resolveRelations = resolveRelations;
+        }
+
+        public void resolveCriticalEdges(Iterable<CriticalEdge> criticalEdges) {
+            resolveCriticalEdges.apply(criticalEdges);
+        }
+
+        public void resolveRelations(Iterable<String> names) {
+            resolveRelations.apply(names);
+        }
+
+    }
+
+    /**
+     * Worklist with a queue per kind of constraint. Constraints are taken from the first non-empty queue, so that
+     * equalities are solved first, and name resolution, which is the most likely to be delayed, is solved last.
+     */
+    private static class Worklist {
+
+        // @formatter:off
+        private static final IConstraint.Cases<Integer> PRIORITY = IConstraint.Cases.of(
+            c -> 2, // ast
+            c -> 2, // base
+            c -> 0, // equality
+            c -> 1, // scope graph
+            c -> 4, // name resolution
+            c -> 3, // relation
+            c -> 3, // set
+            c -> 2 // sym
+        );
+        // @formatter:on
+
+        @SuppressWarnings("unchecked") private final Deque<IConstraint>[] queues = new Deque[5];
+        private int size = 0;
+
+        private Worklist() {
+            for(int i = 0; i < queues.length; i++) {
+                queues[i] = new ArrayDeque<>();
+            }
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void addFirst(IConstraint constraint) {
+            queues[constraint.match(PRIORITY)].addFirst(constraint);
+            size++;
+        }
+
+        public void addLast(IConstraint constraint) {
+            queues[constraint.match(PRIORITY)].addLast(constraint);
+            size++;
+        }
+
+        public IConstraint removeFirst() {
+            for(Deque<IConstraint> queue : queues) {
+                if(!queue.isEmpty()) {
+                    size--;
+                    return queue.removeFirst();
+                }
+            }
+            throw new IllegalStateException("Worklist is empty.");
+        }
+
+    }
+
 }
@@ -11,7 +11,6 @@ import org.metaborg.util.task.IProgress;
 
 import com.google.common.collect.Sets;
 
-import io.usethesource.capsule.Set;
 import mb.nabl2.config.NaBL2DebugConfig;
 import mb.nabl2.constraints.IConstraint;
 import mb.nabl2.constraints.messages.IMessageInfo;
@@ -38,7 +37,6 @@ import mb.nabl2.solver.messages.IMessages;
 import mb.nabl2.solver.properties.HasRelationBuildConstraints;
 import mb.nabl2.symbolic.ISymbolicConstraints;
 import mb.nabl2.terms.ITerm;
-import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.util.collections.IProperties;
@@ -103,15 +101,14 @@ public class SemiIncrementalMultiFileSolver extends BaseMultiFileSolver {
         solver.step().subscribe(r -> {
             hasRelationBuildConstraints.addAll(r.result.constraints());
             r.resolveRelations(hasRelationBuildConstraints.remove(r.constraint));
-            final Set.Immutable<ITermVar> vars = r.result.unifierDiff().domainSet();
-            if(!vars.isEmpty()) {
-                try {
-                    final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(vars);
-                    nameResolution.update(criticalEdges, cancel, progress);
-                    r.resolveCriticalEdges(criticalEdges);
-                } catch(InterruptedException ex) {
-                    // ignore here
-                }
+        });
+        solver.round().subscribe(r -> {
+            try {
+                final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(r.vars);
+                nameResolution.update(criticalEdges, cancel, progress);
+                r.resolveCriticalEdges(criticalEdges);
+            } catch(InterruptedException ex) {
+                // ignore here
             }
         });
 
@@ -9,7 +9,6 @@ import org.metaborg.util.functions.Predicate1;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 
-import io.usethesource.capsule.Set;
 import mb.nabl2.config.NaBL2DebugConfig;
 import mb.nabl2.constraints.IConstraint;
 import mb.nabl2.relations.variants.IVariantRelation;
@@ -35,7 +34,6 @@ import mb.nabl2.solver.properties.HasRelationBuildConstraints;
 import mb.nabl2.symbolic.ISymbolicConstraints;
 import mb.nabl2.symbolic.SymbolicConstraints;
 import mb.nabl2.terms.ITerm;
-import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.util.collections.Properties;
 import mb.scopegraph.pepm16.ScopeGraphReducer;
@@ -99,15 +97,14 @@ public class SingleFileSolver extends BaseSolver {
         solver.step().subscribe(r -> {
             hasRelationBuildConstraints.addAll(r.result.constraints());
             r.resolveRelations(hasRelationBuildConstraints.remove(r.constraint));
-            final Set.Immutable<ITermVar> vars = r.result.unifierDiff().domainSet();
-            if(!vars.isEmpty()) {
-                try {
-                    final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(vars);
-                    nameResolution.update(criticalEdges, cancel, progress);
-                    r.resolveCriticalEdges(criticalEdges);
-                } catch(InterruptedException ex) {
-                    // ignore here
-                }
+        });
+        solver.round().subscribe(r -> {
+            try {
+                final List<CriticalEdge> criticalEdges = scopeGraphReducer.update(r.vars);
+                nameResolution.update(criticalEdges, cancel, progress);
+                r.resolveCriticalEdges(criticalEdges);
+            } catch(InterruptedException ex) {
+                // ignore here
             }
         });
 
@@ -43,7 +43,7 @@ public abstract class NaBL2Primitive extends AbstractPrimitive {
         if(sterms.size() != tvars) {
             throw new InterpreterException("Expected " + tvars + " term arguments, but got " + sterms.size());
         }
-        final StrategoTerms strategoTerms = new StrategoTerms(factory);
+        final StrategoTerms strategoTerms = new StrategoTerms(factory, true);
         final ITerm term = ConstraintTerms.specialize(strategoTerms.fromStratego(sterm));
         final List<ITerm> terms = sterms.stream().map(strategoTerms::fromStratego).map(ConstraintTerms::specialize)
                 .collect(Collectors.toList());
@@ -40,7 +40,7 @@ public class SG_solve_single_constraint extends AbstractPrimitive {
     }
 
     @Override public boolean call(IContext env, Strategy[] svars, IStrategoTerm[] tvars) throws InterpreterException {
-        final StrategoTerms strategoTerms = new StrategoTerms(env.getFactory());
+        final StrategoTerms strategoTerms = new StrategoTerms(env.getFactory(), true);
 
         final IStrategoTerm configSTerm = ScopeGraphMultiFileAnalysisPrimitive.getActualCurrent(tvars[0]);
         final ITerm configTerm = ConstraintTerms.specialize(strategoTerms.fromStratego(configSTerm));
@@ -41,7 +41,7 @@ public abstract class ScopeGraphMultiFileAnalysisPrimitive extends AbstractPrimi
     }
 
     @Override public boolean call(IContext env, Strategy[] svars, IStrategoTerm[] tvars) throws InterpreterException {
-        final StrategoTerms strategoTerms = new StrategoTerms(env.getFactory());
+        final StrategoTerms strategoTerms = new StrategoTerms(env.getFactory(), true);
 
         final List<IStrategoTerm> argSTerms = Arrays.asList(tvars);
         final List<ITerm> argTerms = argSTerms.stream()
@@ -6,6 +6,11 @@ public interface IAttachments {
 
     boolean isEmpty();
 
+    /**
+     * The number of attachments.
+     */
+    int size();
+
     /**
      * Gets the attachment of the specified class.
      *
@@ -28,6 +28,10 @@ public class Attachments implements IAttachments, Serializable {
         return attachments.isEmpty();
     }
 
+    @Override public int size() {
+        return attachments.size();
+    }
+
     @Override public Builder toBuilder() {
         return new Builder(attachments.asTransient());
     }
@@ -66,6 +70,10 @@ public class Attachments implements IAttachments, Serializable {
             return true;
         }
 
+        @Override public int size() {
+            return 0;
+        }
+
         @Override public <T> T get(@SuppressWarnings("unused") Class<T> cls) {
             return null;
         }
@@ -91,6 +99,10 @@ public class Attachments implements IAttachments, Serializable {
             return false;
         }
 
+        @Override public int size() {
+            return 1;
+        }
+
         @SuppressWarnings("unchecked") @Override public <T> T get(Class<T> cls) {
             if(this.cls.equals(cls)) {
                 return (T) value;
@@ -125,6 +137,10 @@ public class Attachments implements IAttachments, Serializable {
             return false;
         }
 
+        @Override public int size() {
+            return 2;
+        }
+
         @SuppressWarnings("unchecked") @Override public <T> T get(Class<T> cls) {
             if(this.cls1.equals(cls)) {
                 return (T) value1;
@@ -167,6 +183,10 @@ public class Attachments implements IAttachments, Serializable {
             return false;
         }
 
+        @Override public int size() {
+            return 3;
+        }
+
         @SuppressWarnings("unchecked") @Override public <T> T get(Class<T> cls) {
             if(this.cls1.equals(cls)) {
                 return (T) value1;
@@ -216,6 +236,10 @@ public class Attachments implements IAttachments, Serializable {
             return false;
         }
 
+        @Override public int size() {
+            return 4;
+        }
+
         @SuppressWarnings("unchecked") @Override public <T> T get(Class<T> cls) {
             if(this.cls1.equals(cls)) {
                 return (T) value1;
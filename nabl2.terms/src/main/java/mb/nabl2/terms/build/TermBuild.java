@@ -20,18 +20,72 @@ import mb.nabl2.util.collections.ConcurrentWeakCache;
 
 public class TermBuild {
 
-    public static final B B = new B();
+    /**
+     * Enable hash-consing of small application terms, in addition to the sharing of strings, ints, variables, and
+     * constants that is always done.
+     */
+    public static final boolean HASH_CONS_TERMS = Boolean.getBoolean("hashConsTerms");
+
+    public static final B B = new B(HASH_CONS_TERMS);
 
     public static class B implements ITermBuild {
 
         private static final INilTerm NIL = NilTerm.builder().build();
 
-        // FIXME Use hash-consing to improve sharing between simple terms. Terms could be shared if:
+        /** The maximum arity of application terms that are hash-consed. */
+        private static final int MAX_HASH_CONS_ARITY = 4;
+
+        // Terms are shared if:
         // 1. They have no attachments.
-        // 2. The have no subterms (because their subterms may have attachments, even if the outer term does not).
-        // In practice this means mostly nil, strings, ints, and variables are shared.
+        // 2. Their subterms are shared (because their subterms may have attachments, even if the outer term does not).
+        // Constants, strings, ints, and variables are always shared. Small applications are shared if hash-consing is
+        // enabled, because checking that the arguments are shared costs a lookup per argument.
         final ConcurrentWeakCache<ITerm, ITerm> cache = new ConcurrentWeakCache<>();
 
+        private final boolean hashCons;
+
+        public B() {
+            this(false);
+        }
+
+        public B(boolean hashCons) {
+            this.hashCons = hashCons;
+        }
+
+        private IApplTerm shareAppl(IApplTerm term) {
+            if(!hashCons || term.getArity() > MAX_HASH_CONS_ARITY) {
+                return term;
+            }
+            for(ITerm arg : term.getArgs()) {
+                if(cache.get(arg) != arg) {
+                    // unshared arguments may have attachments
+                    return term;
+                }
+            }
+            return (IApplTerm) cache.getOrPut(term, term);
+        }
+
+        /**
+         * The number of terms currently shared by this builder.
+         */
+        public int sharedTerms() {
+            return cache.size();
+        }
+
+        /**
+         * The number of built terms that were replaced by an equal shared term.
+         */
+        public long sharedHits() {
+            return cache.hits();
+        }
+
+        /**
+         * The number of built terms that were added as a new shared term.
+         */
+        public long sharedMisses() {
+            return cache.misses();
+        }
+
         @Override public IApplTerm newAppl(String op, Iterable<? extends ITerm> args,
                 @Nullable IAttachments attachments) {
             final List<ITerm> argList = ImmutableList.copyOf(args);
@@ -46,14 +100,14 @@ public class TermBuild {
                 }
                 case 1: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl1Term.of(op, argList.get(0));
+                        return shareAppl(Appl1Term.of(op, argList.get(0)));
                     } else {
                         return Appl1Term.builder().op(op).arg0(argList.get(0)).attachments(attachments).build();
                     }
                 }
                 case 2: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl2Term.of(op, argList.get(0), argList.get(1));
+                        return shareAppl(Appl2Term.of(op, argList.get(0), argList.get(1)));
                     } else {
                         return Appl2Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1))
                                 .attachments(attachments).build();
@@ -61,7 +115,7 @@ public class TermBuild {
                 }
                 case 3: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl3Term.of(op, argList.get(0), argList.get(1), argList.get(2));
+                        return shareAppl(Appl3Term.of(op, argList.get(0), argList.get(1), argList.get(2)));
                     } else {
                         return Appl3Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1)).arg2(argList.get(2))
                                 .attachments(attachments).build();
@@ -69,7 +123,8 @@ public class TermBuild {
                 }
                 case 4: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl4Term.of(op, argList.get(0), argList.get(1), argList.get(2), argList.get(3));
+                        return shareAppl(
+                                Appl4Term.of(op, argList.get(0), argList.get(1), argList.get(2), argList.get(3)));
                     } else {
                         return Appl4Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1)).arg2(argList.get(2))
                                 .arg3(argList.get(3)).attachments(attachments).build();
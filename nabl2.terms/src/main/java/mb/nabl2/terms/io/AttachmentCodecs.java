@@ -0,0 +1,73 @@
+package mb.nabl2.terms.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spoofax.jsglr.client.imploder.IToken;
+import org.spoofax.jsglr.client.imploder.ImploderAttachment;
+
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.stratego.TermOrigin;
+
+public class AttachmentCodecs {
+
+    public static final IAttachmentCodec<TermIndex> TERM_INDEX = new IAttachmentCodec<TermIndex>() {
+
+        @Override public Class<TermIndex> type() {
+            return TermIndex.class;
+        }
+
+        @Override public void write(TermIndex value, TermWriter out) throws IOException {
+            out.writeString(value.getResource());
+            out.writeInt(value.getId());
+        }
+
+        @Override public TermIndex read(TermReader in) throws IOException {
+            final String resource = in.readString();
+            return TermIndex.of(resource, in.readInt());
+        }
+
+    };
+
+    /**
+     * Codec for term origins, which only keeps the source position of the origin, and not the token stream.
+     */
+    public static final IAttachmentCodec<TermOrigin> TERM_ORIGIN = new IAttachmentCodec<TermOrigin>() {
+
+        @Override public Class<TermOrigin> type() {
+            return TermOrigin.class;
+        }
+
+        @Override public void write(TermOrigin value, TermWriter out) throws IOException {
+            final IToken left = value.getLeftToken();
+            final String resource = left.getFilename();
+            if(resource != null) {
+                out.writeInt(1);
+                out.writeString(resource);
+            } else {
+                out.writeInt(0);
+            }
+            out.writeInt(left.getLine());
+            out.writeInt(left.getColumn());
+            out.writeInt(left.getStartOffset());
+            out.writeInt(value.getRightToken().getEndOffset());
+        }
+
+        @Override public TermOrigin read(TermReader in) throws IOException {
+            final String resource = in.readInt() != 0 ? in.readString() : null;
+            final int line = in.readInt();
+            final int column = in.readInt();
+            final int startOffset = in.readInt();
+            final int endOffset = in.readInt();
+            return TermOrigin.of(
+                    ImploderAttachment.createCompactPositionAttachment(resource, line, column, startOffset, endOffset));
+        }
+
+    };
+
+    public static List<IAttachmentCodec<?>> defaults() {
+        return Arrays.asList(TERM_INDEX, TERM_ORIGIN);
+    }
+
+}
@@ -0,0 +1,17 @@
+package mb.nabl2.terms.io;
+
+import java.io.IOException;
+
+/**
+ * Encoder and decoder for term attachments of a specific class. Attachments of classes without a registered codec are
+ * not written by a {@link TermWriter}.
+ */
+public interface IAttachmentCodec<T> {
+
+    Class<T> type();
+
+    void write(T value, TermWriter out) throws IOException;
+
+    T read(TermReader in) throws IOException;
+
+}
@@ -0,0 +1,219 @@
+package mb.nabl2.terms.io;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.io.TermWriter.APPL;
+import static mb.nabl2.terms.io.TermWriter.CONS;
+import static mb.nabl2.terms.io.TermWriter.HAS_ATTACHMENTS;
+import static mb.nabl2.terms.io.TermWriter.INT;
+import static mb.nabl2.terms.io.TermWriter.KIND_MASK;
+import static mb.nabl2.terms.io.TermWriter.MAGIC;
+import static mb.nabl2.terms.io.TermWriter.NIL;
+import static mb.nabl2.terms.io.TermWriter.REF;
+import static mb.nabl2.terms.io.TermWriter.STRING;
+import static mb.nabl2.terms.io.TermWriter.VAR;
+import static mb.nabl2.terms.io.TermWriter.VERSION;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.build.Attachments;
+
+/**
+ * Reads terms written by a {@link TermWriter}. The reader must use the same attachment codecs, in the same order, as
+ * the writer. Subterms that were written once are shared between the terms that are read.
+ */
+public class TermReader implements Closeable {
+
+    private final InputStream in;
+    private final IAttachmentCodec<?>[] codecs;
+
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    private final List<String> strings = new ArrayList<>();
+    private ITerm[] nodes = new ITerm[1024];
+    private int nodeCount = 0;
+
+    public TermReader(InputStream in) throws IOException {
+        this(in, AttachmentCodecs.defaults());
+    }
+
+    public TermReader(InputStream in, List<IAttachmentCodec<?>> codecs) throws IOException {
+        this.in = in;
+        this.codecs = codecs.toArray(new IAttachmentCodec<?>[0]);
+        if(readRawInt() != MAGIC) {
+            throw new IOException("Not a term stream.");
+        }
+        final int version;
+        if((version = readVarInt()) != VERSION) {
+            throw new IOException("Unsupported term stream version " + version + ".");
+        }
+    }
+
+    public ITerm readTerm() throws IOException {
+        while(true) {
+            final int tag = readVarInt();
+            final ITerm term;
+            switch(tag & KIND_MASK) {
+                case REF:
+                    return node(readVarInt());
+                case APPL: {
+                    final String op = readString();
+                    final int arity = readVarInt();
+                    final List<ITerm> args = new ArrayList<>(arity);
+                    for(int i = 0; i < arity; i++) {
+                        args.add(node(readVarInt()));
+                    }
+                    term = B.newAppl(op, args, readAttachments(tag));
+                    break;
+                }
+                case CONS: {
+                    final ITerm head = node(readVarInt());
+                    final IListTerm tail = (IListTerm) node(readVarInt());
+                    term = B.newCons(head, tail, readAttachments(tag));
+                    break;
+                }
+                case NIL:
+                    term = B.newNil(readAttachments(tag));
+                    break;
+                case STRING: {
+                    final String value = readString();
+                    term = B.newString(value, readAttachments(tag));
+                    break;
+                }
+                case INT: {
+                    final int value = readInt();
+                    term = B.newInt(value, readAttachments(tag));
+                    break;
+                }
+                case VAR: {
+                    final String resource = readString();
+                    final String name = readString();
+                    term = B.newVar(resource, name, readAttachments(tag));
+                    break;
+                }
+                default:
+                    throw new IOException("Invalid term tag " + tag + ".");
+            }
+            if(nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            }
+            nodes[nodeCount++] = term;
+        }
+    }
+
+    public int readInt() throws IOException {
+        final int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() throws IOException {
+        final int value = readVarInt();
+        if((value & 1) != 0) {
+            return strings.get(value >>> 1);
+        }
+        final byte[] bytes = new byte[value >>> 1];
+        readBytes(bytes);
+        final String string = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(string);
+        return string;
+    }
+
+    @Override public void close() throws IOException {
+        in.close();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Terms
+    ///////////////////////////////////////////////////////////////////////////
+
+    private ITerm node(int distance) throws IOException {
+        if(distance <= 0 || distance > nodeCount) {
+            throw new IOException("Invalid term reference " + distance + ".");
+        }
+        return nodes[nodeCount - distance];
+    }
+
+    private @Nullable IAttachments readAttachments(int tag) throws IOException {
+        if((tag & HAS_ATTACHMENTS) == 0) {
+            return null;
+        }
+        final Attachments.Builder attachments = Attachments.Builder.of();
+        final int size = readVarInt();
+        for(int i = 0; i < size; i++) {
+            final int codec = readVarInt();
+            if(codec >= codecs.length) {
+                throw new IOException("Unknown attachment codec " + codec + ".");
+            }
+            readAttachment(codecs[codec], attachments);
+        }
+        return attachments.build();
+    }
+
+    private <T> void readAttachment(IAttachmentCodec<T> codec, Attachments.Builder attachments) throws IOException {
+        attachments.put(codec.type(), codec.read(this));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Primitives
+    ///////////////////////////////////////////////////////////////////////////
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            final byte b = readByte();
+            value |= (b & 0x7f) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer.");
+    }
+
+    private int readRawInt() throws IOException {
+        return ((readByte() & 0xff) << 24) | ((readByte() & 0xff) << 16) | ((readByte() & 0xff) << 8)
+                | (readByte() & 0xff);
+    }
+
+    private byte readByte() throws IOException {
+        if(position == limit) {
+            fill();
+        }
+        return buffer[position++];
+    }
+
+    private void readBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while(offset < bytes.length) {
+            if(position == limit) {
+                fill();
+            }
+            final int n = Math.min(bytes.length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, n);
+            position += n;
+            offset += n;
+        }
+    }
+
+    private void fill() throws IOException {
+        final int n = in.read(buffer, 0, buffer.length);
+        if(n <= 0) {
+            throw new EOFException();
+        }
+        position = 0;
+        limit = n;
+    }
+
+}
@@ -0,0 +1,352 @@
+package mb.nabl2.terms.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.Terms;
+
+/**
+ * Writes terms in a compact binary format, which can be read by a {@link TermReader}.
+ *
+ * Every distinct subterm is written once, as a record that refers to its subterms by their distance to the record.
+ * Repeated subterms, either shared in memory or structurally equal, including their attachments, are written as such
+ * back-references. This holds across all terms written to the same writer. Strings are interned as well, and all
+ * numbers are written as variable length integers.
+ *
+ * Attachments are written for the classes that have a registered codec. Other attachments are dropped, or rejected if
+ * the writer is strict. Blob terms are not supported.
+ */
+public class TermWriter implements Closeable, Flushable {
+
+    static final int MAGIC = 0x4e54524d; // NTRM
+    static final int VERSION = 1;
+
+    static final int REF = 0;
+    static final int APPL = 1;
+    static final int CONS = 2;
+    static final int NIL = 3;
+    static final int STRING = 4;
+    static final int INT = 5;
+    static final int VAR = 6;
+
+    static final int KIND_MASK = 0x7;
+    static final int HAS_ATTACHMENTS = 0x8;
+
+    private final OutputStream out;
+    private final IAttachmentCodec<?>[] codecs;
+    private final boolean strict;
+
+    private final byte[] buffer = new byte[8192];
+    private int count = 0;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<ITerm, Integer> terms = new IdentityHashMap<>();
+    private final Map<Node, Integer> nodes = new HashMap<>();
+    private int nodeCount = 0;
+
+    public TermWriter(OutputStream out) throws IOException {
+        this(out, AttachmentCodecs.defaults());
+    }
+
+    public TermWriter(OutputStream out, List<IAttachmentCodec<?>> codecs) throws IOException {
+        this(out, codecs, false);
+    }
+
+    /**
+     * @param strict
+     *            Whether to reject terms with attachments that have no codec, instead of dropping the attachments.
+     */
+    public TermWriter(OutputStream out, List<IAttachmentCodec<?>> codecs, boolean strict) throws IOException {
+        this.out = out;
+        this.codecs = codecs.toArray(new IAttachmentCodec<?>[0]);
+        this.strict = strict;
+        writeRawInt(MAGIC);
+        writeVarInt(VERSION);
+    }
+
+    public void writeTerm(ITerm term) throws IOException {
+        final int id = node(term);
+        writeVarInt(REF);
+        writeVarInt(nodeCount - id);
+    }
+
+    /**
+     * Write an int, using fewer bytes for values closer to zero.
+     */
+    public void writeInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Write a string, or a reference to it if the same string was written before.
+     */
+    public void writeString(String value) throws IOException {
+        final Integer id;
+        if((id = strings.get(value)) != null) {
+            writeVarInt((id << 1) | 1);
+            return;
+        }
+        strings.put(value, strings.size());
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length << 1);
+        writeBytes(bytes);
+    }
+
+    @Override public void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    @Override public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Terms
+    ///////////////////////////////////////////////////////////////////////////
+
+    private int node(ITerm term) throws IOException {
+        Integer id;
+        if((id = terms.get(term)) != null) {
+            return id;
+        }
+        // @formatter:off
+        id = term.matchOrThrow(Terms.<Integer, IOException>checkedCases(
+            appl -> appl(appl),
+            list -> list(list),
+            string -> node(new Node(STRING, string.getValue(), null, null, attachments(string))),
+            integer -> node(new Node(INT, integer.getValue(), null, null, attachments(integer))),
+            blob -> {
+                throw new IllegalArgumentException("Cannot write blob " + blob + ".");
+            },
+            var -> node(new Node(VAR, var.getResource(), var.getName(), null, attachments(var)))
+        ));
+        // @formatter:on
+        terms.put(term, id);
+        return id;
+    }
+
+    private int appl(IApplTerm appl) throws IOException {
+        final List<ITerm> args = appl.getArgs();
+        final int[] children = new int[args.size()];
+        for(int i = 0; i < children.length; i++) {
+            children[i] = node(args.get(i));
+        }
+        return node(new Node(APPL, appl.getOp(), null, children, attachments(appl)));
+    }
+
+    /**
+     * Write a list iteratively, from the end, to support long lists.
+     */
+    private int list(IListTerm list) throws IOException {
+        final List<IConsTerm> cells = new ArrayList<>();
+        IListTerm tail = list;
+        while(tail instanceof IConsTerm && !terms.containsKey(tail)) {
+            final IConsTerm cell = (IConsTerm) tail;
+            cells.add(cell);
+            tail = cell.getTail();
+        }
+        int id;
+        if(cells.isEmpty()) {
+            id = node(new Node(NIL, null, null, null, attachments(tail)));
+        } else {
+            id = node(tail);
+        }
+        for(int i = cells.size() - 1; i >= 0; i--) {
+            final IConsTerm cell = cells.get(i);
+            final int head = node(cell.getHead());
+            id = node(new Node(CONS, null, null, new int[] { head, id }, attachments(cell)));
+            terms.put(cell, id);
+        }
+        return id;
+    }
+
+    private @Nullable Object[] attachments(ITerm term) {
+        final IAttachments attachments = term.getAttachments();
+        if(attachments.isEmpty()) {
+            return null;
+        }
+        Object[] values = null;
+        int size = 0;
+        for(int i = 0; i < codecs.length; i++) {
+            final Object value;
+            if((value = attachments.get(codecs[i].type())) != null) {
+                if(values == null) {
+                    values = new Object[codecs.length];
+                }
+                values[i] = value;
+                size++;
+            }
+        }
+        if(strict && size < attachments.size()) {
+            throw new IllegalArgumentException("Cannot write all attachments of " + term + ".");
+        }
+        return values;
+    }
+
+    private int node(Node node) throws IOException {
+        final Integer id;
+        if((id = nodes.get(node)) != null) {
+            return id;
+        }
+        writeVarInt(node.kind | (node.attachments != null ? HAS_ATTACHMENTS : 0));
+        switch(node.kind) {
+            case APPL:
+                writeString((String) node.value1);
+                writeVarInt(node.children.length);
+                writeChildren(node.children);
+                break;
+            case CONS:
+                writeChildren(node.children);
+                break;
+            case NIL:
+                break;
+            case STRING:
+                writeString((String) node.value1);
+                break;
+            case INT:
+                writeInt((Integer) node.value1);
+                break;
+            case VAR:
+                writeString((String) node.value1);
+                writeString((String) node.value2);
+                break;
+            default:
+                throw new IllegalStateException("Invalid term kind " + node.kind + ".");
+        }
+        if(node.attachments != null) {
+            writeAttachments(node.attachments);
+        }
+        nodes.put(node, nodeCount);
+        return nodeCount++;
+    }
+
+    private void writeChildren(int[] children) throws IOException {
+        for(int child : children) {
+            writeVarInt(nodeCount - child);
+        }
+    }
+
+    private void writeAttachments(Object[] attachments) throws IOException {
+        int size = 0;
+        for(Object attachment : attachments) {
+            if(attachment != null) {
+                size++;
+            }
+        }
+        writeVarInt(size);
+        for(int i = 0; i < attachments.length; i++) {
+            if(attachments[i] != null) {
+                writeVarInt(i);
+                writeAttachment(codecs[i], attachments[i]);
+            }
+        }
+    }
+
+    private <T> void writeAttachment(IAttachmentCodec<T> codec, Object value) throws IOException {
+        codec.write(codec.type().cast(value), this);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Primitives
+    ///////////////////////////////////////////////////////////////////////////
+
+    void writeVarInt(int value) throws IOException {
+        if(count + 5 > buffer.length) {
+            drain();
+        }
+        while((value & ~0x7f) != 0) {
+            buffer[count++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    private void writeRawInt(int value) throws IOException {
+        if(count + 4 > buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) (value >>> 24);
+        buffer[count++] = (byte) (value >>> 16);
+        buffer[count++] = (byte) (value >>> 8);
+        buffer[count++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if(count + bytes.length > buffer.length) {
+            drain();
+            if(bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * Key for structural sharing, which refers to subterms by their record ids.
+     */
+    private static final class Node {
+
+        private final int kind;
+        private final @Nullable Object value1;
+        private final @Nullable Object value2;
+        private final @Nullable int[] children;
+        private final @Nullable Object[] attachments;
+        private final int hashCode;
+
+        private Node(int kind, @Nullable Object value1, @Nullable Object value2, @Nullable int[] children,
+                @Nullable Object[] attachments) {
+            this.kind = kind;
+            this.value1 = value1;
+            this.value2 = value2;
+            this.children = children;
+            this.attachments = attachments;
+            this.hashCode = Objects.hash(kind, value1, value2, Arrays.hashCode(children), Arrays.hashCode(attachments));
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            final Node other = (Node) obj;
+            return hashCode == other.hashCode && kind == other.kind && Objects.equals(value1, other.value1)
+                    && Objects.equals(value2, other.value2) && Arrays.equals(children, other.children)
+                    && Arrays.equals(attachments, other.attachments);
+        }
+
+    }
+
+}
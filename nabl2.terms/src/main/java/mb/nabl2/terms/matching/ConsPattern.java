@@ -53,6 +53,10 @@ class ConsPattern extends Pattern {
         return true;
     }
 
+    @Override public Object headKey() {
+        return HeadKeys.CONS;
+    }
+
     @Override protected boolean matchTerm(ITerm term,
             ISubstitution.Transient subst, IUnifier.Immutable unifier, Eqs eqs) {
         // @formatter:off
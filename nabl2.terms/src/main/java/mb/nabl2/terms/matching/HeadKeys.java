@@ -0,0 +1,101 @@
+package mb.nabl2.terms.matching;
+
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IBlobTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IIntTerm;
+import mb.nabl2.terms.INilTerm;
+import mb.nabl2.terms.IStringTerm;
+import mb.nabl2.terms.ITerm;
+
+/**
+ * Keys for the outermost constructor of terms and patterns, used for indexing patterns by the terms they may match.
+ * 
+ * Two keys are equal if the outermost constructors are the same. Keys of different kinds never collide: application
+ * keys are compared on operator and arity, string and integer keys on their value, and lists and blobs by identity.
+ */
+public final class HeadKeys {
+
+    static final Object NIL = new Object() {
+        @Override public String toString() {
+            return "[]";
+        }
+    };
+
+    static final Object CONS = new Object() {
+        @Override public String toString() {
+            return "[_|_]";
+        }
+    };
+
+    private static final Object BLOB = new Object() {
+        @Override public String toString() {
+            return "<blob>";
+        }
+    };
+
+    private HeadKeys() {
+    }
+
+    /**
+     * Return the key of the outermost constructor of the given term, or null if the term is a variable. The term is
+     * expected to be instantiated already, e.g., by {@link mb.nabl2.terms.unification.u.IUnifier#findTerm(ITerm)}.
+     */
+    public static @Nullable Object of(ITerm term) {
+        if(term instanceof IApplTerm) {
+            final IApplTerm appl = (IApplTerm) term;
+            return ofAppl(appl.getOp(), appl.getArity());
+        } else if(term instanceof IConsTerm) {
+            return CONS;
+        } else if(term instanceof INilTerm) {
+            return NIL;
+        } else if(term instanceof IStringTerm) {
+            return ((IStringTerm) term).getValue();
+        } else if(term instanceof IIntTerm) {
+            return ((IIntTerm) term).getValue();
+        } else if(term instanceof IBlobTerm) {
+            // no pattern matches blobs, so any key that differs from all pattern keys will do
+            return BLOB;
+        } else {
+            return null;
+        }
+    }
+
+    static Object ofAppl(String op, int arity) {
+        return new ApplKey(op, arity);
+    }
+
+    private static final class ApplKey {
+
+        private final String op;
+        private final int arity;
+
+        private ApplKey(String op, int arity) {
+            this.op = op;
+            this.arity = arity;
+        }
+
+        @Override public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(o == null || getClass() != o.getClass())
+                return false;
+            final ApplKey that = (ApplKey) o;
+            return arity == that.arity && op.equals(that.op);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(op, arity);
+        }
+
+        @Override public String toString() {
+            return op + "/" + arity;
+        }
+
+    }
+
+}
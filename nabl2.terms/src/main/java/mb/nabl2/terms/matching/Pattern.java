@@ -47,6 +47,12 @@ public abstract class Pattern implements Serializable {
 
     public abstract boolean isConstructed();
 
+    /**
+     * Return a key for the outermost constructor of this pattern, or null if the pattern is not constructed. A term
+     * whose {@link HeadKeys#of(ITerm)} is not null and differs from this key can never match this pattern.
+     */
+    public abstract @Nullable Object headKey();
+
     public Optional<ISubstitution.Immutable> match(ITerm term) {
         return match(term, Unifiers.Immutable.of()).match(t -> t, v -> Optional.empty());
     }
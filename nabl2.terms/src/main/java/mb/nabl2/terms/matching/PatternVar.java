@@ -49,6 +49,10 @@ class PatternVar extends Pattern {
         return false;
     }
 
+    @Override public @Nullable Object headKey() {
+        return null;
+    }
+
     public boolean isWildcard() {
         return var == null;
     }
@@ -2,7 +2,9 @@ package mb.nabl2.terms.stratego;
 
 import static mb.nabl2.terms.build.TermBuild.B;
 
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.annotation.Nullable;
@@ -34,8 +36,30 @@ public class StrategoTerms {
 
     private final org.spoofax.interpreter.terms.ITermFactory termFactory;
 
+    private final @Nullable Map<IStrategoTerm, ITerm> fromMemo;
+    private final @Nullable Map<ITerm, IStrategoTerm> toMemo;
+
     public StrategoTerms(ITermFactory termFactory) {
+        this(termFactory, false);
+    }
+
+    /**
+     * Create a converter that optionally memoizes conversions.
+     *
+     * A memoizing converter converts every subterm, by identity, only once, and preserves sharing between subterms in
+     * the converted terms. Terms that were converted from Stratego are converted back to the original Stratego term,
+     * so that unchanged input terms, such as ASTs, are returned without copying them. A memoizing converter holds on to
+     * all terms it converted, and should only be used for the duration of a single primitive call.
+     *
+     * @param termFactory
+     *            the factory to create Stratego terms
+     * @param memoize
+     *            whether to memoize conversions
+     */
+    public StrategoTerms(ITermFactory termFactory, boolean memoize) {
         this.termFactory = termFactory;
+        this.fromMemo = memoize ? new IdentityHashMap<>() : null;
+        this.toMemo = memoize ? new IdentityHashMap<>() : null;
     }
 
     // to
@@ -45,8 +69,13 @@ public class StrategoTerms {
     }
 
     public IStrategoTerm toStratego(ITerm term, boolean varsToPlhdrs) {
+        final boolean memoize = toMemo != null && !varsToPlhdrs;
+        @Nullable IStrategoTerm strategoTerm;
+        if(memoize && (strategoTerm = toMemo.get(term)) != null) {
+            return strategoTerm;
+        }
         // @formatter:off
-        IStrategoTerm strategoTerm = term.match(Terms.cases(
+        strategoTerm = term.match(Terms.cases(
             appl -> {
                 IStrategoTerm[] argArray = appl.getArgs().stream().map(arg -> toStratego(arg, varsToPlhdrs)).toArray(IStrategoTerm[]::new);
                 return appl.getOp().equals(Terms.TUPLE_OP)
@@ -73,14 +102,24 @@ public class StrategoTerms {
             default:
                 strategoTerm = putAttachments(strategoTerm, term.getAttachments());
         }
+        if(memoize) {
+            toMemo.put(term, strategoTerm);
+        }
         return strategoTerm;
     }
 
     private IStrategoTerm toStrategoList(IListTerm list, boolean varsToPlhdrs) {
+        final boolean memoize = toMemo != null && !varsToPlhdrs;
         final LinkedList<IStrategoTerm> terms = Lists.newLinkedList();
         final LinkedList<IAttachments> attachments = Lists.newLinkedList();
+        final LinkedList<IListTerm> cells = Lists.newLinkedList();
+        @Nullable IStrategoList strategoList = null;
         while(list != null) {
+            if(memoize && (strategoList = (IStrategoList) toMemo.get(list)) != null) {
+                break;
+            }
             attachments.push(list.getAttachments());
+            cells.push(list);
             // @formatter:off
             list = list.match(ListTerms.<IListTerm>cases(
                 cons -> {
@@ -96,15 +135,25 @@ public class StrategoTerms {
             ));
             // @formatter:on
         }
-        IStrategoList strategoList = termFactory.makeList();
-        putAttachments(strategoList, attachments.pop());
+        if(strategoList == null) {
+            strategoList = termFactory.makeList();
+            putAttachments(strategoList, attachments.pop());
+            memoizeTo(cells.pop(), strategoList, memoize);
+        }
         while(!terms.isEmpty()) {
             strategoList = termFactory.makeListCons(terms.pop(), strategoList);
             putAttachments(strategoList, attachments.pop());
+            memoizeTo(cells.pop(), strategoList, memoize);
         }
         return strategoList;
     }
 
+    private void memoizeTo(IListTerm list, IStrategoList strategoList, boolean memoize) {
+        if(memoize) {
+            toMemo.put(list, strategoList);
+        }
+    }
+
     private <T extends IStrategoTerm> T putAttachments(T term, IAttachments attachments) {
         if(attachments.isEmpty()) {
             return term;
@@ -137,6 +186,10 @@ public class StrategoTerms {
     }
 
     public ITerm fromStratego(IStrategoTerm sterm, @Nullable VarProvider varProvider) {
+        @Nullable ITerm memoizedTerm;
+        if((memoizedTerm = memoizedFrom(sterm, varProvider)) != null) {
+            return memoizedTerm;
+        }
         @Nullable IAttachments attachments = getAttachments(sterm);
         // @formatter:off
         ITerm term = match(sterm, StrategoTerms.cases(
@@ -170,19 +223,46 @@ public class StrategoTerms {
             }
         ));
         // @formatter:on
-        return term;
+        return memoizeFrom(sterm, term, varProvider);
     }
 
+    /**
+     * Convert a list iteratively, to support long lists. A memoizing converter stops at the first tail that was
+     * converted before, so shared tails are converted once.
+     */
     private IListTerm fromStrategoList(IStrategoList list, @Nullable VarProvider varProvider) {
         final LinkedList<ITerm> terms = Lists.newLinkedList();
-        final LinkedList<IAttachments> attachments = Lists.newLinkedList();
-        while(!list.isEmpty()) {
-            terms.add(fromStratego(list.head(), varProvider));
-            attachments.push(getAttachments(list));
+        final LinkedList<IStrategoList> cells = Lists.newLinkedList();
+        @Nullable IListTerm tail;
+        while((tail = (IListTerm) memoizedFrom(list, varProvider)) == null && !list.isEmpty()) {
+            terms.push(fromStratego(list.head(), varProvider));
+            cells.push(list);
             list = list.tail();
         }
-        attachments.add(getAttachments(list));
-        return B.newList(terms, attachments);
+        if(tail == null) {
+            tail = memoizeFrom(list, B.newNil(getAttachments(list)), varProvider);
+        }
+        while(!cells.isEmpty()) {
+            final IStrategoList cell = cells.pop();
+            tail = memoizeFrom(cell, B.newCons(terms.pop(), tail, getAttachments(cell)), varProvider);
+        }
+        return tail;
+    }
+
+    /**
+     * Conversions are only memoized without a variable provider, because placeholders are converted to fresh
+     * variables.
+     */
+    private @Nullable ITerm memoizedFrom(IStrategoTerm sterm, @Nullable VarProvider varProvider) {
+        return fromMemo != null && varProvider == null ? fromMemo.get(sterm) : null;
+    }
+
+    private <T extends ITerm> T memoizeFrom(IStrategoTerm sterm, T term, @Nullable VarProvider varProvider) {
+        if(fromMemo != null && varProvider == null) {
+            fromMemo.put(sterm, term);
+            toMemo.putIfAbsent(term, sterm);
+        }
+        return term;
     }
 
     public static IAttachments getAttachments(IStrategoTerm term) {
@@ -11,6 +11,8 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.Ref;
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.functions.PartialFunction1;
@@ -92,10 +94,13 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     }
 
     @Override public ITerm findTerm(ITerm term) {
-        return term.match(Terms.<ITerm>cases().var(var -> {
-            final ITermVar rep = findRep(var);
-            return terms().getOrDefault(rep, rep);
-        }).otherwise(t -> t));
+        // Avoid the case matcher here, as this is called very often and should not allocate.
+        if(!(term instanceof ITermVar)) {
+            return term;
+        }
+        final ITermVar rep = findRep((ITermVar) term);
+        final ITerm repTerm = terms().get(rep);
+        return repTerm != null ? repTerm : rep;
     }
 
     ///////////////////////////////////////////
@@ -103,14 +108,24 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public ITerm findRecursive(final ITerm term) {
+        if(term.isGround()) {
+            return term;
+        }
         return findTermRecursive(term, Sets.newHashSet(), Maps.newHashMap());
     }
 
     private ITerm findTermRecursive(final ITerm term, final java.util.Set<ITermVar> stack,
             final java.util.Map<ITermVar, ITerm> visited) {
+        if(term.isGround()) {
+            // ground subterms are returned by identity
+            return term;
+        }
         return term.match(Terms.cases(
         // @formatter:off
-            appl -> B.newAppl(appl.getOp(), findRecursiveTerms(appl.getArgs(), stack, visited), appl.getAttachments()),
+            appl -> {
+                final List<ITerm> args = findRecursiveTerms(appl.getArgs(), stack, visited);
+                return args != null ? B.newAppl(appl.getOp(), args, appl.getAttachments()) : appl;
+            },
             list -> findListTermRecursive(list, stack, visited),
             string -> string,
             integer -> integer,
@@ -159,9 +174,13 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
         final ITermVar rep = findRep(var);
         final ITerm instance;
         if(!visited.containsKey(rep)) {
+            final ITerm term = terms().get(rep);
+            if(term != null && term.isGround()) {
+                visited.put(rep, term);
+                return term;
+            }
             stack.add(rep);
             visited.put(rep, null);
-            final ITerm term = terms().get(rep);
             instance = term != null ? findTermRecursive(term, stack, visited) : rep;
             visited.put(rep, instance);
             stack.remove(rep);
@@ -174,11 +193,22 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
         return instance;
     }
 
-    private Iterable<ITerm> findRecursiveTerms(final Iterable<ITerm> terms, final java.util.Set<ITermVar> stack,
+    /**
+     * Instantiate the given terms, returning null if all terms are unchanged.
+     */
+    private @Nullable List<ITerm> findRecursiveTerms(final List<ITerm> terms, final java.util.Set<ITermVar> stack,
             final java.util.Map<ITermVar, ITerm> visited) {
-        List<ITerm> instances = Lists.newArrayList();
-        for(ITerm term : terms) {
-            instances.add(findTermRecursive(term, stack, visited));
+        List<ITerm> instances = null;
+        for(int i = 0; i < terms.size(); i++) {
+            final ITerm term = terms.get(i);
+            final ITerm instance = findTermRecursive(term, stack, visited);
+            if(instances == null && instance != term) {
+                instances = Lists.newArrayListWithExpectedSize(terms.size());
+                instances.addAll(terms.subList(0, i));
+            }
+            if(instances != null) {
+                instances.add(instance);
+            }
         }
         return instances;
     }
@@ -229,7 +259,25 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public boolean isGround(final ITerm term) {
-        return isGround(term.getVars(), Sets.newHashSet(), Maps.newHashMap());
+        if(term.isGround()) {
+            return true;
+        }
+        if(!isFinite()) {
+            return isGround(term.getVars(), Sets.newHashSet(), Maps.newHashMap());
+        }
+        // finite unifiers have no cycles, so groundness of a representative can be cached
+        for(ITermVar var : term.getVars()) {
+            final ITermVar rep = findRep(var);
+            Boolean ground = getCachedGround(rep);
+            if(ground == null) {
+                ground = isGround(rep, Sets.newHashSet(), Maps.newHashMap());
+                putCachedGround(rep, ground);
+            }
+            if(!ground) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private boolean isGround(final java.util.Set<ITermVar> vars, final java.util.Set<ITermVar> stack,
@@ -261,9 +309,28 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public Set.Immutable<ITermVar> getVars(final ITerm term) {
-        final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
-        getVars(term.getVars(), Lists.newLinkedList(), Sets.newHashSet(), vars);
-        return vars.freeze();
+        if(term.isGround()) {
+            return CapsuleUtil.immutableSet();
+        }
+        if(!isFinite()) {
+            final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
+            getVars(term.getVars(), Lists.newLinkedList(), Sets.newHashSet(), vars);
+            return vars.freeze();
+        }
+        // finite unifiers have no cycles, so the variables of a representative can be cached
+        Set.Immutable<ITermVar> vars = null;
+        for(ITermVar var : term.getVars()) {
+            final ITermVar rep = findRep(var);
+            Set.Immutable<ITermVar> repVars = getCachedVars(rep);
+            if(repVars == null) {
+                final Set.Transient<ITermVar> _repVars = CapsuleUtil.transientSet();
+                getVars(rep, Lists.newLinkedList(), Sets.newHashSet(), _repVars);
+                repVars = _repVars.freeze();
+                putCachedVars(rep, repVars);
+            }
+            vars = vars == null ? repVars : vars.__insertAll(repVars);
+        }
+        return vars != null ? vars : CapsuleUtil.immutableSet();
     }
 
     private void getVars(final java.util.Set<ITermVar> tryVars, final LinkedList<ITermVar> stack,
@@ -296,6 +363,32 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
         }
     }
 
+    ///////////////////////////////////////////
+    // caches
+    ///////////////////////////////////////////
+
+    /**
+     * Get the cached groundness of the given representative, or null if it is not cached. Caches are only consulted
+     * for finite unifiers, where results cannot depend on cycles.
+     */
+    protected @Nullable Boolean getCachedGround(ITermVar rep) {
+        return null;
+    }
+
+    protected void putCachedGround(ITermVar rep, boolean ground) {
+    }
+
+    /**
+     * Get the cached variables of the given representative, or null if they are not cached. Caches are only consulted
+     * for finite unifiers, where results cannot depend on cycles.
+     */
+    protected @Nullable Set.Immutable<ITermVar> getCachedVars(ITermVar rep) {
+        return null;
+    }
+
+    protected void putCachedVars(ITermVar rep, Set.Immutable<ITermVar> vars) {
+    }
+
     ///////////////////////////////////////////
     // size(ITerm)
     ///////////////////////////////////////////
@@ -1,6 +1,12 @@
 package mb.nabl2.terms.unification.u;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
@@ -8,6 +14,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.metaborg.util.Ref;
 import org.metaborg.util.collection.CapsuleUtil;
@@ -27,6 +34,9 @@ import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.ListTerms;
 import mb.nabl2.terms.Terms;
+import mb.nabl2.terms.io.AttachmentCodecs;
+import mb.nabl2.terms.io.TermReader;
+import mb.nabl2.terms.io.TermWriter;
 import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
 import mb.nabl2.terms.substitution.PersistentSubstitution;
@@ -66,6 +76,11 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
         private final Set.Immutable<ITermVar> rangeSetCache;
         private final Set.Immutable<ITermVar> varSetCache;
 
+        // Caches of groundness and variables per representative, created on first use. An immutable unifier never
+        // changes, so cached results remain valid for the lifetime of this instance.
+        private transient volatile java.util.Map<ITermVar, Boolean> groundCache;
+        private transient volatile java.util.Map<ITermVar, Set.Immutable<ITermVar>> varsCache;
+
         // FIXME Should be `package`, but is `public` for constructor in PersistentUniDisunifier
         public Immutable(final boolean finite, final Map.Immutable<ITermVar, ITermVar> reps,
                 final Map.Immutable<ITermVar, Integer> ranks, final Map.Immutable<ITermVar, ITerm> terms,
@@ -96,7 +111,17 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
         }
 
         @Override public ITermVar findRep(ITermVar var) {
-            final Map.Transient<ITermVar, ITermVar> reps = this.reps.get().asTransient();
+            // Fast path: the variable is a representative, or its path is already compressed. This is the common case
+            // after the first lookup, and answers the query without copying the maps.
+            final Map.Immutable<ITermVar, ITermVar> currentReps = this.reps.get();
+            final ITermVar directRep = currentReps.get(var);
+            if(directRep == null) {
+                return var;
+            } else if(!currentReps.containsKey(directRep)) {
+                return directRep;
+            }
+            // Slow path: compress the path, and store the compressed maps so that later lookups take the fast path.
+            final Map.Transient<ITermVar, ITermVar> reps = currentReps.asTransient();
             final MultiSet.Transient<ITermVar> repAndTermVarsCache = this.repAndTermVarsCache.get().melt();
             final ITermVar rep = findRep(var, reps, repAndTermVarsCache);
             this.reps.set(reps.freeze());
@@ -104,6 +129,32 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
             return rep;
         }
 
+        @Override protected Boolean getCachedGround(ITermVar rep) {
+            final java.util.Map<ITermVar, Boolean> groundCache = this.groundCache;
+            return groundCache != null ? groundCache.get(rep) : null;
+        }
+
+        @Override protected void putCachedGround(ITermVar rep, boolean ground) {
+            java.util.Map<ITermVar, Boolean> groundCache = this.groundCache;
+            if(groundCache == null) {
+                this.groundCache = groundCache = new ConcurrentHashMap<>();
+            }
+            groundCache.put(rep, ground);
+        }
+
+        @Override protected Set.Immutable<ITermVar> getCachedVars(ITermVar rep) {
+            final java.util.Map<ITermVar, Set.Immutable<ITermVar>> varsCache = this.varsCache;
+            return varsCache != null ? varsCache.get(rep) : null;
+        }
+
+        @Override protected void putCachedVars(ITermVar rep, Set.Immutable<ITermVar> vars) {
+            java.util.Map<ITermVar, Set.Immutable<ITermVar>> varsCache = this.varsCache;
+            if(varsCache == null) {
+                this.varsCache = varsCache = new ConcurrentHashMap<>();
+            }
+            varsCache.put(rep, vars);
+        }
+
         ///////////////////////////////////////////
         // unifier functions
         ///////////////////////////////////////////
@@ -617,6 +668,80 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
                     domainSetCache.freeze(), rangeSetCache.freeze(), varSetCache.freeze());
         }
 
+
+        ///////////////////////////////////////////
+        // serialization
+        ///////////////////////////////////////////
+
+        /**
+         * Serialize the unifier in the compact term format, which writes shared and repeated subterms once. Unifiers
+         * with terms the format cannot represent, such as blobs, use default serialization.
+         */
+        private Object writeReplace() throws ObjectStreamException {
+            try {
+                return new SerializedUnifier(this);
+            } catch(IllegalArgumentException e) {
+                return this;
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static class SerializedUnifier implements Serializable {
+
+            private static final long serialVersionUID = 1L;
+
+            private final byte[] data;
+
+            private SerializedUnifier(PersistentUnifier.Immutable unifier) throws IOException {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try(final TermWriter out = new TermWriter(bytes, AttachmentCodecs.defaults(), true)) {
+                    out.writeInt(unifier.finite ? 1 : 0);
+                    final Map.Immutable<ITermVar, ITermVar> reps = unifier.reps.get();
+                    out.writeInt(reps.size());
+                    for(Entry<ITermVar, ITermVar> e : reps.entrySet()) {
+                        out.writeTerm(e.getKey());
+                        out.writeTerm(e.getValue());
+                    }
+                    out.writeInt(unifier.ranks.size());
+                    for(Entry<ITermVar, Integer> e : unifier.ranks.entrySet()) {
+                        out.writeTerm(e.getKey());
+                        out.writeInt(e.getValue());
+                    }
+                    out.writeInt(unifier.terms.size());
+                    for(Entry<ITermVar, ITerm> e : unifier.terms.entrySet()) {
+                        out.writeTerm(e.getKey());
+                        out.writeTerm(e.getValue());
+                    }
+                }
+                this.data = bytes.toByteArray();
+            }
+
+            private Object readResolve() throws ObjectStreamException {
+                try(final TermReader in = new TermReader(new ByteArrayInputStream(data))) {
+                    final boolean finite = in.readInt() != 0;
+                    final Map.Transient<ITermVar, ITermVar> reps = Map.Transient.of();
+                    for(int i = in.readInt(); i > 0; i--) {
+                        reps.__put((ITermVar) in.readTerm(), (ITermVar) in.readTerm());
+                    }
+                    final Map.Transient<ITermVar, Integer> ranks = Map.Transient.of();
+                    for(int i = in.readInt(); i > 0; i--) {
+                        ranks.__put((ITermVar) in.readTerm(), in.readInt());
+                    }
+                    final Map.Transient<ITermVar, ITerm> terms = Map.Transient.of();
+                    for(int i = in.readInt(); i > 0; i--) {
+                        terms.__put((ITermVar) in.readTerm(), in.readTerm());
+                    }
+                    return PersistentUnifier.Immutable.of(finite, reps.freeze(), ranks.freeze(), terms.freeze());
+                } catch(IOException e) {
+                    final InvalidObjectException ex = new InvalidObjectException("Cannot read unifier.");
+                    ex.initCause(e);
+                    throw ex;
+                }
+            }
+
+        }
+
     }
 
     ///////////////////////////////////////////
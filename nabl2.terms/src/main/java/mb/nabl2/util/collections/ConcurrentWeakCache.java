@@ -1,27 +1,116 @@
 package mb.nabl2.util.collections;
 
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * A cache with weak keys and values, which can be used concurrently.
+ *
+ * The cache is split into stripes, selected by the hash of the key, that are locked independently. This reduces
+ * contention when many threads use the cache at the same time. Values are held weakly, so that values that are equal
+ * to their key (e.g., when the cache is used as an intern table) do not keep the entry alive.
+ */
 public class ConcurrentWeakCache<K, V> {
 
-    private final Map<K, V> entries = new WeakHashMap<>();
+    private static final int DEFAULT_STRIPES = 64;
 
-    public synchronized int size() {
-        return entries.size();
+    private final Map<K, WeakReference<V>>[] stripes;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ConcurrentWeakCache() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param concurrency
+     *            the expected number of concurrent users, rounded up to a power of two to get the number of stripes
+     */
+    @SuppressWarnings("unchecked") public ConcurrentWeakCache(int concurrency) {
+        int n = 1;
+        while(n < concurrency) {
+            n <<= 1;
+        }
+        this.stripes = new Map[n];
+        for(int i = 0; i < n; i++) {
+            stripes[i] = new WeakHashMap<>();
+        }
+        this.mask = n - 1;
+    }
+
+    private Map<K, WeakReference<V>> stripe(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & mask];
+    }
+
+    public int size() {
+        int size = 0;
+        for(Map<K, WeakReference<V>> stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Get the value for the given key, or null if the key is not in the cache.
+     */
+    public V get(K key) {
+        final Map<K, WeakReference<V>> stripe = stripe(key);
+        synchronized(stripe) {
+            final WeakReference<V> ref = stripe.get(key);
+            return ref != null ? ref.get() : null;
+        }
+    }
+
+    /**
+     * Get the value for the given key, or put the given value in the cache if the key is not in the cache.
+     */
+    public V getOrPut(K key, V value) {
+        final Map<K, WeakReference<V>> stripe = stripe(key);
+        synchronized(stripe) {
+            final WeakReference<V> ref = stripe.get(key);
+            final V oldValue;
+            if(ref != null && (oldValue = ref.get()) != null) {
+                hits.increment();
+                return oldValue;
+            }
+            stripe.put(key, new WeakReference<>(value));
+        }
+        misses.increment();
+        return value;
     }
 
-    public synchronized boolean isEmpty() {
-        return entries.isEmpty();
+    public void clear() {
+        for(Map<K, WeakReference<V>> stripe : stripes) {
+            synchronized(stripe) {
+                stripe.clear();
+            }
+        }
     }
 
-    public synchronized V getOrPut(K key, V value) {
-        V oldValue = entries.putIfAbsent(key, value);
-        return oldValue != null ? oldValue : value;
+    /**
+     * The number of calls to {@link #getOrPut(Object, Object)} that returned an existing value.
+     */
+    public long hits() {
+        return hits.sum();
     }
 
-    public synchronized void clear() {
-        entries.clear();
+    /**
+     * The number of calls to {@link #getOrPut(Object, Object)} that added a new value.
+     */
+    public long misses() {
+        return misses.sum();
     }
 
-}
\ No newline at end of file
+}
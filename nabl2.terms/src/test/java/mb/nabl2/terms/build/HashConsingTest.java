@@ -0,0 +1,55 @@
+package mb.nabl2.terms.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.ITerm;
+
+public class HashConsingTest {
+
+    private final TermBuild.B B = new TermBuild.B(true);
+
+    private final IAttachments attachments = Attachments.of(String.class, "origin");
+
+    @Test public void testSharedSimpleTerms() {
+        assertSame(B.newString("x"), B.newString("x"));
+        assertSame(B.newInt(1), B.newInt(1));
+        assertSame(B.newVar("r", "x"), B.newVar("r", "x"));
+        assertSame(B.newNil(), B.newNil());
+    }
+
+    @Test public void testSharedSmallAppls() {
+        final ITerm t1 = B.newAppl("f", B.newString("x"), B.newAppl("g", B.newInt(1)));
+        final ITerm t2 = B.newAppl("f", B.newString("x"), B.newAppl("g", B.newInt(1)));
+        assertSame(t1, t2);
+    }
+
+    @Test public void testUnsharedAttachments() {
+        final ITerm t1 = B.newAppl("f", B.newString("x", attachments));
+        final ITerm t2 = B.newAppl("f", B.newString("x"));
+        assertEquals(t1, t2);
+        assertNotSame(t1, t2);
+        assertEquals(attachments, ((IApplTerm) t1).getArgs().get(0).getAttachments());
+    }
+
+    @Test public void testUnsharedNestedAttachments() {
+        final ITerm t1 = B.newAppl("f", B.newAppl("g", B.newString("x", attachments)));
+        final ITerm t2 = B.newAppl("f", B.newAppl("g", B.newString("x")));
+        assertEquals(t1, t2);
+        assertNotSame(t1, t2);
+    }
+
+    @Test public void testStatistics() {
+        final long hits = B.sharedHits();
+        B.newAppl("h", B.newString("y"));
+        B.newAppl("h", B.newString("y"));
+        // one hit for the string and one for the application
+        assertEquals(hits + 2, B.sharedHits());
+    }
+
+}
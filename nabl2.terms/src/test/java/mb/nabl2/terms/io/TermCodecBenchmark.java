@@ -0,0 +1,106 @@
+package mb.nabl2.terms.io;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.stratego.TermIndex;
+
+/**
+ * Compares the size and speed of the term codec with Java serialization, on a term that resembles an AST with term
+ * indices and repeated subterms.
+ */
+public class TermCodecBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        final ITerm term = ast(new Random(42), 12, new int[] { 0 });
+
+        for(int i = 0; i < WARMUP; i++) {
+            readJava(writeJava(term));
+            readCodec(writeCodec(term));
+        }
+
+        long writeJava = 0, readJava = 0, writeCodec = 0, readCodec = 0;
+        byte[] javaBytes = null, codecBytes = null;
+        for(int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            javaBytes = writeJava(term);
+            writeJava += System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            readJava(javaBytes);
+            readJava += System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            codecBytes = writeCodec(term);
+            writeCodec += System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            readCodec(codecBytes);
+            readCodec += System.nanoTime() - t0;
+        }
+
+        System.out.println("Java serialization: " + javaBytes.length + " bytes, write " + ms(writeJava) + " ms, read "
+                + ms(readJava) + " ms");
+        System.out.println("Term codec:         " + codecBytes.length + " bytes, write " + ms(writeCodec)
+                + " ms, read " + ms(readCodec) + " ms");
+    }
+
+    private static ITerm ast(Random random, int depth, int[] index) {
+        final List<ITerm> args = new ArrayList<>();
+        if(depth > 0) {
+            final int arity = 1 + random.nextInt(3);
+            for(int i = 0; i < arity; i++) {
+                args.add(ast(random, depth - 1, index));
+            }
+        } else {
+            args.add(B.newString("x" + random.nextInt(100)));
+            args.add(B.newList(B.newAppl("Type", B.newString("int")), B.newInt(random.nextInt(10))));
+        }
+        return TermIndex.of("module", index[0]++).put(B.newAppl("Node" + random.nextInt(20), args));
+    }
+
+    private static byte[] writeJava(ITerm term) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(final ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(term);
+        }
+        return out.toByteArray();
+    }
+
+    private static ITerm readJava(byte[] bytes) throws IOException, ClassNotFoundException {
+        try(final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ITerm) ois.readObject();
+        }
+    }
+
+    private static byte[] writeCodec(ITerm term) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(final TermWriter writer = new TermWriter(out)) {
+            writer.writeTerm(term);
+        }
+        return out.toByteArray();
+    }
+
+    private static ITerm readCodec(byte[] bytes) throws IOException {
+        try(final TermReader reader = new TermReader(new ByteArrayInputStream(bytes))) {
+            return reader.readTerm();
+        }
+    }
+
+    private static double ms(long nanos) {
+        return nanos / ROUNDS / 1_000_000.0;
+    }
+
+}
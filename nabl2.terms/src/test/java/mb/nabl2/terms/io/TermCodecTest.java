@@ -0,0 +1,144 @@
+package mb.nabl2.terms.io;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.spoofax.jsglr.client.imploder.ImploderAttachment;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.stratego.TermOrigin;
+
+public class TermCodecTest {
+
+    @Test public void testRoundTrip() throws IOException {
+        final List<ITerm> terms = Arrays.asList(B.newAppl("F", B.newString("x"), B.newInt(-1), B.newVar("r", "v")),
+                B.newList(B.newInt(Integer.MIN_VALUE), B.newInt(Integer.MAX_VALUE), B.newString("ü☃")),
+                B.newListTail(Arrays.asList(B.newInt(1)), B.newVar("", "tail")), B.newNil(), B.newTuple(),
+                B.newString(""));
+        assertEquals(terms, roundTrip(terms));
+    }
+
+    @Test public void testAttachments() throws IOException {
+        final ITerm term = TermIndex.of("res", 300).put(B.newAppl("F", TermIndex.of("res", 1).put(B.newString("x"))));
+        final ITerm result = roundTrip(Collections.singletonList(term)).get(0);
+        assertTrue(term.equals(result, true));
+        assertEquals(TermIndex.get(((IApplTerm) term).getArgs().get(0)),
+                TermIndex.get(((IApplTerm) result).getArgs().get(0)));
+    }
+
+    @Test public void testTermOrigin() throws IOException {
+        final ITerm term = B.newTuple(origin("res", 3, 7, 42, 50).put(B.newString("x")),
+                origin(null, -1, -1, -1, -1).put(B.newString("y")));
+        final IApplTerm result = (IApplTerm) roundTrip(Collections.singletonList(term)).get(0);
+        assertOrigin("res", 3, 7, 42, 50, result.getArgs().get(0));
+        assertOrigin(null, -1, -1, -1, -1, result.getArgs().get(1));
+    }
+
+    @Test public void testUnknownAttachmentsAreDropped() throws IOException {
+        final ITerm term = TermIndex.of("res", 1).put(B.newString("x"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(final TermWriter writer = new TermWriter(out, Collections.emptyList())) {
+            writer.writeTerm(term);
+        }
+        final TermReader reader = new TermReader(new ByteArrayInputStream(out.toByteArray()), Collections.emptyList());
+        final ITerm result = reader.readTerm();
+        assertEquals(term, result);
+        assertTrue(result.getAttachments().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testStrictRejectsUnknownAttachments()
+            throws IOException {
+        final ITerm term = TermIndex.of("res", 1).put(B.newString("x"));
+        try(final TermWriter writer = new TermWriter(new ByteArrayOutputStream(), Collections.emptyList(), true)) {
+            writer.writeTerm(term);
+        }
+    }
+
+    @Test public void testSharing() throws IOException {
+        final ITerm shared = B.newAppl("Shared", B.newString("a"), B.newString("b"), B.newString("c"));
+        final ITerm copy = B.newAppl("Shared", B.newString("a"), B.newString("b"), B.newString("c"));
+        final ITerm once = B.newAppl("F", shared);
+        final ITerm thrice = B.newAppl("F", shared, shared, copy);
+        assertTrue(size(thrice) < size(once) + 8);
+
+        final IApplTerm result = (IApplTerm) roundTrip(Collections.singletonList(thrice)).get(0);
+        assertSame(result.getArgs().get(0), result.getArgs().get(1));
+        assertSame(result.getArgs().get(0), result.getArgs().get(2));
+    }
+
+    @Test public void testSharingWithDifferentAttachments() throws IOException {
+        final ITerm term = B.newTuple(TermIndex.of("res", 1).put(B.newString("x")),
+                TermIndex.of("res", 2).put(B.newString("x")));
+        assertTrue(term.equals(roundTrip(Collections.singletonList(term)).get(0), true));
+    }
+
+    @Test public void testLongList() throws IOException {
+        final List<ITerm> elems = new ArrayList<>();
+        for(int i = 0; i < 10_000; i++) {
+            elems.add(B.newInt(i));
+        }
+        final IListTerm list = B.newList(elems);
+        assertEquals(list, roundTrip(Collections.singletonList(list)).get(0));
+    }
+
+    @Test(expected = EOFException.class) public void testEndOfStream() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TermWriter(out).flush();
+        new TermReader(new ByteArrayInputStream(out.toByteArray())).readTerm();
+    }
+
+    private static TermOrigin origin(String resource, int line, int column, int startOffset, int endOffset) {
+        return TermOrigin
+                .of(ImploderAttachment.createCompactPositionAttachment(resource, line, column, startOffset, endOffset));
+    }
+
+    private static void assertOrigin(String resource, int line, int column, int startOffset, int endOffset,
+            ITerm term) {
+        final TermOrigin origin = TermOrigin.get(term).orElseThrow(() -> new AssertionError("Missing origin."));
+        assertEquals(resource, origin.getResource());
+        assertEquals(line, origin.getLeftToken().getLine());
+        assertEquals(column, origin.getLeftToken().getColumn());
+        assertEquals(startOffset, origin.getLeftToken().getStartOffset());
+        assertEquals(endOffset, origin.getRightToken().getEndOffset());
+    }
+
+    private static List<ITerm> roundTrip(List<ITerm> terms) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(final TermWriter writer = new TermWriter(out)) {
+            for(ITerm term : terms) {
+                writer.writeTerm(term);
+            }
+        }
+        final List<ITerm> results = new ArrayList<>();
+        try(final TermReader reader = new TermReader(new ByteArrayInputStream(out.toByteArray()))) {
+            for(int i = 0; i < terms.size(); i++) {
+                results.add(reader.readTerm());
+            }
+        }
+        return results;
+    }
+
+    private static int size(ITerm term) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(final TermWriter writer = new TermWriter(out)) {
+            writer.writeTerm(term);
+        }
+        return out.size();
+    }
+
+}
@@ -0,0 +1,64 @@
+package mb.nabl2.terms.stratego;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spoofax.interpreter.terms.IStrategoList;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.ITerm;
+
+public class StrategoTermsTest {
+
+    private final ITermFactory factory = new TermFactory();
+
+    @Test public void testMemoizedFromPreservesSharing() {
+        final IStrategoTerm shared = appl("F", factory.makeString("x"), factory.makeInt(1));
+        final IStrategoTerm sterm = appl("G", shared, shared);
+        final IApplTerm term = (IApplTerm) new StrategoTerms(factory, true).fromStratego(sterm);
+        assertSame(term.getArgs().get(0), term.getArgs().get(1));
+    }
+
+    @Test public void testMemoizedFromPreservesSharedTails() {
+        final IStrategoList tail = factory.makeList(factory.makeString("y"), factory.makeString("z"));
+        final IStrategoTerm sterm = factory.makeTuple(factory.makeListCons(factory.makeInt(1), tail),
+                factory.makeListCons(factory.makeInt(2), tail));
+        final IApplTerm term = (IApplTerm) new StrategoTerms(factory, true).fromStratego(sterm);
+        assertSame(((IConsTerm) term.getArgs().get(0)).getTail(), ((IConsTerm) term.getArgs().get(1)).getTail());
+        assertEquals(new StrategoTerms(factory).fromStratego(sterm), term);
+    }
+
+    @Test public void testMemoizedRoundTripReturnsOriginal() {
+        final IStrategoTerm ast = appl("F", factory.makeList(factory.makeString("x")), factory.makeInt(1));
+        final StrategoTerms strategoTerms = new StrategoTerms(factory, true);
+        final ITerm term = strategoTerms.fromStratego(ast);
+        final IStrategoTerm result = strategoTerms.toStratego(B.newTuple(term, B.newString("y")));
+        assertSame(ast, result.getSubterm(0));
+    }
+
+    @Test public void testMemoizedToPreservesSharing() {
+        final ITerm shared = B.newAppl("F", B.newList(B.newString("x"), B.newInt(1)));
+        final IStrategoTerm sterm = new StrategoTerms(factory, true).toStratego(B.newAppl("G", shared, shared));
+        assertSame(sterm.getSubterm(0), sterm.getSubterm(1));
+    }
+
+    @Test public void testRoundTrip() {
+        final IStrategoTerm sterm = appl("F", factory.makeList(factory.makeString("x"), factory.makeInt(1)),
+                factory.makeTuple(factory.makeString("y"), factory.makeInt(2)));
+        for(boolean memoize : new boolean[] { false, true }) {
+            final StrategoTerms strategoTerms = new StrategoTerms(factory, memoize);
+            assertEquals(sterm, strategoTerms.toStratego(new StrategoTerms(factory, memoize).fromStratego(sterm)));
+        }
+    }
+
+    private IStrategoTerm appl(String op, IStrategoTerm... args) {
+        return factory.makeAppl(factory.makeConstructor(op, args.length), args);
+    }
+
+}
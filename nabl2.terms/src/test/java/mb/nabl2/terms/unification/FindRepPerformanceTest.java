@@ -0,0 +1,68 @@
+package mb.nabl2.terms.unification;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+
+/**
+ * Measures representative lookups on immutable unifiers, using the variable chain scenarios of UnifierFiniteTest scaled
+ * up. The first round compresses paths, later rounds should hit the allocation free fast path.
+ */
+public class FindRepPerformanceTest {
+
+    private static final int ROUNDS = 10;
+    private static final int LOOKUPS = 100;
+
+    public static void main(String[] args) throws OccursException {
+        for(int n = 1000; n <= 100000; n *= 10) {
+            System.out.println("Testing n = " + n);
+            final List<ITermVar> vars = createVars("a", n);
+            final IUnifier.Immutable unifier = unifyChain(vars);
+            for(int round = 0; round < ROUNDS; round++) {
+                final long t0 = System.nanoTime();
+                int found = 0;
+                for(int i = 0; i < LOOKUPS; i++) {
+                    for(ITermVar var : vars) {
+                        found += unifier.findRep(var).equals(var) ? 0 : 1;
+                        found += unifier.findTerm(var).isGround() ? 1 : 0;
+                    }
+                }
+                final long dt = System.nanoTime() - t0;
+                System.out.println("Round " + round + ": " + (2L * LOOKUPS * n) + " lookups in " + (dt / 1000000.0)
+                        + "ms (" + ((double) dt / (2L * LOOKUPS * n)) + "ns per lookup, " + found + " found)");
+            }
+        }
+    }
+
+    /**
+     * Unify all variables pairwise in a chain, and the last variable with a ground term. Unifying in separate steps
+     * results in representative paths that are longer than one.
+     */
+    private static IUnifier.Immutable unifyChain(List<ITermVar> vars) throws OccursException {
+        IUnifier.Immutable unifier = PersistentUnifier.Immutable.of();
+        for(int i = 1; i < vars.size(); i++) {
+            unifier = unifier.unify(vars.get(i - 1), vars.get(i)).orElseThrow(() -> new IllegalArgumentException())
+                    .unifier();
+        }
+        final ITerm term = B.newTuple(B.newString("x"), B.newInt(42));
+        unifier = unifier.unify(vars.get(vars.size() - 1), term).orElseThrow(() -> new IllegalArgumentException())
+                .unifier();
+        return unifier;
+    }
+
+    private static List<ITermVar> createVars(String name, int n) {
+        List<ITermVar> vars = Lists.newArrayListWithExpectedSize(n);
+        for(int i = 1; i <= n; i++) {
+            vars.add(B.newVar("", name + "-" + i));
+        }
+        return vars;
+    }
+
+}
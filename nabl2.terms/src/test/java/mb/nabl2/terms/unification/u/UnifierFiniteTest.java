@@ -11,6 +11,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 
 import org.junit.Test;
@@ -18,6 +22,7 @@ import org.metaborg.util.collection.CapsuleUtil;
 
 import io.usethesource.capsule.Map;
 import io.usethesource.capsule.Set;
+import mb.nabl2.terms.IApplTerm;
 import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.unification.OccursException;
@@ -396,4 +401,77 @@ public class UnifierFiniteTest {
         assertEquals("`f`(g(`f`(?c)))", phi.toString(a, stf));
     }
 
-}
\ No newline at end of file
+    @Test(timeout = 10000) public void testFindRepChainImmutable() throws OccursException {
+        IUnifier.Immutable phi = PersistentUnifier.Immutable.of();
+        phi = phi.unify(a, b).get().unifier();
+        phi = phi.unify(c, d).get().unifier();
+        phi = phi.unify(a, c).get().unifier();
+        phi = phi.unify(d, x).get().unifier();
+        final ITermVar rep = phi.findRep(a);
+        for(int i = 0; i < 2; i++) { // second round uses compressed paths
+            assertEquals(rep, phi.findRep(a));
+            assertEquals(rep, phi.findRep(b));
+            assertEquals(rep, phi.findRep(c));
+            assertEquals(rep, phi.findRep(d));
+            assertEquals(x, phi.findTerm(a));
+            assertEquals(x, phi.findTerm(b));
+        }
+    }
+
+    @Test(timeout = 10000) public void testFindRecursiveSharesGroundSubterms() throws OccursException {
+        IUnifier.Immutable phi = PersistentUnifier.Immutable.of();
+        final ITerm ground = B.newAppl(g, x, y);
+        phi = phi.unify(a, ground).get().unifier();
+        final ITerm term = B.newAppl(f, ground, a, b);
+        final ITerm instance = phi.findRecursive(term);
+        assertEquals(B.newAppl(f, ground, ground, b), instance);
+        assertTrue(ground == ((IApplTerm) instance).getArgs().get(0));
+        assertTrue(ground == ((IApplTerm) instance).getArgs().get(1));
+        assertTrue(ground == phi.findRecursive(ground));
+    }
+
+    @Test(timeout = 10000) public void testCachedGroundnessAndVars() throws OccursException {
+        IUnifier.Immutable phi = PersistentUnifier.Immutable.of();
+        phi = phi.unify(a, B.newAppl(f, b, c)).get().unifier();
+        phi = phi.unify(b, x).get().unifier();
+        for(int i = 0; i < 2; i++) { // second round uses cached results
+            assertFalse(phi.isGround(a));
+            assertTrue(phi.isGround(b));
+            assertEquals(Set.Immutable.of(c), phi.getVars(a));
+            assertEquals(Set.Immutable.of(), phi.getVars(b));
+        }
+        phi = phi.unify(c, y).get().unifier();
+        assertTrue(phi.isGround(a));
+        assertEquals(Set.Immutable.of(), phi.getVars(a));
+    }
+
+    @Test(timeout = 10000) public void testSerialization() throws Exception {
+        IUnifier.Immutable phi = PersistentUnifier.Immutable.of();
+        phi = phi.unify(a, b).get().unifier();
+        phi = phi.unify(b, B.newAppl(f, c, x)).get().unifier();
+        assertSerializes(phi, a, b, c);
+
+        // blobs cannot be written in the term format, so this uses default serialization
+        phi = phi.unify(d, B.newBlob(42)).get().unifier();
+        assertSerializes(phi, a, b, c, d);
+    }
+
+    private static void assertSerializes(IUnifier.Immutable unifier, ITermVar... vars) throws Exception {
+        final IUnifier.Immutable result = serialize(unifier);
+        for(ITermVar var : vars) {
+            assertEquals(unifier.findRecursive(var), result.findRecursive(var));
+        }
+        assertEquals(unifier.domainSet(), result.domainSet());
+    }
+
+    private static IUnifier.Immutable serialize(IUnifier.Immutable unifier) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(unifier);
+        }
+        try(final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (IUnifier.Immutable) in.readObject();
+        }
+    }
+
+}
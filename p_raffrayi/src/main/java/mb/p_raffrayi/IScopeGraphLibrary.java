@@ -21,4 +21,13 @@ public interface IScopeGraphLibrary<S, L, D> {
     Tuple2<? extends Set<S>, IScopeGraph.Immutable<S, L, D>> initialize(List<S> rootScopes,
             Function1<String, S> freshScope);
 
+    /**
+     * Whether the library scope graph is frozen and shared with all units after initialization. Units then read library
+     * scopes directly, and the library does not start workers to answer queries. If not shared, queries are sent to the
+     * library, which answers them using workers.
+     */
+    default boolean shareScopeGraph() {
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -33,6 +33,13 @@ public interface IActor<T> extends IActorRef<T> {
      */
     <U> IFuture<U> schedule(IFuture<U> future);
 
+    /**
+     * Schedule handling of the given future, like {@link #schedule(IFuture)}, for a future that is completed by a thread
+     * outside the actor system. Such a future counts as activity for deadlock detection until it completes. Futures
+     * completed by actors must use {@link #schedule(IFuture)}, or deadlocks between actors are not detected.
+     */
+    <U> IFuture<U> scheduleExternal(IFuture<U> future);
+
     /**
      * Schedule completion of the given completable as if it was sent as a message.
      */
@@ -1,11 +1,8 @@
 package mb.p_raffrayi.actors.impl;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,9 +31,16 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
     private static final ILogger logger = LoggerUtils.logger(Actor.class);
 
+    /**
+     * Bounds on the number of messages that are processed between preemption checks. The quota grows while batches are
+     * processed without preemption, and shrinks when the actor is preempted.
+     */
+    private static final int MIN_QUOTA = 16;
+    private static final int MAX_QUOTA = 1024;
+
     private final IActorContext context;
     private final String id;
-    private final TypeTag<T> type;
+    private final DispatchTable dispatchTable;
     private final IActorInternal<?> parent;
     private final Set<IActorInternal<?>> children;
 
@@ -45,7 +49,8 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
     private volatile ActorState state;
     private final AtomicInteger priority;
-    private final Deque<Message> messages;
+    private final Mailbox<Message> messages;
+    private int quota = MIN_QUOTA;
 
     private T impl;
     private @Nullable IActorMonitor monitor;
@@ -69,7 +74,7 @@ class Actor<T> implements IActorImpl<T>, Runnable {
     Actor(IActorContext context, IActorInternal<?> parent, String id, TypeTag<T> type) {
         this.context = context;
         this.id = id;
-        this.type = type;
+        this.dispatchTable = DispatchTable.of(type.type());
         this.parent = parent;
         this.children = new HashSet<>();
 
@@ -78,7 +83,7 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
         this.state = ActorState.INITIAL;
         this.priority = new AtomicInteger(0);
-        this.messages = new ConcurrentLinkedDeque<>();
+        this.messages = new Mailbox<>();
     }
 
     @Override public String id() {
@@ -101,22 +106,34 @@ class Actor<T> implements IActorImpl<T>, Runnable {
             while(true) {
                 stats.maxPendingMessages = Math.max(stats.maxPendingMessages, priority.get());
 
-                final Message message = messages.poll();
-                if(message != null) {
-
-                    stats.messages += 1;
-                    this.priority.decrementAndGet();
+                // drain a batch of messages, and update counters once per batch
+                int count = 0;
+                Message message;
+                while(count < quota && (message = messages.poll()) != null) {
+                    count += 1;
                     try {
                         message.dispatch();
                     } catch(Throwable ex) {
                         doStop(ex);
                     }
+                }
+
+                if(count > 0) {
+
+                    stats.messages += count;
+                    stats.batches += 1;
+                    this.priority.addAndGet(-count);
 
                     if(!messages.isEmpty() && context.scheduler().preempt(priority.get())) {
+                        stats.preempted += 1;
+                        quota = Math.max(MIN_QUOTA, quota / 2);
                         finalizeThread();
                         context.scheduler().schedule(this, priority.get(), scheduledTask);
                         return;
                     }
+                    if(count == quota) {
+                        quota = Math.min(MAX_QUOTA, quota * 2);
+                    }
 
                 } else {
 
@@ -139,8 +156,10 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                     if(!running.compareAndSet(true, false)) {
                         throw new IllegalStateException("Unexpected state, should be running.");
                     }
+                    context.quiescence().suspended();
 
                     if(!messages.isEmpty() && running.compareAndSet(false, true)) {
+                        context.quiescence().activated();
                         initThread();
                     } else {
                         return;
@@ -170,10 +189,13 @@ class Actor<T> implements IActorImpl<T>, Runnable {
     }
 
     private void scheduleIfNotRunning() {
-        if(running.compareAndSet(false, true)) {
+        // Signals are coalesced: while the actor is running its message loop, there is no scheduled task, and
+        // producers only pay for two reads instead of atomic updates.
+        if(!running.get() && running.compareAndSet(false, true)) {
             logger.debug("resume {}", this);
+            context.quiescence().activated();
             context.scheduler().schedule(this, priority.get(), scheduledTask);
-        } else {
+        } else if(scheduledTask.get() != null) {
             final Runnable oldTask = scheduledTask.getAndSet(null);
             if(oldTask != null) {
                 // only the case when running == true, but the thread is not
@@ -231,49 +253,33 @@ class Actor<T> implements IActorImpl<T>, Runnable {
     }
 
     @SuppressWarnings({ "unchecked" }) private T newAsync(Function0<IActorInternal<?>> senderGetter) {
-        return (T) Proxy.newProxyInstance(this.type.type().getClassLoader(), new Class[] { this.type.type() },
-                (proxy, method, args) -> {
-                    // WARNING This runs on the sender's thread!
-
-                    if(method.getDeclaringClass().equals(Object.class)) {
-                        return method.invoke(this, args);
-                    }
-
-                    if(method.getDeclaringClass().equals(IActorMonitor.class)) {
-                        logger.error("Illegal async actor monitor method called: {}", method);
-                        throw new IllegalStateException("Illegal async actor monitor method called: " + method);
-                    }
-
+        return (T) dispatchTable.newProxy((proxy, method, args) -> {
+            // WARNING This runs on the sender's thread!
+
+            final DispatchTable.Entry entry = dispatchTable.get(method);
+            switch(entry.kind) {
+                case OBJECT:
+                    return entry.invoke(this, args);
+                case MONITOR:
+                    logger.error("Illegal async actor monitor method called: {}", method);
+                    throw new IllegalStateException("Illegal async actor monitor method called: " + method);
+                case VOID: {
                     final IActorInternal<?> sender = senderGetter.apply();
-
-                    final Class<?> returnType = method.getReturnType();
-                    final IFuture<?> returnValue;
-
-                    if(Void.TYPE.isAssignableFrom(returnType)) {
-                        final Method method1 = method;
-                        final Object[] args1 = args;
-                        put(() -> {
-                            doInvoke(sender, method1, args1, (Action2<Object, Throwable>) null);
-                        });
-                        returnValue = null;
-                    } else if(IFuture.class.isAssignableFrom(returnType)) {
-                        final ICompletableFuture<?> result = new CompletableFuture<>();
-                        final Method method1 = method;
-                        final Object[] args1 = args;
-                        final Action2<Object, Throwable> _return =
-                                (r, ex) -> sender._return(sender, method, result, r, ex);
-                        ;
-                        put(() -> {
-                            doInvoke((IActorInternal<?>) sender, method1, args1, _return);
-                        });
-                        returnValue = result;
-                    } else {
-                        logger.error("Unsupported method called: {}", method);
-                        throw new IllegalStateException("Unsupported method called: " + method);
-                    }
-
-                    return returnValue;
-                });
+                    put(() -> doInvoke(sender, entry, args, null));
+                    return null;
+                }
+                case FUTURE: {
+                    final IActorInternal<?> sender = senderGetter.apply();
+                    final ICompletableFuture<?> result = new CompletableFuture<>();
+                    final Action2<Object, Throwable> _return = (r, ex) -> sender._return(sender, method, result, r, ex);
+                    put(() -> doInvoke(sender, entry, args, _return));
+                    return result;
+                }
+                default:
+                    logger.error("Unsupported method called: {}", method);
+                    throw new IllegalStateException("Unsupported method called: " + method);
+            }
+        });
     }
 
     @Override public void _return(IActorInternal<?> sender, Method method,
@@ -327,20 +333,19 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         }
     }
 
-    private void doInvoke(final IActorInternal<?> sender, final Method method, final Object[] args,
+    private void doInvoke(final IActorInternal<?> sender, final DispatchTable.Entry entry, final Object[] args,
             Action2<Object, Throwable> result) throws ActorException {
         assertOnActorThread();
 
         updateStateOnReceive(sender);
 
-        logger.debug("{} invoke {} from {}", this, method.getName(), sender);
+        logger.debug("{} invoke {} from {}", this, entry, sender);
 
         final Object returnValue;
         try {
-            method.setAccessible(true);
             try {
                 Actor.sender.set(sender);
-                returnValue = method.invoke(impl, args);
+                returnValue = entry.invoke(impl, args);
             } finally {
                 Actor.sender.remove();
             }
@@ -515,6 +520,20 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         return scheduled;
     }
 
+    @Override public <U> IFuture<U> scheduleExternal(IFuture<U> future) {
+        final ICompletableFuture<U> scheduled = new CompletableFuture<>();
+        // no actor is activated when the future completes, so it counts as active until this actor has the result
+        context.quiescence().pending();
+        future.whenComplete((r, ex) -> {
+            try {
+                put(() -> scheduled.complete(r, ex));
+            } finally {
+                context.quiescence().completed();
+            }
+        });
+        return scheduled;
+    }
+
     @Override public <U> void complete(ICompletable<U> completable, U result, Throwable ex) {
         put(() -> completable.complete(result, ex));
     }
@@ -572,24 +591,25 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         private int preempted = 0;
         private int rescheduled = 0;
         private int messages = 0;
+        private int batches = 0;
         private int maxPendingMessages = 0;
         private int maxPendingMessagesOnActivate = 0;
 
         @Override public Iterable<String> csvHeaders() {
-            return ImmutableList.of("suspended", "preempted", "rescheduled", "messages", "maxPendingMessages",
-                    "maxPendingMessagesOnActivate");
+            return ImmutableList.of("suspended", "preempted", "rescheduled", "messages", "batches",
+                    "maxPendingMessages", "maxPendingMessagesOnActivate");
         }
 
         @Override public Iterable<String> csvRow() {
             return ImmutableList.of(Integer.toString(suspended), Integer.toString(preempted),
-                    Integer.toString(rescheduled), Integer.toString(messages), Integer.toString(maxPendingMessages),
-                    Integer.toString(maxPendingMessagesOnActivate));
+                    Integer.toString(rescheduled), Integer.toString(messages), Integer.toString(batches),
+                    Integer.toString(maxPendingMessages), Integer.toString(maxPendingMessagesOnActivate));
         }
 
         @Override public String toString() {
-            return "ActorStats{messages=" + messages + ",maxPendingMessages=" + maxPendingMessages
-                    + ",maxPendingMessagesOnActivate=" + maxPendingMessagesOnActivate + ",suspended=" + suspended
-                    + ",preempted=" + preempted + ",rescheduled=" + rescheduled + "}";
+            return "ActorStats{messages=" + messages + ",batches=" + batches + ",maxPendingMessages="
+                    + maxPendingMessages + ",maxPendingMessagesOnActivate=" + maxPendingMessagesOnActivate
+                    + ",suspended=" + suspended + ",preempted=" + preempted + ",rescheduled=" + rescheduled + "}";
         }
 
     }
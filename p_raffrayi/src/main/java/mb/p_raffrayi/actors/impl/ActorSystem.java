@@ -30,6 +30,7 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
     private final Object lock = new Object();
     private final Set<IActorInternal<?>> children;
     private final IActorScheduler scheduler;
+    private final QuiescenceDetector quiescence;
     private volatile ActorSystemState state;
     private final IActorContext context;
 
@@ -47,6 +48,7 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
     public ActorSystem(IActorScheduler scheduler) {
         this.children = Sets.newHashSet();
         this.scheduler = scheduler;
+        this.quiescence = new QuiescenceDetector();
         this.state = ActorSystemState.RUNNING;
         this.context = new ActorContext();
         this.done = new CompletableFuture<>();
@@ -109,6 +111,13 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
         return done;
     }
 
+    /**
+     * Quiescence detector, which signals when all actors are suspended.
+     */
+    public QuiescenceDetector quiescence() {
+        return quiescence;
+    }
+
     @Override public boolean running() {
         synchronized(lock) {
             return state.equals(ActorSystemState.RUNNING);
@@ -213,6 +222,10 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
             return scheduler;
         }
 
+        @Override public QuiescenceDetector quiescence() {
+            return quiescence;
+        }
+
     }
 
     @Override public String toString() {
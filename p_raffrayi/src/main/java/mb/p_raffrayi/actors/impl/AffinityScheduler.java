@@ -0,0 +1,294 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+
+import mb.p_raffrayi.actors.IActorStats;
+
+/**
+ * Scheduler that keeps actors on the worker where they last ran.
+ *
+ * Every actor has a home worker, which is the worker that last executed it. Activations of an actor are queued at its
+ * home worker, so that its state stays in that worker's caches. Actors that are scheduled for the first time from a
+ * worker, typically because they were started or sent a message by an actor running there, get that worker as their
+ * home. Idle workers only steal from workers that are busy running another actor while tasks are waiting in their
+ * queue, so that work moves only if the load is unbalanced. The number of steals and of actors migrating to a
+ * different worker is available from {@link #stats()}.
+ */
+public class AffinityScheduler implements IActorScheduler {
+
+    private static final ILogger logger = LoggerUtils.logger(AffinityScheduler.class);
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final int parallelism;
+    private final Worker[] workers;
+    private final Map<Runnable, Worker> homes;
+    private final AtomicInteger nextWorker;
+    private final ThreadLocal<Worker> currentWorker;
+
+    private volatile boolean shutdown;
+    private volatile boolean shutdownNow;
+
+    public AffinityScheduler(int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        this.homes = new MapMaker().weakKeys().concurrencyLevel(parallelism).makeMap();
+        this.nextWorker = new AtomicInteger();
+        this.currentWorker = new ThreadLocal<>();
+        this.workers = new Worker[parallelism];
+        for(int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for(Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    @Override public int parallelism() {
+        return parallelism;
+    }
+
+    @Override public void schedule(Runnable runnable, @SuppressWarnings("unused") int priority,
+            AtomicReference<Runnable> taskRef) {
+        if(shutdown) {
+            throw new RejectedExecutionException("Scheduler is shut down.");
+        }
+        final Task task = new Task(runnable);
+        if(!taskRef.compareAndSet(null, task)) {
+            logger.error("Actor {} already scheduled", runnable);
+            throw new IllegalStateException("Actor " + runnable + " already scheduled.");
+        }
+        final Worker home = home(runnable);
+        home.push(task);
+        if(home.busy) {
+            wakeIdleWorker(home);
+        }
+    }
+
+    @SuppressWarnings("unused") @Override public void reschedule(Runnable oldTask, int newPriority,
+            AtomicReference<Runnable> taskRef) {
+    }
+
+    @SuppressWarnings("unused") @Override public boolean preempt(int priority) {
+        return false;
+    }
+
+    @Override public boolean isActive() {
+        for(Worker worker : workers) {
+            if(worker.busy || !worker.queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override public void shutdown() {
+        shutdown = true;
+        for(Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override public void shutdownNow() {
+        shutdown = true;
+        shutdownNow = true;
+        for(Worker worker : workers) {
+            worker.queue.clear();
+            worker.thread.interrupt();
+        }
+    }
+
+    /**
+     * Steal and migration counts per worker.
+     */
+    public IActorStats stats() {
+        return new Stats();
+    }
+
+    private Worker home(Runnable runnable) {
+        Worker home;
+        if((home = homes.get(runnable)) != null) {
+            return home;
+        }
+        if((home = currentWorker.get()) == null) {
+            home = workers[Math.floorMod(nextWorker.getAndIncrement(), parallelism)];
+        }
+        final Worker previous = homes.putIfAbsent(runnable, home);
+        return previous != null ? previous : home;
+    }
+
+    private void wakeIdleWorker(Worker busy) {
+        for(int i = 1; i < parallelism; i++) {
+            final Worker worker = workers[(busy.index + i) % parallelism];
+            if(worker.parked) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    private boolean queuesEmpty() {
+        for(Worker worker : workers) {
+            if(!worker.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class Worker implements Runnable {
+
+        private final int index;
+        private final Thread thread;
+        private final ConcurrentLinkedDeque<Task> queue;
+
+        private volatile boolean busy = false;
+        private volatile boolean parked = false;
+
+        // only written by the worker thread
+        private volatile long executed = 0;
+        private volatile long steals = 0;
+        private volatile long migrations = 0;
+
+        Worker(int index) {
+            this.index = index;
+            this.queue = new ConcurrentLinkedDeque<>();
+            this.thread = new Thread(this, "PRaffrayiWorker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void push(Task task) {
+            queue.addLast(task);
+            if(parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override public void run() {
+            currentWorker.set(this);
+            while(!shutdownNow) {
+                Task task;
+                if((task = queue.pollFirst()) != null || (task = steal()) != null) {
+                    execute(task);
+                    continue;
+                }
+                if(shutdown && queuesEmpty()) {
+                    return;
+                }
+                parked = true;
+                if(queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        }
+
+        private @Nullable Task steal() {
+            for(int i = 1; i < parallelism; i++) {
+                final Worker victim = workers[(index + i) % parallelism];
+                // a victim that is not busy will run its own tasks soon
+                if(!victim.busy || victim.queue.isEmpty()) {
+                    continue;
+                }
+                final Task task;
+                if((task = victim.queue.pollFirst()) != null) {
+                    steals++;
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private void execute(Task task) {
+            busy = true;
+            try {
+                final Worker previous = homes.put(task.runnable, this);
+                if(previous != null && previous != this) {
+                    migrations++;
+                }
+                executed++;
+                task.run();
+            } catch(Throwable ex) {
+                logger.error("Task {} failed on worker {}.", ex, task.runnable, index);
+            } finally {
+                busy = false;
+            }
+        }
+
+        @Override public String toString() {
+            return thread.getName();
+        }
+
+    }
+
+    private class Task implements Runnable {
+
+        private final Runnable runnable;
+        private final AtomicBoolean active;
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+            this.active = new AtomicBoolean(true);
+        }
+
+        @Override public void run() {
+            if(active.compareAndSet(true, false)) {
+                runnable.run();
+            }
+        }
+
+    }
+
+    private class Stats implements IActorStats {
+
+        @Override public Iterable<String> csvHeaders() {
+            final List<String> headers = new ArrayList<>();
+            for(Worker worker : workers) {
+                headers.add("worker" + worker.index + ".executed");
+                headers.add("worker" + worker.index + ".steals");
+                headers.add("worker" + worker.index + ".migrations");
+            }
+            return ImmutableList.copyOf(headers);
+        }
+
+        @Override public Iterable<String> csvRow() {
+            final List<String> row = new ArrayList<>();
+            for(Worker worker : workers) {
+                row.add(Long.toString(worker.executed));
+                row.add(Long.toString(worker.steals));
+                row.add(Long.toString(worker.migrations));
+            }
+            return ImmutableList.copyOf(row);
+        }
+
+        @Override public String toString() {
+            final StringBuilder sb = new StringBuilder("SchedulerStats{");
+            for(Worker worker : workers) {
+                sb.append(worker.index == 0 ? "" : ",");
+                sb.append(worker).append("={executed=").append(worker.executed).append(",steals=")
+                        .append(worker.steals).append(",migrations=").append(worker.migrations).append("}");
+            }
+            return sb.append("}").toString();
+        }
+
+    }
+
+}
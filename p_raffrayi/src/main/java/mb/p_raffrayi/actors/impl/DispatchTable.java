@@ -0,0 +1,170 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.future.IFuture;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Maps;
+
+import mb.p_raffrayi.actors.IActorMonitor;
+
+/**
+ * Dispatch table for an actor interface, computed once per interface and shared by all actors of that type.
+ *
+ * The table classifies every method of the interface, and holds a method handle to invoke it on the actor
+ * implementation, so that messages do not have to inspect or reflectively invoke methods. Async interfaces are
+ * instances of the proxy class of the interface, which are created using a cached constructor handle.
+ */
+final class DispatchTable {
+
+    private static final ILogger logger = LoggerUtils.logger(DispatchTable.class);
+
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, InvocationHandler.class);
+
+    private static final ClassValue<DispatchTable> tables = new ClassValue<DispatchTable>() {
+
+        @Override protected DispatchTable computeValue(Class<?> type) {
+            return new DispatchTable(type);
+        }
+
+    };
+
+    static DispatchTable of(Class<?> type) {
+        return tables.get(type);
+    }
+
+    enum Kind {
+        OBJECT, MONITOR, VOID, FUTURE, UNSUPPORTED
+    }
+
+    private final Class<?> type;
+    private final @Nullable MethodHandle proxyConstructor;
+    private final Map<Method, Entry> entries;
+
+    private DispatchTable(Class<?> type) {
+        this.type = type;
+        this.proxyConstructor = proxyConstructor(type);
+        final Method[] methods = type.getMethods();
+        this.entries = Maps.newHashMapWithExpectedSize(methods.length + 3);
+        for(Method method : methods) {
+            entries.put(method, new Entry(method));
+        }
+        for(String name : new String[] { "equals", "hashCode", "toString" }) {
+            for(Method method : Object.class.getMethods()) {
+                if(method.getName().equals(name)) {
+                    entries.put(method, new Entry(method));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the entry for a method of the interface.
+     */
+    Entry get(Method method) {
+        Entry entry;
+        if((entry = entries.get(method)) == null) {
+            // should not happen, but be robust against methods that are not part of the interface
+            entry = new Entry(method);
+        }
+        return entry;
+    }
+
+    /**
+     * Create an instance of the interface that forwards calls to the given handler.
+     */
+    Object newProxy(InvocationHandler handler) {
+        if(proxyConstructor != null) {
+            try {
+                return (Object) proxyConstructor.invokeExact(handler);
+            } catch(Throwable ex) {
+                throw new IllegalStateException("Creating proxy failed.", ex);
+            }
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, handler);
+    }
+
+    private static @Nullable MethodHandle proxyConstructor(Class<?> type) {
+        try {
+            final Class<?> proxyClass = Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type },
+                    (proxy, method, args) -> null).getClass();
+            final Constructor<?> constructor = proxyClass.getConstructor(InvocationHandler.class);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch(ReflectiveOperationException | RuntimeException ex) {
+            logger.debug("Cannot access proxy constructor for {}, falling back to reflection.", ex, type);
+            return null;
+        }
+    }
+
+    @Override public String toString() {
+        return "DispatchTable[" + type.getName() + "]";
+    }
+
+    static final class Entry {
+
+        final Method method;
+        final Kind kind;
+        private final @Nullable MethodHandle handle;
+
+        private Entry(Method method) {
+            this.method = method;
+            this.kind = kind(method);
+            this.handle = handle(method);
+        }
+
+        /**
+         * Invoke the method on the given target. The arguments may be null if the method has no parameters.
+         */
+        Object invoke(Object target, @Nullable Object[] args) throws Throwable {
+            if(handle != null) {
+                return (Object) handle.invokeExact(target, args);
+            }
+            method.setAccessible(true);
+            return method.invoke(target, args);
+        }
+
+        private static Kind kind(Method method) {
+            if(method.getDeclaringClass().equals(Object.class)) {
+                return Kind.OBJECT;
+            } else if(method.getDeclaringClass().equals(IActorMonitor.class)) {
+                return Kind.MONITOR;
+            } else if(Void.TYPE.isAssignableFrom(method.getReturnType())) {
+                return Kind.VOID;
+            } else if(IFuture.class.isAssignableFrom(method.getReturnType())) {
+                return Kind.FUTURE;
+            } else {
+                return Kind.UNSUPPORTED;
+            }
+        }
+
+        private static @Nullable MethodHandle handle(Method method) {
+            try {
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount()).asType(INVOKE_TYPE);
+            } catch(ReflectiveOperationException | RuntimeException ex) {
+                logger.debug("Cannot create handle for {}, falling back to reflection.", ex, method);
+                return null;
+            }
+        }
+
+        @Override public String toString() {
+            return method.getName();
+        }
+
+    }
+
+}
@@ -11,4 +11,6 @@ interface IActorContext {
 
     IActorScheduler scheduler();
 
+    QuiescenceDetector quiescence();
+
 }
\ No newline at end of file
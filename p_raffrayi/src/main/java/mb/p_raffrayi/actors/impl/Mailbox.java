@@ -0,0 +1,66 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * Unbounded multi-producer, single-consumer queue of messages.
+ *
+ * Adding a message costs a single atomic exchange, regardless of the number of producers. Only the consuming actor may
+ * call {@link #poll()} and {@link #isEmpty()}. A message is visible to the consumer once {@link #add(Object)} returns.
+ */
+final class Mailbox<M> {
+
+    private final AtomicReference<Node<M>> tail;
+    private Node<M> head;
+
+    Mailbox() {
+        final Node<M> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * Add a message. Safe to call from any thread.
+     */
+    void add(M message) {
+        final Node<M> node = new Node<>(message);
+        final Node<M> previous = tail.getAndSet(node);
+        previous.next = node;
+    }
+
+    /**
+     * Remove the oldest message, or return null if there are no messages. Only called by the consumer.
+     */
+    @Nullable M poll() {
+        final Node<M> next = head.next;
+        if(next == null) {
+            return null;
+        }
+        head = next;
+        final M message = next.message;
+        next.message = null;
+        return message;
+    }
+
+    /**
+     * Test whether there are no messages. Only called by the consumer. Messages that are being added concurrently may
+     * not be visible yet.
+     */
+    boolean isEmpty() {
+        return head.next == null;
+    }
+
+    private static final class Node<M> {
+
+        private @Nullable M message;
+        private volatile @Nullable Node<M> next;
+
+        private Node(@Nullable M message) {
+            this.message = message;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects when no actor in an actor system is active.
+ *
+ * An actor is active from the moment it is scheduled because a message arrived, until it finds its mailbox empty and
+ * suspends. Actors count themselves active before a message they sent is processed, so the count only drops to zero
+ * when all actors are suspended. Futures that actors wait for, and that were scheduled as completed by threads outside
+ * the actor system, count as active until they complete and their result is sent to the actor. Futures completed by
+ * actors do not count, because the actor completing them is active. Other threads outside the actor system may still
+ * send a message later. To exclude that, quiescence is only reported if no actor was activated during a short grace
+ * period.
+ */
+public class QuiescenceDetector {
+
+    private final Object lock = new Object();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong activations = new AtomicLong();
+
+    void activated() {
+        activations.incrementAndGet();
+        active.incrementAndGet();
+    }
+
+    void suspended() {
+        if(active.decrementAndGet() == 0) {
+            synchronized(lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    void pending() {
+        active.incrementAndGet();
+    }
+
+    void completed() {
+        suspended();
+    }
+
+    /**
+     * Test whether no actor is active at this moment.
+     */
+    public boolean isQuiescent() {
+        return active.get() == 0;
+    }
+
+    /**
+     * Wait until all actors are suspended, and remain suspended for the given grace period.
+     *
+     * @return Whether the system is quiescent, or false if the timeout passed first.
+     */
+    public boolean awaitQuiescence(long timeout, long grace, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized(lock) {
+            while(active.get() != 0) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if(remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+        }
+        final long epoch = activations.get();
+        if(active.get() != 0) {
+            return false;
+        }
+        unit.sleep(grace);
+        return active.get() == 0 && activations.get() == epoch;
+    }
+
+}
@@ -0,0 +1,140 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Scheduler that runs every actor activation on a fresh virtual thread.
+ *
+ * Virtual threads are only available on recent Java runtimes, and are accessed reflectively so that this class can be
+ * compiled and loaded on older runtimes. If virtual threads are not supported, the scheduler falls back to a
+ * work-stealing pool of platform threads, as used by {@link WorkStealingScheduler}.
+ */
+public class VirtualThreadScheduler implements IActorScheduler {
+
+    private static final ILogger logger = LoggerUtils.logger(VirtualThreadScheduler.class);
+
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final AtomicInteger pending;
+
+    public VirtualThreadScheduler(int parallelism) {
+        this(parallelism, true);
+    }
+
+    /**
+     * @param tryVirtual
+     *            Whether to use virtual threads if supported. If false, the fallback pool is always used.
+     */
+    VirtualThreadScheduler(int parallelism, boolean tryVirtual) {
+        this.parallelism = parallelism;
+        final ExecutorService virtualExecutor = tryVirtual ? newVirtualThreadExecutor() : null;
+        if(virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtual = true;
+        } else {
+            this.executor = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            this.virtual = false;
+        }
+        this.pending = new AtomicInteger();
+    }
+
+    /**
+     * Test whether activations run on virtual threads, or on the fallback pool.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override public int parallelism() {
+        return parallelism;
+    }
+
+    @Override public void schedule(Runnable runnable, @SuppressWarnings("unused") int priority,
+            AtomicReference<Runnable> taskRef) {
+        final Task task = new Task(runnable);
+        if(!taskRef.compareAndSet(null, task)) {
+            logger.error("Actor {} already scheduled", runnable);
+            throw new IllegalStateException("Actor " + runnable + " already scheduled.");
+        }
+        pending.incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch(RuntimeException ex) {
+            pending.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    @SuppressWarnings("unused") @Override public void reschedule(Runnable oldTask, int newPriority,
+            AtomicReference<Runnable> taskRef) {
+    }
+
+    @SuppressWarnings("unused") @Override public boolean preempt(int priority) {
+        return false;
+    }
+
+    @Override public boolean isActive() {
+        return pending.get() != 0;
+    }
+
+    @Override public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private static @Nullable ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Thread.ofVirtual().name("PRaffrayiVirtual-", 0).factory()
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "PRaffrayiVirtual-", 0L);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            // Executors.newThreadPerTaskExecutor(factory)
+            final Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch(ReflectiveOperationException | RuntimeException ex) {
+            // not available, or a preview feature that is not enabled
+            logger.debug("Virtual threads not supported, falling back to platform threads.", ex);
+            return null;
+        }
+    }
+
+    private class Task implements Runnable {
+
+        private final Runnable runnable;
+        private final AtomicBoolean active;
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+            this.active = new AtomicBoolean(true);
+        }
+
+        @Override public void run() {
+            try {
+                if(active.compareAndSet(true, false)) {
+                    runnable.run();
+                }
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+
+    }
+
+}
@@ -3,8 +3,10 @@ package mb.p_raffrayi.impl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -63,6 +65,7 @@ import mb.scopegraph.oopsla20.path.IResolutionPath;
 import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.oopsla20.reference.Env;
 import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
 import mb.scopegraph.oopsla20.terms.newPath.ScopePath;
 
 public abstract class AbstractUnit<S, L, D, R>
@@ -88,6 +91,7 @@ public abstract class AbstractUnit<S, L, D, R>
     protected final Set.Immutable<L> edgeLabels;
     protected final Set.Transient<S> scopes;
     private final IRelation3.Transient<S, EdgeOrData<L>, Delay> delays;
+    private final Map<QueryKey<S, L, D>, CachedQuery<S, L, D>> queryCache;
 
     private final MultiSet.Transient<String> scopeNameCounters;
 
@@ -112,6 +116,7 @@ public abstract class AbstractUnit<S, L, D, R>
         this.edgeLabels = CapsuleUtil.toSet(edgeLabels);
         this.scopes = CapsuleUtil.transientSet();
         this.delays = HashTrieRelation3.Transient.of();
+        this.queryCache = new HashMap<>();
 
         this.scopeNameCounters = MultiSet.Transient.of();
 
@@ -338,6 +343,47 @@ public abstract class AbstractUnit<S, L, D, R>
             LabelWf<L> labelWF, LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv,
             DataWf<S, L, D> dataWfInternal, DataLeq<S, L, D> dataEquivInternal) {
         logger.debug("got _query from {}", sender);
+        if(sender.equals(self)) {
+            return resolve(sender, path, labelWF, labelOrder, dataWF, dataEquiv, dataWfInternal, dataEquivInternal,
+                    null);
+        }
+
+        // Queries from other units only use the external data predicates, which do not depend on the sender, so
+        // results can be shared between equal queries, even if they arrive over different paths.
+        final QueryKey<S, L, D> key = new QueryKey<>(path.getTarget(), labelWF, labelOrder, dataWF, dataEquiv);
+        final CachedQuery<S, L, D> cached;
+        if((cached = queryCache.get(key)) != null) {
+            if(cached.result.isDone() && !cached.canAnswer(path)) {
+                return resolve(sender, path, labelWF, labelOrder, dataWF, dataEquiv, dataWfInternal,
+                        dataEquivInternal, null);
+            }
+            return cached.result.compose((env, ex) -> {
+                if(ex == null && cached.canAnswer(path)) {
+                    logger.debug("cached answer for {}", sender);
+                    stats.cachedQueries += 1;
+                    return CompletableFuture.completedFuture(cached.rebase(env, path));
+                }
+                return resolve(sender, path, labelWF, labelOrder, dataWF, dataEquiv, dataWfInternal,
+                        dataEquivInternal, null);
+            });
+        }
+
+        final CachedQuery<S, L, D> query = new CachedQuery<>(path);
+        queryCache.put(key, query);
+        query.result = resolve(sender, path, labelWF, labelOrder, dataWF, dataEquiv, dataWfInternal,
+                dataEquivInternal, query);
+        query.result.whenComplete((env, ex) -> {
+            if(ex != null) {
+                queryCache.remove(key, query);
+            }
+        });
+        return query.result;
+    }
+
+    private IFuture<Env<S, L, D>> resolve(IActorRef<? extends IUnit<S, L, D, ?>> sender, ScopePath<S, L> path,
+            LabelWf<L> labelWF, LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv,
+            DataWf<S, L, D> dataWfInternal, DataLeq<S, L, D> dataEquivInternal,
+            @Nullable CachedQuery<S, L, D> cached) {
         final boolean external = !sender.equals(self);
 
         final NameResolution<S, L, D> nr = new NameResolution<S, L, D>(edgeLabels, labelOrder) {
@@ -348,9 +394,16 @@ public abstract class AbstractUnit<S, L, D, R>
                 if(canAnswer(scope)) {
                     logger.debug("local env {}", scope);
                     return Optional.empty();
+                } else if(context.library(scope) != null) {
+                    // closed library scopes are read directly, instead of querying the library unit
+                    logger.debug("library env {}", scope);
+                    return Optional.empty();
                 } else {
                     final IActorRef<? extends IUnit<S, L, D, ?>> owner = context.owner(scope);
                     logger.debug("remote env {} at {}", scope, owner);
+                    if(cached != null) {
+                        cached.local = false;
+                    }
                     // this code mirrors query(...)
                     final IFuture<Env<S, L, D>> result =
                             self.async(owner)._query(path, re, dataWF, labelOrder, dataEquiv);
@@ -370,6 +423,13 @@ public abstract class AbstractUnit<S, L, D, R>
             }
 
             @Override protected IFuture<Optional<D>> getDatum(S scope) {
+                if(cached != null) {
+                    cached.visited.add(scope);
+                }
+                final LibraryScopeGraph<S, L, D> library;
+                if((library = context.library(scope)) != null) {
+                    return CompletableFuture.completedFuture(library.getData(scope));
+                }
                 return isComplete(scope, EdgeOrData.data(), sender).thenCompose(__ -> {
                     final Optional<D> datum;
                     if(!(datum = scopeGraph.get().getData(scope)).isPresent()) {
@@ -403,19 +463,44 @@ public abstract class AbstractUnit<S, L, D, R>
             }
 
             @Override protected IFuture<Iterable<S>> getEdges(S scope, L label) {
+                if(cached != null) {
+                    cached.visited.add(scope);
+                }
+                final LibraryScopeGraph<S, L, D> library;
+                if((library = context.library(scope)) != null) {
+                    final Iterable<S> edges = library.getEdges(scope, label);
+                    return CompletableFuture.completedFuture(visitTargets(edges));
+                }
                 return isComplete(scope, EdgeOrData.edge(label), sender).thenApply(__ -> {
-                    return scopeGraph.get().getEdges(scope, label);
+                    return visitTargets(scopeGraph.get().getEdges(scope, label));
                 });
             }
 
+            private Iterable<S> visitTargets(Iterable<S> targets) {
+                // targets already on the path are pruned by the resolution, but the result still depends on them
+                if(cached != null) {
+                    for(S target : targets) {
+                        cached.visited.add(target);
+                    }
+                }
+                return targets;
+            }
+
+            @Override protected IFuture<Boolean> dataWf(S scope, D d, ICancel cancel) throws InterruptedException {
+                if(!external && dataWfInternal != null && context.library(scope) != null) {
+                    // library data is not from this unit, so the internal predicate does not apply
+                    return checkDataWf(dataWF, d, cancel);
+                }
+                return dataWf(d, cancel);
+            }
+
             @Override protected IFuture<Boolean> dataWf(D d, ICancel cancel) throws InterruptedException {
+                return checkDataWf(external || dataWfInternal == null ? dataWF : dataWfInternal, d, cancel);
+            }
+
+            private IFuture<Boolean> checkDataWf(DataWf<S, L, D> wf, D d, ICancel cancel) throws InterruptedException {
                 stats.dataWfChecks += 1;
-                final IFuture<Boolean> result;
-                if(external || dataWfInternal == null) {
-                    result = dataWF.wf(d, queryContext, cancel);
-                } else {
-                    result = dataWfInternal.wf(d, queryContext, cancel);
-                }
+                final IFuture<Boolean> result = wf.wf(d, queryContext, cancel);
                 if(result.isDone()) {
                     return result;
                 } else {
@@ -431,14 +516,25 @@ public abstract class AbstractUnit<S, L, D, R>
                 }
             }
 
+            @Override protected IFuture<Boolean> dataLeq(S s1, D d1, S s2, D d2, ICancel cancel)
+                    throws InterruptedException {
+                if(!external && dataEquivInternal != null
+                        && (context.library(s1) != null || context.library(s2) != null)) {
+                    // library data is not from this unit, so the internal predicate does not apply
+                    return checkDataLeq(dataEquiv, d1, d2, cancel);
+                }
+                return dataLeq(d1, d2, cancel);
+            }
+
             @Override protected IFuture<Boolean> dataLeq(D d1, D d2, ICancel cancel) throws InterruptedException {
+                return checkDataLeq(external || dataEquivInternal == null ? dataEquiv : dataEquivInternal, d1, d2,
+                        cancel);
+            }
+
+            private IFuture<Boolean> checkDataLeq(DataLeq<S, L, D> leq, D d1, D d2, ICancel cancel)
+                    throws InterruptedException {
                 stats.dataLeqChecks += 1;
-                final IFuture<Boolean> result;
-                if(external || dataEquivInternal == null) {
-                    result = dataEquiv.leq(d1, d2, queryContext, cancel);
-                } else {
-                    result = dataEquivInternal.leq(d1, d2, queryContext, cancel);
-                }
+                final IFuture<Boolean> result = leq.leq(d1, d2, queryContext, cancel);
                 if(result.isDone()) {
                     return result;
                 } else {
@@ -647,6 +743,99 @@ public abstract class AbstractUnit<S, L, D, R>
 
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Query cache
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static class QueryKey<S, L, D> {
+
+        private final S target;
+        private final LabelWf<L> labelWF;
+        private final LabelOrder<L> labelOrder;
+        private final DataWf<S, L, D> dataWF;
+        private final DataLeq<S, L, D> dataEquiv;
+
+        QueryKey(S target, LabelWf<L> labelWF, LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF,
+                DataLeq<S, L, D> dataEquiv) {
+            this.target = target;
+            this.labelWF = labelWF;
+            this.labelOrder = labelOrder;
+            this.dataWF = dataWF;
+            this.dataEquiv = dataEquiv;
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(target, labelWF, labelOrder, dataWF, dataEquiv);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            QueryKey<?, ?, ?> other = (QueryKey<?, ?, ?>) obj;
+            return Objects.equals(target, other.target) && Objects.equals(labelWF, other.labelWF)
+                    && Objects.equals(labelOrder, other.labelOrder) && Objects.equals(dataWF, other.dataWF)
+                    && Objects.equals(dataEquiv, other.dataEquiv);
+        }
+
+    }
+
+    /**
+     * A query resolved by this unit, shared with later equal queries.
+     *
+     * The result is only complete after all edges and data it depends on are closed, so it remains valid. The result
+     * depends on the path of the query only through cycle detection. If the resolution stayed in this unit, the scopes
+     * it visited are known, and the result can be shared with any query whose path does not contain these scopes.
+     * Otherwise, it is only shared with queries over the same path.
+     */
+    private static class CachedQuery<S, L, D> {
+
+        private final ScopePath<S, L> path;
+        private final java.util.Set<S> visited = new HashSet<>();
+        private boolean local = true;
+        private IFuture<Env<S, L, D>> result;
+
+        CachedQuery(ScopePath<S, L> path) {
+            this.path = path;
+        }
+
+        boolean canAnswer(ScopePath<S, L> path) {
+            if(this.path.equals(path)) {
+                return true;
+            }
+            if(!local) {
+                return false;
+            }
+            return !visitsPrefix(this.path) && !visitsPrefix(path);
+        }
+
+        private boolean visitsPrefix(ScopePath<S, L> path) {
+            final S target = path.getTarget();
+            for(S scope : path.scopeSet()) {
+                if(!scope.equals(target) && visited.contains(scope)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Env<S, L, D> rebase(Env<S, L, D> env, ScopePath<S, L> path) {
+            if(this.path.equals(path)) {
+                return env;
+            }
+            final Env.Builder<S, L, D> rebased = Env.builder();
+            for(ResolutionPath<S, L, D> resPath : env) {
+                resPath.getPath().rebase(this.path.size(), path)
+                        .ifPresent(scopePath -> rebased.add(scopePath.resolve(resPath.getDatum())));
+            }
+            return rebased.build();
+        }
+
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Deadlock handling
     ///////////////////////////////////////////////////////////////////////////
@@ -863,6 +1052,7 @@ public abstract class AbstractUnit<S, L, D, R>
         protected int incomingQueries;
         protected int outgoingQueries;
         protected int forwardedQueries;
+        protected int cachedQueries;
         protected long runtimeNanos;
         protected int dataWfChecks;
         protected int dataLeqChecks;
@@ -881,6 +1071,7 @@ public abstract class AbstractUnit<S, L, D, R>
                 "incomingQueries",
                 "outgoingQueries",
                 "forwardedQueries",
+                "cachedQueries",
                 "dataWfChecks",
                 "dataLeqChecks"
             ), actorStats.csvHeaders());
@@ -895,6 +1086,7 @@ public abstract class AbstractUnit<S, L, D, R>
                 Integer.toString(incomingQueries),
                 Integer.toString(outgoingQueries),
                 Integer.toString(forwardedQueries),
+                Integer.toString(cachedQueries),
                 Integer.toString(dataWfChecks),
                 Integer.toString(dataLeqChecks)
             ), actorStats.csvRow());
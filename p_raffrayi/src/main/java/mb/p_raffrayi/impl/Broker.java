@@ -5,8 +5,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.functions.Function2;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.IFuture;
@@ -25,6 +28,7 @@ import mb.p_raffrayi.actors.IActorRef;
 import mb.p_raffrayi.actors.TypeTag;
 import mb.p_raffrayi.actors.impl.ActorSystem;
 import mb.p_raffrayi.actors.impl.IActorScheduler;
+import mb.p_raffrayi.actors.impl.QuiescenceDetector;
 import mb.p_raffrayi.actors.impl.WonkyScheduler;
 import mb.p_raffrayi.actors.impl.WorkStealingScheduler;
 
@@ -32,7 +36,8 @@ public class Broker<S, L, D, R> {
 
     private static final ILogger logger = LoggerUtils.logger(Broker.class);
 
-    private static final int INACTIVE_TIMEOUT = 5;
+    private static final long CANCEL_POLL_MILLIS = 100;
+    private static final long QUIESCENCE_GRACE_MILLIS = 5;
 
     private final String id;
     private final ITypeChecker<S, L, D, R> typeChecker;
@@ -44,6 +49,7 @@ public class Broker<S, L, D, R> {
     private final ActorSystem system;
 
     private final Map<String, IActorRef<? extends IUnit<S, L, D, ?>>> units;
+    private final Map<String, LibraryScopeGraph<S, L, D>> libraries;
     private final AtomicInteger unfinishedUnits;
     private final AtomicInteger totalUnits;
 
@@ -59,6 +65,7 @@ public class Broker<S, L, D, R> {
         this.system = new ActorSystem(scheduler);
 
         this.units = new ConcurrentHashMap<>();
+        this.libraries = new ConcurrentHashMap<>();
         this.unfinishedUnits = new AtomicInteger();
         this.totalUnits = new AtomicInteger();
     }
@@ -93,7 +100,7 @@ public class Broker<S, L, D, R> {
     }
 
     private void startWatcherThread() {
-        final AtomicInteger inactive = new AtomicInteger();
+        final QuiescenceDetector quiescence = system.quiescence();
         final Thread watcher = new Thread(() -> {
             try {
                 while(true) {
@@ -102,20 +109,13 @@ public class Broker<S, L, D, R> {
                     } else if(cancel.cancelled()) {
                         system.cancel();
                         return;
-                    } else if(!scheduler.isActive()) {
-                        if(inactive.incrementAndGet() < INACTIVE_TIMEOUT) {
-                            logger.error("Potential deadlock...");
-                        } else {
-                            logger.error("Deadlock detected.");
-                            system.cancel();
-                            return;
-                        }
-                    } else {
-                        if(inactive.getAndSet(0) != 0) {
-                            logger.error("False deadlock.");
-                        }
+                    } else if(quiescence.awaitQuiescence(CANCEL_POLL_MILLIS, QUIESCENCE_GRACE_MILLIS,
+                            TimeUnit.MILLISECONDS) && system.running() && !scheduler.isActive()) {
+                        // all units are suspended, and deadlock detection in the units did not resolve it
+                        logger.error("Deadlock detected.");
+                        system.cancel();
+                        return;
                     }
-                    Thread.sleep(1000);
                 }
             } catch(InterruptedException e) {
             }
@@ -147,6 +147,21 @@ public class Broker<S, L, D, R> {
             return units.get(scopeImpl.id(scope));
         }
 
+        @Override public void shareLibrary(LibraryScopeGraph<S, L, D> library) {
+            libraries.put(self.id(), library);
+        }
+
+        @Override public @Nullable LibraryScopeGraph<S, L, D> library(S scope) {
+            if(libraries.isEmpty()) {
+                return null;
+            }
+            final LibraryScopeGraph<S, L, D> library;
+            if((library = libraries.get(scopeImpl.id(scope))) == null || !library.contains(scope)) {
+                return null;
+            }
+            return library;
+        }
+
         @Override public <Q> Tuple2<IFuture<IUnitResult<S, L, D, Q>>, IActorRef<? extends IUnit<S, L, D, Q>>> add(
                 String id, Function2<IActor<IUnit<S, L, D, Q>>, IUnitContext<S, L, D>, IUnit<S, L, D, Q>> unitProvider,
                 List<S> rootScopes) {
@@ -171,8 +186,12 @@ public class Broker<S, L, D, R> {
 
     public static <S, L, D, R> IFuture<IUnitResult<S, L, D, R>> run(String id, ITypeChecker<S, L, D, R> typeChecker,
             IScopeImpl<S, D> scopeImpl, Iterable<L> edgeLabels, ICancel cancel, int parallelism) {
-        return new Broker<>(id, typeChecker, scopeImpl, edgeLabels, cancel, new WorkStealingScheduler(parallelism))
-                .run();
+        return run(id, typeChecker, scopeImpl, edgeLabels, cancel, new WorkStealingScheduler(parallelism));
+    }
+
+    public static <S, L, D, R> IFuture<IUnitResult<S, L, D, R>> run(String id, ITypeChecker<S, L, D, R> typeChecker,
+            IScopeImpl<S, D> scopeImpl, Iterable<L> edgeLabels, ICancel cancel, IActorScheduler scheduler) {
+        return new Broker<>(id, typeChecker, scopeImpl, edgeLabels, cancel, scheduler).run();
     }
 
     public static <S, L, D, R> IFuture<IUnitResult<S, L, D, R>> debug(String id, ITypeChecker<S, L, D, R> typeChecker,
@@ -3,6 +3,8 @@ package mb.p_raffrayi.impl;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.functions.Function2;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.task.ICancel;
@@ -25,6 +27,17 @@ public interface IUnitContext<S, L, D> {
 
     IActorRef<? extends IUnit<S, L, D, ?>> owner(S scope);
 
+    /**
+     * Make the frozen scope graph of this library unit available to all units.
+     */
+    void shareLibrary(LibraryScopeGraph<S, L, D> library);
+
+    /**
+     * Return the frozen library scope graph that contains the given scope, or null if the scope is not part of a
+     * shared library.
+     */
+    @Nullable LibraryScopeGraph<S, L, D> library(S scope);
+
     <R> Tuple2<IFuture<IUnitResult<S, L, D, R>>, IActorRef<? extends IUnit<S, L, D, R>>> add(String id,
             Function2<IActor<IUnit<S, L, D, R>>, IUnitContext<S, L, D>, IUnit<S, L, D, R>> unitProvider,
             List<S> rootScopes);
@@ -0,0 +1,152 @@
+package mb.p_raffrayi.impl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import mb.scopegraph.oopsla20.IScopeGraph;
+
+/**
+ * Frozen scope graph of a library unit, which can be read concurrently by all units.
+ *
+ * Scopes are numbered, with the scopes of the library first, followed by the other targets of library edges. The edges
+ * for every label are stored in compressed sparse row form: the targets of scope i are found at the indices
+ * offsets[i] until offsets[i + 1] of the targets array. The graph is immutable after construction.
+ */
+final class LibraryScopeGraph<S, L, D> {
+
+    private final Map<S, Integer> scopeIds;
+    private final Object[] scopes;
+    private final int libraryScopeCount;
+
+    private final Map<L, Integer> labelIds;
+    private final int[][] offsets;
+    private final int[][] targets;
+
+    private final Object[] data;
+
+    private LibraryScopeGraph(Map<S, Integer> scopeIds, Object[] scopes, int libraryScopeCount,
+            Map<L, Integer> labelIds, int[][] offsets, int[][] targets, Object[] data) {
+        this.scopeIds = scopeIds;
+        this.scopes = scopes;
+        this.libraryScopeCount = libraryScopeCount;
+        this.labelIds = labelIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.data = data;
+    }
+
+    /**
+     * Test whether the given scope belongs to the library.
+     */
+    boolean contains(S scope) {
+        final Integer id;
+        return (id = scopeIds.get(scope)) != null && id < libraryScopeCount;
+    }
+
+    @SuppressWarnings("unchecked") Optional<D> getData(S scope) {
+        final Integer id;
+        if((id = scopeIds.get(scope)) == null || id >= libraryScopeCount) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((D) data[id]);
+    }
+
+    List<S> getEdges(S scope, L label) {
+        final Integer id;
+        final Integer labelId;
+        if((id = scopeIds.get(scope)) == null || id >= libraryScopeCount || (labelId = labelIds.get(label)) == null) {
+            return Collections.emptyList();
+        }
+        final int[] labelOffsets = offsets[labelId];
+        final int[] labelTargets = targets[labelId];
+        final int start = labelOffsets[id];
+        final int size = labelOffsets[id + 1] - start;
+        if(size == 0) {
+            return Collections.emptyList();
+        }
+        return new AbstractList<S>() {
+
+            @SuppressWarnings("unchecked") @Override public S get(int index) {
+                if(index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                }
+                return (S) scopes[labelTargets[start + index]];
+            }
+
+            @Override public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    int size() {
+        return libraryScopeCount;
+    }
+
+    /**
+     * Freeze the part of the scope graph that consists of the given library scopes and their outgoing edges.
+     */
+    static <S, L, D> LibraryScopeGraph<S, L, D> of(Iterable<S> libraryScopes, Iterable<L> edgeLabels,
+            IScopeGraph<S, L, D> scopeGraph) {
+        final Map<S, Integer> scopeIds = new HashMap<>();
+        final List<S> scopes = new ArrayList<>();
+        for(S scope : libraryScopes) {
+            if(scopeIds.putIfAbsent(scope, scopes.size()) == null) {
+                scopes.add(scope);
+            }
+        }
+        final int libraryScopeCount = scopes.size();
+
+        final Map<L, Integer> labelIds = new HashMap<>();
+        for(L label : edgeLabels) {
+            labelIds.putIfAbsent(label, labelIds.size());
+        }
+        final int[][] offsets = new int[labelIds.size()][];
+        final int[][] targets = new int[labelIds.size()][];
+        for(Map.Entry<L, Integer> entry : labelIds.entrySet()) {
+            final L label = entry.getKey();
+            final int labelId = entry.getValue();
+            final int[] labelOffsets = new int[libraryScopeCount + 1];
+            int[] labelTargets = new int[libraryScopeCount];
+            int count = 0;
+            for(int i = 0; i < libraryScopeCount; i++) {
+                labelOffsets[i] = count;
+                for(S target : scopeGraph.getEdges(scopes.get(i), label)) {
+                    Integer targetId;
+                    if((targetId = scopeIds.get(target)) == null) {
+                        targetId = scopes.size();
+                        scopeIds.put(target, targetId);
+                        scopes.add(target);
+                    }
+                    if(count == labelTargets.length) {
+                        labelTargets = Arrays.copyOf(labelTargets, Math.max(16, 2 * count));
+                    }
+                    labelTargets[count++] = targetId;
+                }
+            }
+            labelOffsets[libraryScopeCount] = count;
+            offsets[labelId] = labelOffsets;
+            targets[labelId] = Arrays.copyOf(labelTargets, count);
+        }
+
+        final Object[] data = new Object[libraryScopeCount];
+        for(int i = 0; i < libraryScopeCount; i++) {
+            data[i] = scopeGraph.getData(scopes.get(i)).orElse(null);
+        }
+
+        return new LibraryScopeGraph<>(scopeIds, scopes.toArray(), libraryScopeCount, labelIds, offsets, targets,
+                data);
+    }
+
+    @Override public String toString() {
+        return "LibraryScopeGraph{scopes=" + libraryScopeCount + "}";
+    }
+
+}
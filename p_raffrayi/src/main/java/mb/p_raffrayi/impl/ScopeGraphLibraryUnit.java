@@ -2,6 +2,7 @@ package mb.p_raffrayi.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +36,7 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
     private static final ILogger logger = LoggerUtils.logger(ScopeGraphLibraryUnit.class);
 
     private IScopeGraphLibrary<S, L, D> library;
+    private final boolean shareScopeGraph;
 
     private final List<IActorRef<? extends IUnit<S, L, D, Unit>>> workers;
 
@@ -45,6 +47,7 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
 
         // these are replaced once started
         this.library = library;
+        this.shareScopeGraph = library.shareScopeGraph();
 
         this.workers = new ArrayList<>();
     }
@@ -65,7 +68,9 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
         doStart(rootScopes);
         buildScopeGraph(rootScopes);
         clearLibrary();
-        startWorkers();
+        if(!shareScopeGraph) {
+            startWorkers();
+        }
         return doFinish(CompletableFuture.completedFuture(Unit.unit));
     }
 
@@ -85,6 +90,11 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
         this.scopes.__insertAll(libraryResult._1());
         this.scopeGraph.set(libraryResult._2());
 
+        // share before root scope edges make library scopes reachable
+        if(shareScopeGraph) {
+            shareScopeGraph(rootScopes, libraryResult._1());
+        }
+
         // add root scope edges and close root scopes
         for(S rootScope : rootScopes) {
             for(L label : edgeLabels) {
@@ -100,6 +110,19 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
         logger.info("Initialized {} in {} s", self.id(), TimeUnit.SECONDS.convert(dt, TimeUnit.MILLISECONDS));
     }
 
+    private void shareScopeGraph(List<S> rootScopes, Set<S> libraryScopes) {
+        final long t0 = System.currentTimeMillis();
+
+        // root scopes are owned by the parent, and remain open for other units
+        final Set<S> ownScopes = new HashSet<>(libraryScopes);
+        ownScopes.removeAll(rootScopes);
+        final LibraryScopeGraph<S, L, D> frozen = LibraryScopeGraph.of(ownScopes, edgeLabels, scopeGraph.get());
+        context.shareLibrary(frozen);
+
+        final long dt = System.currentTimeMillis() - t0;
+        logger.info("Shared {} scopes of {} in {} ms", frozen.size(), self.id(), dt);
+    }
+
     private void startWorkers() {
         for(int i = 0; i < context.parallelism(); i++) {
             final Tuple2<IActorRef<? extends IUnit<S, L, D, Unit>>, IFuture<IUnitResult<S, L, D, Unit>>> worker =
@@ -138,6 +161,10 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
 
     @Override public IFuture<Env<S, L, D>> _query(ScopePath<S, L> path, LabelWf<L> labelWF, DataWf<S, L, D> dataWF,
             LabelOrder<L> labelOrder, DataLeq<S, L, D> dataEquiv) {
+        if(workers.isEmpty()) {
+            // the scope graph is shared, and queries that still arrive are answered directly
+            return super._query(path, labelWF, dataWF, labelOrder, dataEquiv);
+        }
         stats.incomingQueries += 1;
         final IActorRef<? extends IUnit<S, L, D, Unit>> worker = workers.get(stats.incomingQueries % workers.size());
 
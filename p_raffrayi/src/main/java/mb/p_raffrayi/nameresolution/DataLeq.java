@@ -6,6 +6,10 @@ import org.metaborg.util.task.ICancel;
 
 import mb.p_raffrayi.ITypeCheckerContext;
 
+/**
+ * Predicate on data in a query. Predicates that do not depend on the state of the querying unit should implement
+ * equals and hashCode, so that units can share the results of equal queries.
+ */
 public interface DataLeq<S, L, D> {
 
     IFuture<Boolean> leq(D d1, D d2, ITypeCheckerContext<S, L, D> context, ICancel cancel) throws InterruptedException;
@@ -1,7 +1,9 @@
 package mb.p_raffrayi;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,11 +17,13 @@ import java.util.concurrent.ExecutionException;
 
 import org.junit.Ignore;
 import org.junit.Test;
+import org.metaborg.util.functions.Function1;
 import org.metaborg.util.future.AggregateFuture;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.tuple.Tuple2;
 import org.metaborg.util.unit.Unit;
 
 import com.google.common.collect.ImmutableList;
@@ -31,6 +35,8 @@ import mb.p_raffrayi.nameresolution.DataWf;
 import mb.scopegraph.ecoop21.LabelOrder;
 import mb.scopegraph.ecoop21.LabelWf;
 import mb.scopegraph.ecoop21.RegExpLabelWf;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
 import mb.scopegraph.regexp.IRegExp;
 import mb.scopegraph.regexp.IRegExpMatcher;
 import mb.scopegraph.regexp.RegExpMatcher;
@@ -478,6 +484,30 @@ public class PRaffrayiTest {
     }
 
 
+    @Test(timeout = 10000) public void testTwoDatumsNestedQueryDeadlockCycle()
+            throws ExecutionException, InterruptedException {
+        final IFuture<IUnitResult<Scope, Integer, Datum, Object>> future =
+                run(".", new ITypeChecker<Scope, Integer, Datum, Object>() {
+
+                    @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit,
+                            List<Scope> roots) {
+                        Scope s = unit.freshScope("s", Collections.emptySet(), false, true);
+
+                        List<IFuture<?>> subResults = new ArrayList<>();
+                        subResults.add(unit.add("one", new NestedQueryBeforeCloseEdgeDatum(1, 3, 2), Arrays.asList(s)));
+                        subResults.add(unit.add("two", new NestedQueryBeforeCloseEdgeDatum(2, 4, 1), Arrays.asList(s)));
+
+                        unit.closeScope(s);
+
+                        return new AggregateFuture<>(subResults).handle((r, ex) -> Unit.unit);
+                    }
+
+                }, Arrays.asList(1, 2, 3, 4));
+
+        final IUnitResult<Scope, Integer, Datum, Object> result = future.asJavaCompletion().get();
+    }
+
+
     @Test(timeout = 10000) public void testTwoDatumsSetDatumCycle() throws ExecutionException, InterruptedException {
         final IFuture<IUnitResult<Scope, Integer, Datum, Object>> future =
                 run(".", new ITypeChecker<Scope, Integer, Datum, Object>() {
@@ -738,6 +768,146 @@ public class PRaffrayiTest {
         final IUnitResult<Scope, Object, Datum, Object> result = future.asJavaCompletion().get();
     }
 
+    @Test(timeout = 10000) public void testSharedQueryResult() throws ExecutionException, InterruptedException {
+        final DataWf<Scope, Integer, Datum> dataWF = DataWf.any();
+        final DataLeq<Scope, Integer, Datum> dataEquiv = DataLeq.none();
+        final IFuture<IUnitResult<Scope, Integer, Datum, Object>> future =
+                run(".", new ITypeChecker<Scope, Integer, Datum, Object>() {
+
+                    @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit,
+                            List<Scope> roots) {
+                        final Scope s = unit.freshScope("s", Collections.emptyList(), true, false);
+                        unit.setDatum(s, s);
+
+                        final List<IFuture<?>> results = new ArrayList<>();
+                        for(String id : Arrays.asList("sub1", "sub2")) {
+                            results.add(unit.add(id, new ITypeChecker<Scope, Integer, Datum, Object>() {
+
+                                @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit,
+                                        List<Scope> rootScopes) {
+                                    final Scope s1 = unit.freshScope("s1", Set.Immutable.of(1), false, false);
+                                    unit.addEdge(s1, 1, s);
+                                    unit.closeEdge(s1, 1);
+                                    return unit.query(s1, LabelWf.any(), LabelOrder.none(), dataWF, dataEquiv)
+                                            .thenApply(paths -> paths.size());
+                                }
+
+                            }, Collections.emptyList()));
+                        }
+
+                        return new AggregateFuture<>(results).thenApply(r -> Unit.unit);
+                    }
+
+                }, Set.Immutable.of(1));
+
+        final IUnitResult<Scope, Integer, Datum, Object> result = future.asJavaCompletion().get();
+        assertTrue(result.failures().isEmpty());
+        assertEquals(1, result.subUnitResults().get("sub1").analysis());
+        assertEquals(1, result.subUnitResults().get("sub2").analysis());
+        final List<String> headers = ImmutableList.copyOf(result.stats().csvHeaders());
+        final List<String> row = ImmutableList.copyOf(result.stats().csvRow());
+        assertEquals("1", row.get(headers.indexOf("cachedQueries")));
+    }
+
+    @Test(timeout = 10000) public void testQueryResultNotSharedOverPrunedScope()
+            throws ExecutionException, InterruptedException {
+        final DataWf<Scope, Integer, Datum> dataWF = DataWf.any();
+        final DataLeq<Scope, Integer, Datum> dataEquiv = DataLeq.none();
+        final IFuture<IUnitResult<Scope, Integer, Datum, Object>> future =
+                run(".", new ITypeChecker<Scope, Integer, Datum, Object>() {
+
+                    @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit,
+                            List<Scope> roots) {
+                        final Scope x = unit.freshScope("x", Collections.emptyList(), true, true);
+                        unit.setDatum(x, x);
+
+                        final IFuture<IUnitResult<Scope, Integer, Datum, List<Integer>>> subResult =
+                                unit.add("sub", new ITypeChecker<Scope, Integer, Datum, List<Integer>>() {
+
+                                    @Override public IFuture<List<Integer>>
+                                            run(ITypeCheckerContext<Scope, Integer, Datum> unit, List<Scope> roots) {
+                                        final Scope x = roots.get(0);
+                                        unit.initScope(x, Set.Immutable.of(1), false);
+                                        final Scope y = unit.freshScope("y", Set.Immutable.of(1), true, false);
+                                        final Scope z = unit.freshScope("z", Set.Immutable.of(1), true, false);
+                                        unit.setDatum(y, y);
+                                        unit.setDatum(z, z);
+                                        unit.addEdge(y, 1, x);
+                                        unit.addEdge(z, 1, x);
+                                        unit.addEdge(x, 1, y);
+                                        unit.closeEdge(y, 1);
+                                        unit.closeEdge(z, 1);
+                                        unit.closeEdge(x, 1);
+                                        // the first query reaches x over y, so the edge back to y is pruned, but
+                                        // the second query reaches x over z, and must follow that edge
+                                        return unit.query(y, LabelWf.any(), LabelOrder.none(), dataWF, dataEquiv)
+                                                .thenCompose(env1 -> {
+                                                    final int size1 = env1.size();
+                                                    return unit
+                                                            .query(z, LabelWf.any(), LabelOrder.none(), dataWF,
+                                                                    dataEquiv)
+                                                            .thenApply(env2 -> Arrays.asList(size1, env2.size()));
+                                                });
+                                    }
+
+                                }, Arrays.asList(x));
+
+                        unit.closeScope(x);
+
+                        return subResult.thenApply(r -> Unit.unit);
+                    }
+
+                }, Set.Immutable.of(1));
+
+        final IUnitResult<Scope, Integer, Datum, Object> result = future.asJavaCompletion().get();
+        assertTrue(result.failures().isEmpty());
+        assertEquals(Arrays.asList(2, 3), result.subUnitResults().get("sub").analysis());
+        final List<String> headers = ImmutableList.copyOf(result.stats().csvHeaders());
+        final List<String> row = ImmutableList.copyOf(result.stats().csvRow());
+        assertEquals("0", row.get(headers.indexOf("cachedQueries")));
+    }
+
+    @Test(timeout = 10000) public void testQuerySharedLibrary() throws ExecutionException, InterruptedException {
+        final IUnitResult<Scope, Integer, Datum, Object> result = runLibraryQuery(true);
+        assertTrue(result.failures().isEmpty());
+        assertEquals(1, result.analysis());
+        assertEquals("0", libraryStat(result, "incomingQueries"));
+        assertTrue(result.subUnitResults().get("lib").subUnitResults().isEmpty());
+    }
+
+    @Test(timeout = 10000) public void testQueryUnsharedLibrary() throws ExecutionException, InterruptedException {
+        final IUnitResult<Scope, Integer, Datum, Object> result = runLibraryQuery(false);
+        assertTrue(result.failures().isEmpty());
+        assertEquals(1, result.analysis());
+        assertEquals("1", libraryStat(result, "incomingQueries"));
+    }
+
+    private IUnitResult<Scope, Integer, Datum, Object> runLibraryQuery(boolean shareScopeGraph)
+            throws ExecutionException, InterruptedException {
+        final IFuture<IUnitResult<Scope, Integer, Datum, Object>> future =
+                run(".", new ITypeChecker<Scope, Integer, Datum, Object>() {
+
+                    @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit,
+                            List<Scope> roots) {
+                        final Scope s = unit.freshScope("s", Set.Immutable.of(1), false, true);
+                        unit.add("lib", new SingleDeclLibrary(shareScopeGraph), Arrays.asList(s));
+                        unit.closeEdge(s, 1);
+                        unit.closeScope(s);
+                        return unit.query(s, LabelWf.any(), LabelOrder.none(), DataWf.any(), DataLeq.none())
+                                .thenApply(paths -> paths.size());
+                    }
+
+                }, Set.Immutable.of(1));
+        return future.asJavaCompletion().get();
+    }
+
+    private String libraryStat(IUnitResult<Scope, Integer, Datum, ?> result, String stat) {
+        final IUnitResult<Scope, Integer, Datum, ?> libResult = result.subUnitResults().get("lib");
+        final List<String> headers = ImmutableList.copyOf(libResult.stats().csvHeaders());
+        final List<String> row = ImmutableList.copyOf(libResult.stats().csvRow());
+        return row.get(headers.indexOf(stat));
+    }
+
     ///////////////////////////////////////////////////////////////////////////
 
     private final class ResolveBeforeCloseEdgeDatum implements ITypeChecker<Scope, Integer, Datum, Object> {
@@ -775,6 +945,57 @@ public class PRaffrayiTest {
 
     }
 
+    /**
+     * Queries the other unit with a data predicate that queries an open edge of this unit, which is only closed after
+     * the query returns.
+     */
+    private final class NestedQueryBeforeCloseEdgeDatum implements ITypeChecker<Scope, Integer, Datum, Object> {
+
+        private final Integer ownLabel;
+        private final Integer openLabel;
+        private final Integer queryLabel;
+
+        public NestedQueryBeforeCloseEdgeDatum(Integer ownLabel, Integer openLabel, Integer queryLabel) {
+            this.ownLabel = ownLabel;
+            this.openLabel = openLabel;
+            this.queryLabel = queryLabel;
+        }
+
+        @Override public IFuture<Object> run(ITypeCheckerContext<Scope, Integer, Datum> unit, List<Scope> rootScopes) {
+            Scope s = rootScopes.get(0);
+            unit.initScope(s, Set.Immutable.of(ownLabel, openLabel), false);
+
+            Scope s1 = unit.freshScope("s'", Collections.emptySet(), true, false);
+
+            unit.addEdge(s, ownLabel, s1);
+            unit.closeEdge(s, ownLabel);
+
+            unit.setDatum(s1, s1);
+
+            final DataWf<Scope, Integer, Datum> dataWF = new DataWf<Scope, Integer, Datum>() {
+                @Override public IFuture<Boolean> wf(Datum d, ITypeCheckerContext<Scope, Integer, Datum> context,
+                        ICancel cancel) throws InterruptedException {
+                    return context.query(s, labelWf(openLabel), LabelOrder.none(), DataWf.any(), DataLeq.none())
+                            .thenApply(r -> true);
+                }
+            };
+            final IFuture<?> result = unit.query(s, labelWf(queryLabel), LabelOrder.none(), dataWF, DataLeq.none())
+                    .whenComplete((r, ex) -> {
+                        unit.closeEdge(s, openLabel);
+                    });
+
+            return result.handle((r, ex) -> Unit.unit);
+        }
+
+        private LabelWf<Integer> labelWf(Integer label) {
+            final RegExpBuilder<Integer> reb = new RegExpBuilder<>();
+            final IRegExp<Integer> re = reb.and(reb.symbol(label), reb.complement(reb.emptySet()));
+            final IRegExpMatcher<Integer> rem = RegExpMatcher.create(re);
+            return new RegExpLabelWf<>(rem);
+        }
+
+    }
+
     private final class CloseEdgeBeforeResolveDatum implements ITypeChecker<Scope, Integer, Datum, Object> {
 
         private final Integer ownLabel;
@@ -1038,6 +1259,28 @@ public class PRaffrayiTest {
 
     ///////////////////////////////////////////////////////////////////////////
 
+    private final class SingleDeclLibrary implements IScopeGraphLibrary<Scope, Integer, Datum> {
+
+        private final boolean shareScopeGraph;
+
+        public SingleDeclLibrary(boolean shareScopeGraph) {
+            this.shareScopeGraph = shareScopeGraph;
+        }
+
+        @Override public Tuple2<? extends java.util.Set<Scope>, IScopeGraph.Immutable<Scope, Integer, Datum>>
+                initialize(List<Scope> rootScopes, Function1<String, Scope> freshScope) {
+            final Scope d = freshScope.apply("d");
+            final IScopeGraph.Immutable<Scope, Integer, Datum> scopeGraph =
+                    ScopeGraph.Immutable.<Scope, Integer, Datum>of().addEdge(rootScopes.get(0), 1, d).setDatum(d, d);
+            return Tuple2.of(Collections.singleton(d), scopeGraph);
+        }
+
+        @Override public boolean shareScopeGraph() {
+            return shareScopeGraph;
+        }
+
+    }
+
     private class ScopeImpl implements IScopeImpl<Scope, Datum> {
 
         private int count = 0;
@@ -18,6 +18,7 @@ public class ActorTest {
 
     private static final TypeTag<EmptyActor> EMPTY_ACTOR = TypeTag.of(EmptyActor.class);
     private static final TypeTag<PingActor> PING_ACTOR = TypeTag.of(PingActor.class);
+    private static final TypeTag<SumActor> SUM_ACTOR = TypeTag.of(SumActor.class);
 
     @Test(timeout = 10_000) public void testNoActors() throws InterruptedException, ExecutionException {
         final IActorSystem system = new ActorSystem();
@@ -296,6 +297,29 @@ public class ActorTest {
         system.stop().asJavaCompletion().get();
     }
 
+    @Test(timeout = 10_000) public void testMessagesWithArguments() throws InterruptedException, ExecutionException {
+        final IActorSystem system = new ActorSystem();
+        final IActorRef<SumActor> one = system.add("one", SUM_ACTOR, (self) -> new SumActor() {
+
+            private long sum = 0;
+
+            @Override public void add(int value) {
+                sum += value;
+            }
+
+            @Override public IFuture<Long> sum(long offset, String label) {
+                return CompletableFuture.completedFuture(label.length() + offset + sum);
+            }
+
+        });
+        final SumActor async = system.async(one);
+        async.add(1);
+        async.add(2);
+        assertEquals(13L, (long) async.sum(7, "abc").asJavaCompletion().get());
+        assertEquals(one.toString(), async.toString());
+        system.stop().asJavaCompletion().get();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////
     // Actor Interfaces
@@ -311,4 +335,12 @@ public class ActorTest {
 
     }
 
+    private interface SumActor {
+
+        void add(int value);
+
+        IFuture<Long> sum(long offset, String label);
+
+    }
+
 }
\ No newline at end of file
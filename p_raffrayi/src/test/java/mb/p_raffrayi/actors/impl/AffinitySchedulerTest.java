@@ -0,0 +1,81 @@
+package mb.p_raffrayi.actors.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+
+public class AffinitySchedulerTest {
+
+    @Test(timeout = 10_000) public void testActivationsAreExecuted() throws InterruptedException {
+        final int actors = 16;
+        final int activations = 1_000;
+        final AffinityScheduler scheduler = new AffinityScheduler(4);
+        final CountDownLatch done = new CountDownLatch(actors);
+        final AtomicInteger executed = new AtomicInteger();
+        final AtomicInteger overlapping = new AtomicInteger();
+        for(int i = 0; i < actors; i++) {
+            new Activations(scheduler, activations, executed, overlapping, done).activate();
+        }
+        done.await();
+        assertEquals(actors * activations, executed.get());
+
+        assertEquals(0, overlapping.get());
+        scheduler.shutdown();
+        assertEquals(Iterables.size(scheduler.stats().csvHeaders()), Iterables.size(scheduler.stats().csvRow()));
+    }
+
+    @Test(timeout = 10_000) public void testActorSystem() throws Exception {
+        final ActorSystem system = new ActorSystem(new AffinityScheduler(2));
+        system.stop().asJavaCompletion().get();
+    }
+
+    /**
+     * Imitates an actor, which is scheduled again for every activation, and must never run concurrently with itself.
+     */
+    private static class Activations implements Runnable {
+
+        private final AffinityScheduler scheduler;
+        private final AtomicReference<Runnable> taskRef = new AtomicReference<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger executed;
+        private final AtomicInteger overlapping;
+        private final CountDownLatch done;
+        private int remaining;
+
+        Activations(AffinityScheduler scheduler, int activations, AtomicInteger executed, AtomicInteger overlapping,
+                CountDownLatch done) {
+            this.scheduler = scheduler;
+            this.remaining = activations;
+            this.executed = executed;
+            this.overlapping = overlapping;
+            this.done = done;
+        }
+
+        void activate() {
+            scheduler.schedule(this, 0, taskRef);
+        }
+
+        @Override public void run() {
+            if(running.incrementAndGet() != 1) {
+                overlapping.incrementAndGet();
+            }
+            taskRef.set(null);
+            executed.incrementAndGet();
+            remaining -= 1;
+            running.decrementAndGet();
+            if(remaining > 0) {
+                activate();
+            } else {
+                done.countDown();
+            }
+        }
+
+    }
+
+}
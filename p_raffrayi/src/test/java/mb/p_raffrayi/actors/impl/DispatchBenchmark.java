@@ -0,0 +1,107 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Compares the cost of sending messages through an async interface, using reflective proxies and dispatch as before,
+ * and using {@link DispatchTable}. Only the proxy and dispatch are measured, not the mailbox and scheduling.
+ */
+public class DispatchBenchmark {
+
+    private static final ILogger logger = LoggerUtils.logger(DispatchBenchmark.class);
+
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+    private static final int MESSAGES = 1_000_000;
+
+    public static void main(String[] args) throws Throwable {
+        final Counter impl = new CounterImpl();
+        for(int i = 0; i < WARMUP; i++) {
+            reflective(impl);
+            dispatchTable(impl);
+        }
+        long reflective = 0;
+        long dispatchTable = 0;
+        for(int i = 0; i < ROUNDS; i++) {
+            reflective += reflective(impl);
+            dispatchTable += dispatchTable(impl);
+        }
+        logger.info("reflective:     {} ns/message", reflective / ROUNDS / MESSAGES);
+        logger.info("dispatch table: {} ns/message", dispatchTable / ROUNDS / MESSAGES);
+    }
+
+    private static long reflective(Counter impl) {
+        final long t0 = System.nanoTime();
+        for(int i = 0; i < MESSAGES; i++) {
+            final Counter async = (Counter) Proxy.newProxyInstance(Counter.class.getClassLoader(),
+                    new Class[] { Counter.class }, (proxy, method, args) -> {
+                        if(method.getDeclaringClass().equals(Object.class)) {
+                            return method.invoke(impl, args);
+                        }
+                        final Method method1 = method;
+                        final Object[] args1 = args;
+                        final Runnable message = () -> {
+                            try {
+                                method1.setAccessible(true);
+                                method1.invoke(impl, args1);
+                            } catch(ReflectiveOperationException ex) {
+                                throw new IllegalStateException(ex);
+                            }
+                        };
+                        message.run();
+                        return null;
+                    });
+            async.inc(i);
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long dispatchTable(Counter impl) {
+        final DispatchTable table = DispatchTable.of(Counter.class);
+        final long t0 = System.nanoTime();
+        for(int i = 0; i < MESSAGES; i++) {
+            final Counter async = (Counter) table.newProxy((proxy, method, args) -> {
+                final DispatchTable.Entry entry = table.get(method);
+                if(entry.kind == DispatchTable.Kind.OBJECT) {
+                    return entry.invoke(impl, args);
+                }
+                final Runnable message = () -> {
+                    try {
+                        entry.invoke(impl, args);
+                    } catch(Throwable ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                };
+                message.run();
+                return null;
+            });
+            async.inc(i);
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private interface Counter {
+
+        void inc(int value);
+
+    }
+
+    private static class CounterImpl implements Counter {
+
+        private long count = 0;
+
+        @Override public void inc(int value) {
+            count += value;
+        }
+
+        @Override public String toString() {
+            return "Counter[" + count + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package mb.p_raffrayi.actors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MailboxTest {
+
+    @Test public void testFifo() {
+        final Mailbox<Integer> mailbox = new Mailbox<>();
+        assertTrue(mailbox.isEmpty());
+        mailbox.add(1);
+        mailbox.add(2);
+        assertEquals(1, (int) mailbox.poll());
+        mailbox.add(3);
+        assertEquals(2, (int) mailbox.poll());
+        assertEquals(3, (int) mailbox.poll());
+        assertNull(mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test(timeout = 10_000) public void testConcurrentProducers() throws InterruptedException {
+        final int producers = 4;
+        final int messages = 100_000;
+        final Mailbox<int[]> mailbox = new Mailbox<>();
+        final List<Thread> threads = new ArrayList<>();
+        for(int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < messages; i++) {
+                    mailbox.add(new int[] { producer, i });
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        // messages of every producer are received in order
+        final int[] next = new int[producers];
+        int received = 0;
+        while(received < producers * messages) {
+            final int[] message = mailbox.poll();
+            if(message == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[message[0]], message[1]);
+            next[message[0]] += 1;
+            received += 1;
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(mailbox.isEmpty());
+    }
+
+}
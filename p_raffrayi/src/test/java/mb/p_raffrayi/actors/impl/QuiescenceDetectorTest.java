@@ -0,0 +1,110 @@
+package mb.p_raffrayi.actors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.metaborg.util.future.CompletableFuture;
+
+import mb.p_raffrayi.actors.TypeTag;
+
+public class QuiescenceDetectorTest {
+
+    @Test(timeout = 10_000) public void testActiveActorsPreventQuiescence() throws InterruptedException {
+        final QuiescenceDetector quiescence = new QuiescenceDetector();
+        assertTrue(quiescence.awaitQuiescence(10, 1, TimeUnit.MILLISECONDS));
+
+        quiescence.activated();
+        quiescence.activated();
+        quiescence.suspended();
+        assertFalse(quiescence.isQuiescent());
+        assertFalse(quiescence.awaitQuiescence(10, 1, TimeUnit.MILLISECONDS));
+
+        quiescence.suspended();
+        assertTrue(quiescence.awaitQuiescence(10, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000) public void testSuspendWakesWaiter() throws InterruptedException {
+        final QuiescenceDetector quiescence = new QuiescenceDetector();
+        quiescence.activated();
+        final Thread actor = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch(InterruptedException e) {
+            }
+            quiescence.suspended();
+        });
+        actor.start();
+        assertTrue(quiescence.awaitQuiescence(5_000, 1, TimeUnit.MILLISECONDS));
+        actor.join();
+    }
+
+    @Test(timeout = 10_000) public void testPendingFuturePreventsQuiescence() throws InterruptedException {
+        final QuiescenceDetector quiescence = new QuiescenceDetector();
+        quiescence.pending();
+        assertFalse(quiescence.awaitQuiescence(10, 1, TimeUnit.MILLISECONDS));
+
+        // the result is sent to the actor before the future stops counting
+        quiescence.activated();
+        quiescence.completed();
+        assertFalse(quiescence.isQuiescent());
+
+        quiescence.suspended();
+        assertTrue(quiescence.awaitQuiescence(10, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000) public void testSlowExternalFuture() throws Exception {
+        final ActorSystem system = new ActorSystem(1);
+        final CompletableFuture<Integer> external = new CompletableFuture<>();
+        final CompletableFuture<Integer> received = new CompletableFuture<>();
+        system.add("waiter", TypeTag.of(IWaiter.class), self -> {
+            self.scheduleExternal(external).whenComplete(received::complete);
+            return new IWaiter() {};
+        });
+
+        // the actor is suspended, but waits for the future, which is completed outside the actor system
+        assertFalse(system.quiescence().awaitQuiescence(200, 50, TimeUnit.MILLISECONDS));
+        external.complete(42);
+        assertEquals(Integer.valueOf(42), received.asJavaCompletion().get());
+        assertTrue(system.quiescence().awaitQuiescence(5_000, 1, TimeUnit.MILLISECONDS));
+
+        system.stop();
+    }
+
+    @Test(timeout = 10_000) public void testUncompletedActorFuture() throws Exception {
+        final ActorSystem system = new ActorSystem(1);
+        system.add("waiter", TypeTag.of(IWaiter.class), self -> {
+            // a future that only an actor can complete, and no actor does, is a deadlock
+            self.schedule(new CompletableFuture<Integer>());
+            return new IWaiter() {};
+        });
+
+        assertTrue(system.quiescence().awaitQuiescence(5_000, 1, TimeUnit.MILLISECONDS));
+
+        system.stop();
+    }
+
+    @Test(timeout = 10_000) public void testActivationDuringGracePeriod() throws InterruptedException {
+        final QuiescenceDetector quiescence = new QuiescenceDetector();
+        final Thread sender = new Thread(() -> {
+            try {
+                Thread.sleep(10);
+            } catch(InterruptedException e) {
+            }
+            quiescence.activated();
+            quiescence.suspended();
+        });
+        sender.start();
+        // the grace period is long enough to observe the external activation
+        assertFalse(quiescence.awaitQuiescence(100, 1_000, TimeUnit.MILLISECONDS));
+        sender.join();
+    }
+
+    private interface IWaiter {
+
+    }
+
+}
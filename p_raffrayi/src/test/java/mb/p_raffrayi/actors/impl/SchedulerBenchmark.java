@@ -0,0 +1,87 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.metaborg.util.functions.Function1;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import mb.p_raffrayi.actors.IActorRef;
+import mb.p_raffrayi.actors.TypeTag;
+
+/**
+ * Compares schedulers on a wide actor system, where most actors are idle at any time. A number of tokens is passed
+ * around a ring of actors, and the time until all tokens made the required number of hops is measured.
+ */
+public class SchedulerBenchmark {
+
+    private static final ILogger logger = LoggerUtils.logger(SchedulerBenchmark.class);
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+    private static final int ACTORS = 10_000;
+    private static final int TOKENS = 100;
+    private static final int HOPS = 100_000;
+
+    private static final TypeTag<Node> NODE = TypeTag.of(Node.class);
+
+    public static void main(String[] args) throws InterruptedException {
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        final VirtualThreadScheduler probe = new VirtualThreadScheduler(parallelism);
+        try {
+            logger.info("virtual threads supported: {}", probe.isVirtual());
+        } finally {
+            probe.shutdown();
+        }
+        run("work stealing", WorkStealingScheduler::new, parallelism);
+        run("affinity", AffinityScheduler::new, parallelism);
+        run("virtual threads", VirtualThreadScheduler::new, parallelism);
+    }
+
+    private static void run(String name, Function1<Integer, IActorScheduler> newScheduler, int parallelism)
+            throws InterruptedException {
+        for(int i = 0; i < WARMUP; i++) {
+            ring(newScheduler.apply(parallelism));
+        }
+        long time = 0;
+        for(int i = 0; i < ROUNDS; i++) {
+            time += ring(newScheduler.apply(parallelism));
+        }
+        logger.info("{}: {} ns/hop", name, time / ROUNDS / HOPS);
+    }
+
+    @SuppressWarnings("unchecked") private static long ring(IActorScheduler scheduler) throws InterruptedException {
+        final ActorSystem system = new ActorSystem(scheduler);
+        final IActorRef<Node>[] nodes = new IActorRef[ACTORS];
+        final CountDownLatch done = new CountDownLatch(TOKENS);
+        for(int i = 0; i < ACTORS; i++) {
+            final int next = (i + 1) % ACTORS;
+            nodes[i] = system.add("node-" + i, NODE, self -> new Node() {
+
+                @Override public void token(int hops) {
+                    if(hops == 0) {
+                        done.countDown();
+                    } else {
+                        self.async(nodes[next]).token(hops - 1);
+                    }
+                }
+
+            });
+        }
+        final long t0 = System.nanoTime();
+        for(int i = 0; i < TOKENS; i++) {
+            system.async(nodes[i * (ACTORS / TOKENS)]).token(HOPS / TOKENS);
+        }
+        done.await();
+        final long time = System.nanoTime() - t0;
+        system.stop();
+        return time;
+    }
+
+    private interface Node {
+
+        void token(int hops);
+
+    }
+
+}
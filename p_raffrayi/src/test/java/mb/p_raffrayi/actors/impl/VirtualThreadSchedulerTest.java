@@ -0,0 +1,66 @@
+package mb.p_raffrayi.actors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class VirtualThreadSchedulerTest {
+
+    @Test(timeout = 10_000) public void testActivationsAreExecuted() throws InterruptedException {
+        testActivationsAreExecuted(new VirtualThreadScheduler(4));
+    }
+
+    @Test(timeout = 10_000) public void testFallbackActivationsAreExecuted() throws InterruptedException {
+        final VirtualThreadScheduler scheduler = new VirtualThreadScheduler(4, false);
+        assertFalse(scheduler.isVirtual());
+        testActivationsAreExecuted(scheduler);
+    }
+
+    private void testActivationsAreExecuted(VirtualThreadScheduler scheduler) throws InterruptedException {
+        final int activations = 1_000;
+        final CountDownLatch done = new CountDownLatch(activations);
+        final AtomicInteger executed = new AtomicInteger();
+        for(int i = 0; i < activations; i++) {
+            scheduler.schedule(() -> {
+                executed.incrementAndGet();
+                done.countDown();
+            }, 0, new AtomicReference<>());
+        }
+        done.await();
+        assertEquals(activations, executed.get());
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 10_000, expected = IllegalStateException.class) public void testScheduleTwiceThrows() {
+        final VirtualThreadScheduler scheduler = new VirtualThreadScheduler(1, false);
+        final AtomicReference<Runnable> taskRef = new AtomicReference<>();
+        try {
+            // the task reference is only cleared by the actor, so the first activation is still scheduled
+            scheduler.schedule(() -> {
+            }, 0, taskRef);
+            scheduler.schedule(() -> {
+            }, 0, taskRef);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(timeout = 10_000, expected = RejectedExecutionException.class) public void testScheduleAfterShutdown() {
+        final VirtualThreadScheduler scheduler = new VirtualThreadScheduler(1, false);
+        scheduler.shutdown();
+        scheduler.schedule(() -> {
+        }, 0, new AtomicReference<>());
+    }
+
+    @Test(timeout = 10_000) public void testActorSystem() throws Exception {
+        final ActorSystem system = new ActorSystem(new VirtualThreadScheduler(2));
+        system.stop().asJavaCompletion().get();
+    }
+
+}
@@ -0,0 +1,40 @@
+package mb.p_raffrayi.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+
+public class LibraryScopeGraphTest {
+
+    @Test public void testEdgesAndData() {
+        final IScopeGraph.Immutable<String, Integer, String> scopeGraph =
+                ScopeGraph.Immutable.<String, Integer, String>of().addEdge("s1", 1, "s2").addEdge("s1", 1, "s3")
+                        .addEdge("s2", 2, "root").addEdge("s3", 1, "s1").setDatum("s2", "d2");
+        final LibraryScopeGraph<String, Integer, String> library =
+                LibraryScopeGraph.of(Arrays.asList("s1", "s2", "s3"), Arrays.asList(1, 2), scopeGraph);
+
+        assertEquals(3, library.size());
+        assertTrue(library.contains("s1"));
+        assertFalse(library.contains("root"));
+
+        assertEquals(Arrays.asList("s2", "s3"), library.getEdges("s1", 1));
+        assertEquals(Collections.emptyList(), library.getEdges("s1", 2));
+        assertEquals(Arrays.asList("root"), library.getEdges("s2", 2));
+        assertEquals(Arrays.asList("s1"), library.getEdges("s3", 1));
+        assertEquals(Collections.emptyList(), library.getEdges("root", 1));
+
+        assertEquals(Optional.of("d2"), library.getData("s2"));
+        assertEquals(Optional.empty(), library.getData("s1"));
+        assertEquals(Optional.empty(), library.getData("root"));
+    }
+
+}
@@ -1,11 +1,24 @@
 package mb.scopegraph.ecoop21;
 
+import mb.scopegraph.oopsla20.reference.CompiledLabelOrder;
 import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.scopegraph.oopsla20.reference.ResolutionException;
 
 public interface LabelOrder<L> {
 
     boolean lt(EdgeOrData<L> l1, EdgeOrData<L> l2);
 
+    /**
+     * Compile this order for the data label and the given edge labels.
+     */
+    default CompiledLabelOrder<L> compile(java.util.Set<L> edgeLabels) {
+        try {
+            return CompiledLabelOrder.of(edgeLabels, this::lt);
+        } catch(ResolutionException | InterruptedException e) {
+            throw new IllegalStateException("Should not happen.");
+        }
+    }
+
     static <L> LabelOrder<L> none() {
         return new LabelOrder<L>() {
             @SuppressWarnings("unused") @Override public boolean lt(EdgeOrData<L> l1, EdgeOrData<L> l2) {
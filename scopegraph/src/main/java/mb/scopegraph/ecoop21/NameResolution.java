@@ -1,9 +1,9 @@
 package mb.scopegraph.ecoop21;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 
-import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.future.AggregateFuture;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.Futures;
@@ -17,6 +17,7 @@ import org.metaborg.util.unit.Unit;
 import com.google.common.collect.Lists;
 
 import io.usethesource.capsule.Set;
+import mb.scopegraph.oopsla20.reference.CompiledLabelOrder;
 import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.oopsla20.reference.Env;
 import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
@@ -30,12 +31,14 @@ public abstract class NameResolution<S, L, D> {
     private final Set.Immutable<L> edgeLabels;
 
     private final LabelOrder<L> labelOrder;
+    private final CompiledLabelOrder<L> compiledOrder;
 
     public NameResolution(Set.Immutable<L> edgeLabels, LabelOrder<L> labelOrder) {
         this.dataLabel = EdgeOrData.data();
         this.edgeLabels = edgeLabels;
 
         this.labelOrder = labelOrder;
+        this.compiledOrder = labelOrder.compile(edgeLabels);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -49,8 +52,24 @@ public abstract class NameResolution<S, L, D> {
 
     protected abstract IFuture<Boolean> dataWf(D datum, ICancel cancel) throws InterruptedException;
 
+    /**
+     * Check the well-formedness of a datum of the given scope. By default, the scope is ignored.
+     */
+    protected IFuture<Boolean> dataWf(@SuppressWarnings("unused") S scope, D datum, ICancel cancel)
+            throws InterruptedException {
+        return dataWf(datum, cancel);
+    }
+
     protected abstract IFuture<Boolean> dataLeq(D d1, D d2, ICancel cancel) throws InterruptedException;
 
+    /**
+     * Check whether a datum of the first scope shadows a datum of the second scope. By default, the scopes are ignored.
+     */
+    protected IFuture<Boolean> dataLeq(@SuppressWarnings("unused") S s1, D d1, @SuppressWarnings("unused") S s2,
+            D d2, ICancel cancel) throws InterruptedException {
+        return dataLeq(d1, d2, cancel);
+    }
+
     protected abstract IFuture<Boolean> dataLeqAlwaysTrue(ICancel cancel);
 
     ///////////////////////////////////////////////////////////////////////////
@@ -59,30 +78,42 @@ public abstract class NameResolution<S, L, D> {
         final ICompletableFuture<Env<S, L, D>> result = new CompletableFuture<>();
         logger.trace("env {}", path);
         externalEnv(path, re, labelOrder).orElseGet(() -> {
-            final Set.Transient<EdgeOrData<L>> labels = CapsuleUtil.transientSet();
-            if(re.accepting()) {
-                labels.__insert(dataLabel);
-            }
-            for(L l : edgeLabels) {
-                if(re.step(l).isPresent()) {
-                    labels.__insert(EdgeOrData.edge(l));
-                }
-            }
-            return env_L(path, re, labels.freeze(), cancel);
+            return env_L(path, re, labels(re), cancel);
         }).whenComplete(result::complete);
         return result;
     }
 
-    private IFuture<Env<S, L, D>> env_L(ScopePath<S, L> path, LabelWf<L> re, Set.Immutable<EdgeOrData<L>> L,
+    /**
+     * The labels that can be followed from the given well-formedness state. The result is remembered in the compiled
+     * order, so that repeated visits in the same state do not recompute it.
+     */
+    private CompiledLabelOrder.LabelSet<L> labels(LabelWf<L> re) {
+        CompiledLabelOrder.LabelSet<L> labels;
+        if((labels = compiledOrder.getLabelSet(re)) != null) {
+            return labels;
+        }
+        final BitSet bits = new BitSet(compiledOrder.size());
+        if(re.accepting()) {
+            bits.set(compiledOrder.indexOf(dataLabel));
+        }
+        for(L l : edgeLabels) {
+            if(re.step(l).isPresent()) {
+                bits.set(compiledOrder.indexOf(EdgeOrData.edge(l)));
+            }
+        }
+        return compiledOrder.putLabelSet(re, bits);
+    }
+
+    private IFuture<Env<S, L, D>> env_L(ScopePath<S, L> path, LabelWf<L> re, CompiledLabelOrder.LabelSet<L> L,
             ICancel cancel) {
         logger.trace("env_L {} {} {}", path, re, L);
         if(cancel.cancelled()) {
             return CompletableFuture.completedExceptionally(new InterruptedException());
         }
-        final Set<EdgeOrData<L>> max_L = max(L);
-        final List<IFuture<Env<S, L, D>>> envs = Lists.newArrayList();
-        for(EdgeOrData<L> l : max_L) {
-            envs.add(env_lL(path, re, l, smaller(L, l), cancel));
+        final int maxCount = L.maxCount();
+        final List<IFuture<Env<S, L, D>>> envs = Lists.newArrayListWithCapacity(maxCount);
+        for(int i = 0; i < maxCount; i++) {
+            envs.add(env_lL(path, re, L.max(i), L.smaller(i), cancel));
         }
         final AggregateFuture<Env<S, L, D>> listEnv = new AggregateFuture<>(envs);
         logger.trace("env_L {} {} {}: listEnv: {}", path, re, L, listEnv);
@@ -98,7 +129,7 @@ public abstract class NameResolution<S, L, D> {
     }
 
     private IFuture<Env<S, L, D>> env_lL(ScopePath<S, L> path, LabelWf<L> re, EdgeOrData<L> l,
-            Set.Immutable<EdgeOrData<L>> L, ICancel cancel) {
+            CompiledLabelOrder.LabelSet<L> L, ICancel cancel) {
         final IFuture<Env<S, L, D>> env1 = env_L(path, re, L, cancel);
         logger.trace("env_L {} {} {}: env1: {}", path, re, L, env1);
         env1.whenComplete((r, ex) -> logger.trace("env_L {} {} {}: result1: {}", path, re, L, env1));
@@ -120,34 +151,6 @@ public abstract class NameResolution<S, L, D> {
         });
     }
 
-    private Set.Immutable<EdgeOrData<L>> max(Set.Immutable<EdgeOrData<L>> L) {
-        final Set.Transient<EdgeOrData<L>> max = CapsuleUtil.transientSet();
-        outer: for(EdgeOrData<L> l1 : L) {
-            for(EdgeOrData<L> l2 : L) {
-                try {
-                    if(labelOrder.lt(l1, l2)) {
-                        continue outer;
-                    }
-                } catch(Throwable t) {
-                    logger.error("Unexpected exception in labelOrder", t);
-                    continue outer;
-                }
-            }
-            max.__insert(l1);
-        }
-        return max.freeze();
-    }
-
-    private Set.Immutable<EdgeOrData<L>> smaller(Set.Immutable<EdgeOrData<L>> L, EdgeOrData<L> l1) {
-        final Set.Transient<EdgeOrData<L>> smaller = CapsuleUtil.transientSet();
-        for(EdgeOrData<L> l2 : L) {
-            if(labelOrder.lt(l2, l1)) {
-                smaller.__insert(l2);
-            }
-        }
-        return smaller.freeze();
-    }
-
     private IFuture<Env<S, L, D>> env_l(ScopePath<S, L> path, LabelWf<L> re, EdgeOrData<L> l, ICancel cancel) {
         try {
             return l.matchInResolution(() -> env_data(path, re, cancel), lbl -> env_edges(path, re, lbl, cancel));
@@ -165,7 +168,7 @@ public abstract class NameResolution<S, L, D> {
             if((d = _d.orElse(null)) == null) {
                 return CompletableFuture.completedFuture(Env.empty());
             }
-            return dataWf(d, cancel).thenApply(wf -> {
+            return dataWf(path.getTarget(), d, cancel).thenApply(wf -> {
                 if(!wf) {
                     return Env.empty();
                 }
@@ -216,7 +219,8 @@ public abstract class NameResolution<S, L, D> {
         final Env.Builder<S, L, D> env = Env.builder();
         env.addAll(env1);
         return Futures.reduce(Unit.unit, env2, (u, p2) -> {
-            return Futures.noneMatch(env1, p1 -> dataLeq(p2.getDatum(), p1.getDatum(), cancel)).thenApply(noneMatch -> {
+            return Futures.noneMatch(env1, p1 -> dataLeq(p2.getPath().getTarget(), p2.getDatum(),
+                    p1.getPath().getTarget(), p1.getDatum(), cancel)).thenApply(noneMatch -> {
                 if(noneMatch) {
                     env.add(p2);
                 }
@@ -4,21 +4,65 @@ import java.util.Objects;
 import java.util.Optional;
 
 import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.regexp.RegExpMatcher;
 
 public class RegExpLabelWf<L> implements LabelWf<L> {
 
     private final IRegExpMatcher<L> re;
 
+    /**
+     * The shared instances for all states of the automaton, if the matcher is a {@link RegExpMatcher}. The family is
+     * shared by all uses of the automaton. Steps return these instances, so that stepping does not allocate, and equal
+     * instances are usually identical.
+     */
+    private final Family<L> family;
+
+    /**
+     * The step results per symbol index of the automaton, with the default transition at index 0. Entries are computed
+     * on first use.
+     */
+    private final Optional<LabelWf<L>>[] steps;
+
     public RegExpLabelWf(IRegExpMatcher<L> re) {
+        this(re, re instanceof RegExpMatcher ? Family.of((RegExpMatcher<L>) re) : null);
+    }
+
+    @SuppressWarnings("unchecked") private RegExpLabelWf(IRegExpMatcher<L> re, Family<L> family) {
         this.re = re;
+        this.family = family;
+        this.steps = family != null ? new Optional[((RegExpMatcher<L>) re).symbolCount() + 1] : null;
     }
 
     @Override public Optional<LabelWf<L>> step(L l) {
-        final IRegExpMatcher<L> re = this.re.match(l);
-        if(re.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(new RegExpLabelWf<>(re));
+        if(family == null) {
+            final IRegExpMatcher<L> re = this.re.match(l);
+            if(re.isEmpty()) {
+                return Optional.empty();
+            } else {
+                return Optional.of(new RegExpLabelWf<>(re));
+            }
+        }
+        final int index = ((RegExpMatcher<L>) re).symbolIndex(l) + 1;
+        final Optional<LabelWf<L>> step = steps[index];
+        if(step != null) {
+            return step;
+        }
+        return computeStep(index);
+    }
+
+    private Optional<LabelWf<L>> computeStep(int index) {
+        synchronized(family) {
+            Optional<LabelWf<L>> step;
+            if((step = steps[index]) == null) {
+                final RegExpMatcher<L> re = ((RegExpMatcher<L>) this.re).matchIndex(index - 1);
+                if(re.isEmpty()) {
+                    step = Optional.empty();
+                } else {
+                    step = Optional.of(family.get(re));
+                }
+                steps[index] = step;
+            }
+            return step;
         }
     }
 
@@ -27,7 +71,7 @@ public class RegExpLabelWf<L> implements LabelWf<L> {
     }
 
     @Override public int hashCode() {
-        return Objects.hash(re);
+        return re.hashCode();
     }
 
     @Override public boolean equals(Object obj) {
@@ -45,8 +89,47 @@ public class RegExpLabelWf<L> implements LabelWf<L> {
         return re.toString();
     }
 
+    /**
+     * Get the label well-formedness for the given matcher. For a {@link RegExpMatcher}, this returns the shared
+     * instance for its state.
+     */
     public static <L> RegExpLabelWf<L> of(IRegExpMatcher<L> re) {
+        if(re instanceof RegExpMatcher) {
+            final RegExpMatcher<L> matcher = (RegExpMatcher<L>) re;
+            return Family.of(matcher).get(matcher);
+        }
         return new RegExpLabelWf<>(re);
     }
 
-}
\ No newline at end of file
+    /**
+     * The instances for the states of one automaton, indexed by state id. Instances are created while synchronized on
+     * the family, and are immutable apart from their step cache, so they can be read without synchronization.
+     */
+    private static class Family<L> {
+
+        private final RegExpLabelWf<L>[] states;
+
+        @SuppressWarnings("unchecked") private Family(RegExpMatcher<L> re) {
+            this.states = new RegExpLabelWf[re.stateCount()];
+        }
+
+        private RegExpLabelWf<L> get(RegExpMatcher<L> re) {
+            RegExpLabelWf<L> labelWf;
+            if((labelWf = states[re.stateId()]) != null) {
+                return labelWf;
+            }
+            synchronized(this) {
+                if((labelWf = states[re.stateId()]) == null) {
+                    states[re.stateId()] = labelWf = new RegExpLabelWf<>(re, this);
+                }
+                return labelWf;
+            }
+        }
+
+        private static <L> Family<L> of(RegExpMatcher<L> re) {
+            return re.shared(Family.class, key -> new Family<>(re));
+        }
+
+    }
+
+}
@@ -1,5 +1,8 @@
 package mb.scopegraph.ecoop21;
 
+import java.util.Objects;
+
+import mb.scopegraph.oopsla20.reference.CompiledLabelOrder;
 import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.relations.IRelation;
 
@@ -15,6 +18,28 @@ public class RelationLabelOrder<L> implements LabelOrder<L> {
         return labelOrd.contains(l1, l2);
     }
 
+    @Override public CompiledLabelOrder<L> compile(java.util.Set<L> edgeLabels) {
+        if(labelOrd instanceof IRelation.Immutable) {
+            return CompiledLabelOrder.of(edgeLabels, (IRelation.Immutable<EdgeOrData<L>>) labelOrd);
+        }
+        return LabelOrder.super.compile(edgeLabels);
+    }
+
+    @Override public int hashCode() {
+        return labelOrd.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+        if(obj == null)
+            return false;
+        if(getClass() != obj.getClass())
+            return false;
+        RelationLabelOrder<?> other = (RelationLabelOrder<?>) obj;
+        return Objects.equals(labelOrd, other.labelOrd);
+    }
+
     @Override public String toString() {
         return labelOrd.toString();
     }
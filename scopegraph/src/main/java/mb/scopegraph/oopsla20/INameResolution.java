@@ -9,6 +9,7 @@ import mb.scopegraph.oopsla20.reference.DataLeq;
 import mb.scopegraph.oopsla20.reference.DataWF;
 import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.oopsla20.reference.Env;
+import mb.scopegraph.oopsla20.reference.EnvCache;
 import mb.scopegraph.oopsla20.reference.LabelOrder;
 import mb.scopegraph.oopsla20.reference.LabelWF;
 import mb.scopegraph.oopsla20.reference.ResolutionException;
@@ -29,6 +30,14 @@ public interface INameResolution<S, L, D> {
 
         Builder<S, L, D> withIsComplete(Predicate2<S, EdgeOrData<L>> isComplete);
 
+        /**
+         * Use the given cache to share environments between resolutions. Implementations that do not support caching
+         * ignore the cache.
+         */
+        default Builder<S, L, D> withEnvCache(@SuppressWarnings("unused") EnvCache<S, L, D> envCache) {
+            return this;
+        }
+
         INameResolution<S, L, D> build(IScopeGraph<S, L, D> scopeGraph, Set<L> edgeLabels);
 
     }
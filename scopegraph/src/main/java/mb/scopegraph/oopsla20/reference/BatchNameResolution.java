@@ -0,0 +1,323 @@
+package mb.scopegraph.oopsla20.reference;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.functions.Predicate2;
+import org.metaborg.util.task.ICancel;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
+import mb.scopegraph.oopsla20.terms.newPath.ScopePath;
+
+/**
+ * Resolves a batch of queries that start in the same scope, and share label well-formedness and label order, but have
+ * their own data well-formedness and equivalence. The scope graph is traversed once for all queries in the batch, and
+ * edges and completeness are checked once. The data predicates of each query are applied at the data of the visited
+ * scopes. Each query gives the same result as resolving it separately with {@link FastNameResolution}.
+ */
+public class BatchNameResolution<S, L, D> {
+
+    private final IScopeGraph<S, L, D> scopeGraph;
+
+    private final EdgeOrData<L> dataLabel;
+    private final java.util.Set<L> edgeLabels;
+
+    private final LabelWF<L> labelWF;
+    private final LabelOrder<L> labelOrder;
+
+    private final Predicate2<S, EdgeOrData<L>> isComplete;
+
+    private @Nullable CompiledLabelOrder<L> compiledOrder;
+
+    public BatchNameResolution(IScopeGraph<S, L, D> scopeGraph, java.util.Set<L> edgeLabels, LabelWF<L> labelWF,
+            LabelOrder<L> labelOrder, Predicate2<S, EdgeOrData<L>> isComplete) {
+        this.scopeGraph = scopeGraph;
+        this.dataLabel = EdgeOrData.data();
+        this.edgeLabels = edgeLabels;
+        this.labelWF = labelWF;
+        this.labelOrder = labelOrder;
+        this.isComplete = isComplete;
+    }
+
+    /**
+     * Resolve the given queries from the given scope. The results are in the same order as the queries.
+     */
+    public List<Result<S, L, D>> resolve(S scope, List<Query<D>> queries, ICancel cancel)
+            throws InterruptedException {
+        final Batch batch = new Batch(queries);
+        final int n = queries.size();
+        final BitSet active = new BitSet(n);
+        active.set(0, n);
+        final Iterable<ResolutionPath<S, L, D>>[] specifics = batch.newSpecifics();
+        for(int q = 0; q < n; q++) {
+            specifics[q] = Env.empty();
+        }
+        Env<S, L, D>[] envs = null;
+        try {
+            envs = batch.env(labelWF, new ScopePath<>(scope), active, specifics, cancel);
+        } catch(ResolutionException e) {
+            batch.failAll(active, e);
+        }
+        final ImmutableList.Builder<Result<S, L, D>> results = ImmutableList.builder();
+        for(int q = 0; q < n; q++) {
+            final ResolutionException ex = batch.exceptions[q];
+            results.add(ex != null ? new Result<>(null, ex) : new Result<>(envs[q], null));
+        }
+        return results.build();
+    }
+
+    private CompiledLabelOrder.LabelSet<L> allLabels() throws ResolutionException, InterruptedException {
+        if(compiledOrder == null) {
+            compiledOrder = labelOrder.compile(edgeLabels);
+        }
+        return compiledOrder.all();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // batch                                                                 //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The state of resolving one batch. Queries that fail are recorded, and are ignored for the remainder of the
+     * traversal, just like the resolution of a single query stops at the first failure.
+     */
+    private class Batch {
+
+        private final List<Query<D>> queries;
+        private final ResolutionException[] exceptions;
+
+        private Batch(List<Query<D>> queries) {
+            this.queries = queries;
+            this.exceptions = new ResolutionException[queries.size()];
+        }
+
+        private boolean failed(int q) {
+            return exceptions[q] != null;
+        }
+
+        private void fail(int q, ResolutionException ex) {
+            if(exceptions[q] == null) {
+                exceptions[q] = ex;
+            }
+        }
+
+        private void failAll(BitSet active, ResolutionException ex) {
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                fail(q, ex);
+            }
+        }
+
+        /**
+         * Compute the environments of the active queries. Shared failures, such as incompleteness, are thrown, and
+         * failures of single queries are recorded.
+         */
+        private Env<S, L, D>[] env(LabelWF<L> re, ScopePath<S, L> path, BitSet active,
+                Iterable<ResolutionPath<S, L, D>>[] specifics, ICancel cancel)
+                throws ResolutionException, InterruptedException {
+            return env_L(allLabels(), re, path, active, specifics, cancel);
+        }
+
+        private Env<S, L, D>[] env_L(CompiledLabelOrder.LabelSet<L> L, LabelWF<L> re, ScopePath<S, L> path,
+                BitSet active, Iterable<ResolutionPath<S, L, D>>[] specifics, ICancel cancel)
+                throws ResolutionException, InterruptedException {
+            cancel.throwIfCancelled();
+            final Env.Builder<S, L, D>[] envs = newBuilders();
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                envs[q] = Env.builder();
+            }
+            final int maxCount = L.maxCount();
+            for(int i = 0; i < maxCount; i++) {
+                final Env<S, L, D>[] env1 = env_L(L.smaller(i), re, path, active, specifics, cancel);
+                final BitSet active2 = new BitSet(queries.size());
+                final Iterable<ResolutionPath<S, L, D>>[] specifics2 = newSpecifics();
+                for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                    if(failed(q)) {
+                        continue;
+                    }
+                    envs[q].addAll(env1[q]);
+                    if(env1[q].isEmpty() || !queries.get(q).dataEquiv.alwaysTrue()) {
+                        active2.set(q);
+                        specifics2[q] = Iterables.concat(specifics[q], env1[q]);
+                    }
+                }
+                if(active2.isEmpty()) {
+                    continue;
+                }
+                final Env<S, L, D>[] env2;
+                try {
+                    env2 = env_l(L.max(i), re, path, active2, specifics2, cancel);
+                } catch(ResolutionException e) {
+                    failAll(active2, e);
+                    continue;
+                }
+                for(int q = active2.nextSetBit(0); q >= 0; q = active2.nextSetBit(q + 1)) {
+                    if(!failed(q)) {
+                        envs[q].addAll(env2[q]);
+                    }
+                }
+            }
+            final Env<S, L, D>[] result = newEnvs();
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                if(!failed(q)) {
+                    result[q] = envs[q].build();
+                }
+            }
+            return result;
+        }
+
+        private Env<S, L, D>[] env_l(EdgeOrData<L> l, LabelWF<L> re, ScopePath<S, L> path, BitSet active,
+                Iterable<ResolutionPath<S, L, D>>[] specifics, ICancel cancel)
+                throws ResolutionException, InterruptedException {
+            return l.matchInResolution(() -> env_data(re, path, active, specifics),
+                    lbl -> env_edges(lbl, re, path, active, specifics, cancel));
+        }
+
+        private Env<S, L, D>[] env_data(LabelWF<L> re, ScopePath<S, L> path, BitSet active,
+                Iterable<ResolutionPath<S, L, D>>[] specifics) throws ResolutionException, InterruptedException {
+            final Env<S, L, D>[] envs = newEnvs();
+            if(!re.accepting()) {
+                return empty(envs, active);
+            }
+            if(!isComplete.test(path.getTarget(), dataLabel)) {
+                throw new IncompleteException(path.getTarget(), dataLabel);
+            }
+            final D datum;
+            if((datum = scopeGraph.getData(path.getTarget()).orElse(null)) == null) {
+                return empty(envs, active);
+            }
+            Env<S, L, D> env = null;
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                final Query<D> query = queries.get(q);
+                try {
+                    if(!query.dataWF.wf(datum) || isShadowed(query, datum, specifics[q])) {
+                        envs[q] = Env.empty();
+                    } else {
+                        envs[q] = env != null ? env : (env = Env.of(path.resolve(datum)));
+                    }
+                } catch(ResolutionException e) {
+                    fail(q, e);
+                }
+            }
+            return envs;
+        }
+
+        private Env<S, L, D>[] env_edges(L l, LabelWF<L> re, ScopePath<S, L> path, BitSet active,
+                Iterable<ResolutionPath<S, L, D>>[] specifics, ICancel cancel)
+                throws ResolutionException, InterruptedException {
+            final Env<S, L, D>[] envs = newEnvs();
+            final Optional<LabelWF<L>> newRe = re.step(l);
+            if(!newRe.isPresent()) {
+                return empty(envs, active);
+            } else {
+                re = newRe.get();
+            }
+            final EdgeOrData<L> edgeLabel = EdgeOrData.edge(l);
+            if(!isComplete.test(path.getTarget(), edgeLabel)) {
+                throw new IncompleteException(path.getTarget(), edgeLabel);
+            }
+            final Env.Builder<S, L, D>[] builders = newBuilders();
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                builders[q] = Env.builder();
+            }
+            for(S nextScope : scopeGraph.getEdges(path.getTarget(), l)) {
+                final Optional<ScopePath<S, L>> p = path.step(l, nextScope);
+                if(p.isPresent()) {
+                    final Env<S, L, D>[] nextEnvs;
+                    try {
+                        nextEnvs = env(re, p.get(), active, specifics, cancel);
+                    } catch(ResolutionException e) {
+                        failAll(active, e);
+                        break;
+                    }
+                    for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                        if(!failed(q)) {
+                            builders[q].addAll(nextEnvs[q]);
+                        }
+                    }
+                }
+            }
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                if(!failed(q)) {
+                    envs[q] = builders[q].build();
+                }
+            }
+            return envs;
+        }
+
+        private boolean isShadowed(Query<D> query, D datum, Iterable<ResolutionPath<S, L, D>> specifics)
+                throws ResolutionException, InterruptedException {
+            for(ResolutionPath<S, L, D> p : specifics) {
+                if(query.dataEquiv.leq(p.getDatum(), datum)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Env<S, L, D>[] empty(Env<S, L, D>[] envs, BitSet active) {
+            for(int q = active.nextSetBit(0); q >= 0; q = active.nextSetBit(q + 1)) {
+                envs[q] = Env.empty();
+            }
+            return envs;
+        }
+
+        @SuppressWarnings("unchecked") private Env<S, L, D>[] newEnvs() {
+            return new Env[queries.size()];
+        }
+
+        @SuppressWarnings("unchecked") private Env.Builder<S, L, D>[] newBuilders() {
+            return new Env.Builder[queries.size()];
+        }
+
+        @SuppressWarnings("unchecked") private Iterable<ResolutionPath<S, L, D>>[] newSpecifics() {
+            return new Iterable[queries.size()];
+        }
+
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // queries and results                                                   //
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class Query<D> {
+
+        private final DataWF<D> dataWF;
+        private final DataLeq<D> dataEquiv;
+
+        public Query(DataWF<D> dataWF, DataLeq<D> dataEquiv) {
+            this.dataWF = dataWF;
+            this.dataEquiv = dataEquiv;
+        }
+
+    }
+
+    public static class Result<S, L, D> {
+
+        private final @Nullable Env<S, L, D> env;
+        private final @Nullable ResolutionException exception;
+
+        private Result(@Nullable Env<S, L, D> env, @Nullable ResolutionException exception) {
+            this.env = env;
+            this.exception = exception;
+        }
+
+        /**
+         * The environment of the query, or the exception that resolving the query failed with.
+         */
+        public Env<S, L, D> env() throws ResolutionException {
+            if(exception != null) {
+                throw exception;
+            }
+            return env;
+        }
+
+    }
+
+}
@@ -0,0 +1,265 @@
+package mb.scopegraph.oopsla20.reference;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import io.usethesource.capsule.Set;
+import mb.scopegraph.relations.IRelation;
+
+/**
+ * A label order compiled for a fixed set of edge labels and the data label. The strict order is stored as bit sets over
+ * label indices. Label sets are interned, and the maximal labels of a label set, together with the set of labels
+ * smaller than each of them, are computed once and shared by all resolutions that use the same compiled order.
+ */
+public final class CompiledLabelOrder<L> {
+
+    /**
+     * Compiled orders for relations, which are usually shared by all queries of a specification. Relations are compared
+     * by identity, and entries are dropped when the relation is no longer used. Lookups do not take a global lock.
+     */
+    private static final Cache<IRelation.Immutable<?>, ConcurrentMap<java.util.Set<?>, CompiledLabelOrder<?>>> //
+    relationOrders = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final EdgeOrData<L>[] labels;
+    private final Map<EdgeOrData<L>, Integer> indices;
+
+    /** For every label index i, the indices j such that labels[j] < labels[i]. */
+    private final BitSet[] smaller;
+    /** For every label index i, the indices j such that labels[i] < labels[j]. */
+    private final BitSet[] larger;
+
+    private final ConcurrentMap<BitSet, LabelSet<L>> labelSets = new ConcurrentHashMap<>();
+    private final Cache<Object, LabelSet<L>> keyedLabelSets = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final LabelSet<L> all;
+
+    @SuppressWarnings("unchecked") private CompiledLabelOrder(List<EdgeOrData<L>> labels, BitSet[] smaller) {
+        final int n = labels.size();
+        this.labels = labels.toArray(new EdgeOrData[n]);
+        this.indices = Maps.newHashMapWithExpectedSize(n);
+        for(int i = 0; i < n; i++) {
+            indices.put(this.labels[i], i);
+        }
+        this.smaller = smaller;
+        this.larger = new BitSet[n];
+        for(int i = 0; i < n; i++) {
+            larger[i] = new BitSet(n);
+        }
+        for(int i = 0; i < n; i++) {
+            for(int j = smaller[i].nextSetBit(0); j >= 0; j = smaller[i].nextSetBit(j + 1)) {
+                larger[j].set(i);
+            }
+        }
+        final BitSet all = new BitSet(n);
+        all.set(0, n);
+        this.all = labelSet(all);
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    public EdgeOrData<L> label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * Return the index of the given label, or -1 if the label is not part of this order.
+     */
+    public int indexOf(EdgeOrData<L> label) {
+        final Integer index = indices.get(label);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * The set of all labels of this order.
+     */
+    public LabelSet<L> all() {
+        return all;
+    }
+
+    /**
+     * Return the interned label set for the given label indices. The bit set must not be modified afterwards.
+     */
+    public LabelSet<L> labelSet(BitSet bits) {
+        LabelSet<L> labelSet;
+        if((labelSet = labelSets.get(bits)) == null) {
+            labelSet = labelSets.computeIfAbsent(bits, b -> new LabelSet<>(this, b));
+        }
+        return labelSet;
+    }
+
+    /**
+     * Return the label set previously associated with the given key, or null. Keys are compared by identity and held
+     * weakly, which makes this suitable to remember the label set for label well-formedness states.
+     */
+    public @Nullable LabelSet<L> getLabelSet(Object key) {
+        return keyedLabelSets.getIfPresent(key);
+    }
+
+    /**
+     * Associate the label set for the given label indices with the given key, and return it.
+     */
+    public LabelSet<L> putLabelSet(Object key, BitSet bits) {
+        final LabelSet<L> labelSet = labelSet(bits);
+        keyedLabelSets.put(key, labelSet);
+        return labelSet;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // factories                                                             //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Compile the given order for the data label and the given edge labels.
+     */
+    public static <L> CompiledLabelOrder<L> of(java.util.Set<L> edgeLabels, LabelOrder<L> labelOrder)
+            throws ResolutionException, InterruptedException {
+        final List<EdgeOrData<L>> labels = Lists.newArrayListWithExpectedSize(edgeLabels.size() + 1);
+        labels.add(EdgeOrData.data());
+        for(L l : edgeLabels) {
+            labels.add(EdgeOrData.edge(l));
+        }
+        final int n = labels.size();
+        final BitSet[] smaller = new BitSet[n];
+        for(int i = 0; i < n; i++) {
+            smaller[i] = new BitSet(n);
+            for(int j = 0; j < n; j++) {
+                if(labelOrder.lt(labels.get(j), labels.get(i))) {
+                    smaller[i].set(j);
+                }
+            }
+        }
+        return new CompiledLabelOrder<>(labels, smaller);
+    }
+
+    /**
+     * Compile the given relation for the data label and the given edge labels. The result is cached for the relation
+     * and the edge labels.
+     */
+    @SuppressWarnings("unchecked") public static <L> CompiledLabelOrder<L> of(java.util.Set<L> edgeLabels,
+            IRelation.Immutable<EdgeOrData<L>> labelOrder) {
+        ConcurrentMap<java.util.Set<?>, CompiledLabelOrder<?>> orders;
+        if((orders = relationOrders.getIfPresent(labelOrder)) == null) {
+            orders = relationOrders.asMap().computeIfAbsent(labelOrder, r -> new ConcurrentHashMap<>());
+        }
+        CompiledLabelOrder<L> order;
+        if((order = (CompiledLabelOrder<L>) orders.get(edgeLabels)) == null) {
+            try {
+                order = of(edgeLabels, (l1, l2) -> labelOrder.contains(l1, l2));
+            } catch(ResolutionException | InterruptedException e) {
+                throw new IllegalStateException("Should not happen.");
+            }
+            final CompiledLabelOrder<L> oldOrder;
+            if((oldOrder = (CompiledLabelOrder<L>) orders.putIfAbsent(edgeLabels, order)) != null) {
+                order = oldOrder;
+            }
+        }
+        return order;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // label sets                                                            //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * An interned set of labels of a compiled order. The maximal labels, and for each of them the set of smaller
+     * labels, are computed on first use.
+     */
+    public static final class LabelSet<L> {
+
+        private final CompiledLabelOrder<L> order;
+        private final BitSet bits;
+
+        private volatile boolean compiled;
+        private EdgeOrData<L>[] max;
+        private LabelSet<L>[] smaller;
+
+        private LabelSet(CompiledLabelOrder<L> order, BitSet bits) {
+            this.order = order;
+            this.bits = bits;
+        }
+
+        public boolean isEmpty() {
+            return bits.isEmpty();
+        }
+
+        public boolean contains(int index) {
+            return bits.get(index);
+        }
+
+        /**
+         * The number of maximal labels in this set.
+         */
+        public int maxCount() {
+            compile();
+            return max.length;
+        }
+
+        /**
+         * The maximal label with the given index, which must be smaller than {@link #maxCount()}.
+         */
+        public EdgeOrData<L> max(int index) {
+            compile();
+            return max[index];
+        }
+
+        /**
+         * The labels in this set that are smaller than the maximal label with the given index.
+         */
+        public LabelSet<L> smaller(int index) {
+            compile();
+            return smaller[index];
+        }
+
+        public Set.Immutable<EdgeOrData<L>> labels() {
+            final Set.Transient<EdgeOrData<L>> labels = CapsuleUtil.transientSet();
+            for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                labels.__insert(order.labels[i]);
+            }
+            return labels.freeze();
+        }
+
+        @SuppressWarnings("unchecked") private void compile() {
+            if(compiled) {
+                return;
+            }
+            synchronized(this) {
+                if(compiled) {
+                    return;
+                }
+                final List<EdgeOrData<L>> max = Lists.newArrayList();
+                final List<LabelSet<L>> smaller = Lists.newArrayList();
+                for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                    if(!bits.intersects(order.larger[i])) {
+                        max.add(order.labels[i]);
+                        final BitSet smallerBits = (BitSet) order.smaller[i].clone();
+                        smallerBits.and(bits);
+                        smaller.add(order.labelSet(smallerBits));
+                    }
+                }
+                this.max = max.toArray(new EdgeOrData[max.size()]);
+                this.smaller = smaller.toArray(new LabelSet[smaller.size()]);
+                this.compiled = true;
+            }
+        }
+
+        @Override public String toString() {
+            return labels().toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,206 @@
+package mb.scopegraph.oopsla20.reference;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import io.usethesource.capsule.Set;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.path.IStep;
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
+import mb.scopegraph.oopsla20.terms.newPath.ScopePath;
+
+/**
+ * A cache of environments that can be shared by resolutions in the same scope graph. The cache is cleared when it is
+ * used with a different scope graph. Environments are only cached if they were computed without incompleteness or other
+ * resolution errors, and are keyed on the data well-formedness and equivalence of the resolution, which are compared
+ * using equals. The number of entries is bounded, and the least recently used entry is evicted when the bound is
+ * exceeded.
+ */
+public class EnvCache<S, L, D> {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private @Nullable IScopeGraph<S, L, D> scopeGraph;
+    private final Map<Key<S, L, D>, Entry<S, L, D>> entries;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public EnvCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a cache that keeps at most the given number of environments.
+     */
+    public EnvCache(int maxSize) {
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive.");
+        }
+        this.entries = new LinkedHashMap<Key<S, L, D>, Entry<S, L, D>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean removeEldestEntry(
+                    Map.Entry<Key<S, L, D>, EnvCache.Entry<S, L, D>> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    synchronized @Nullable Entry<S, L, D> get(IScopeGraph<S, L, D> scopeGraph, Key<S, L, D> key) {
+        if(this.scopeGraph != scopeGraph) {
+            misses++;
+            return null;
+        }
+        final Entry<S, L, D> entry;
+        if((entry = entries.get(key)) != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    synchronized void put(IScopeGraph<S, L, D> scopeGraph, Key<S, L, D> key, Entry<S, L, D> entry) {
+        if(this.scopeGraph != scopeGraph) {
+            entries.clear();
+            this.scopeGraph = scopeGraph;
+        }
+        entries.put(key, entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        scopeGraph = null;
+    }
+
+    /**
+     * The number of lookups that found a cached environment.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * The number of lookups that did not find a cached environment.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // keys and entries                                                      //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Identifies the environment of a scope, for a label well-formedness state, a set of labels, and the data of the
+     * paths that shadow the environment.
+     */
+    static final class Key<S, L, D> {
+
+        private final DataWF<D> dataWF;
+        private final DataLeq<D> dataEquiv;
+        private final S scope;
+        private final LabelWF<L> labelWF;
+        private final CompiledLabelOrder.LabelSet<L> labels;
+        private final Set.Immutable<D> specifics;
+        private final int hashCode;
+
+        Key(DataWF<D> dataWF, DataLeq<D> dataEquiv, S scope, LabelWF<L> labelWF,
+                CompiledLabelOrder.LabelSet<L> labels, Set.Immutable<D> specifics) {
+            this.dataWF = dataWF;
+            this.dataEquiv = dataEquiv;
+            this.scope = scope;
+            this.labelWF = labelWF;
+            this.labels = labels;
+            this.specifics = specifics;
+            this.hashCode = Objects.hash(dataWF, dataEquiv, scope, labelWF, System.identityHashCode(labels), specifics);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            @SuppressWarnings("rawtypes") Key other = (Key) obj;
+            return hashCode == other.hashCode && labels == other.labels && scope.equals(other.scope)
+                    && labelWF.equals(other.labelWF) && specifics.equals(other.specifics)
+                    && dataWF.equals(other.dataWF) && dataEquiv.equals(other.dataEquiv);
+        }
+
+    }
+
+    /**
+     * The environment of a scope, with paths starting in that scope, and the scopes that were visited to compute it.
+     */
+    static final class Entry<S, L, D> {
+
+        private final S scope;
+        private final Env<S, L, D> env;
+        private final Set.Immutable<S> footprint;
+
+        Entry(S scope, Env<S, L, D> env, Set.Immutable<S> footprint) {
+            this.scope = scope;
+            this.env = env;
+            this.footprint = footprint;
+        }
+
+        Set.Immutable<S> footprint() {
+            return footprint;
+        }
+
+        /**
+         * Return the environment for the given path, which must end in the scope of this entry, or null if the path
+         * visits any of the scopes in the footprint. Resolving from such a path could give a different environment,
+         * because cycles are detected on the full path.
+         */
+        @Nullable Env<S, L, D> extend(ScopePath<S, L> path) {
+            if(path.size() == 0) {
+                return env;
+            }
+            if(!disjoint(path.scopeSet(), footprint, scope)) {
+                return null;
+            }
+            if(env.isEmpty()) {
+                return env;
+            }
+            final Env.Builder<S, L, D> extendedEnv = Env.builder();
+            for(ResolutionPath<S, L, D> p : env) {
+                ScopePath<S, L> extendedPath = path;
+                for(IStep<S, L> step : p.getPath()) {
+                    extendedPath = extendedPath.step(step.getLabel(), step.getTarget()).get();
+                }
+                extendedEnv.add(extendedPath.resolve(p.getDatum()));
+            }
+            return extendedEnv.build();
+        }
+
+        static <S> boolean disjoint(Set.Immutable<S> scopes, Set.Immutable<S> footprint, S except) {
+            final Set.Immutable<S> smaller = scopes.size() <= footprint.size() ? scopes : footprint;
+            final Set.Immutable<S> larger = smaller == scopes ? footprint : scopes;
+            for(S scope : smaller) {
+                if(larger.contains(scope) && !scope.equals(except)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -3,16 +3,18 @@ package mb.scopegraph.oopsla20.reference;
 import java.util.Map;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.functions.Predicate2;
 import org.metaborg.util.task.ICancel;
-import org.metaborg.util.tuple.Tuple2;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import io.usethesource.capsule.Set;
-import io.usethesource.capsule.util.stream.CapsuleCollectors;
+
 import mb.scopegraph.oopsla20.INameResolution;
 import mb.scopegraph.oopsla20.IScopeGraph;
 import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
@@ -23,7 +25,7 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
     private final IScopeGraph<S, L, D> scopeGraph;
 
     private final EdgeOrData<L> dataLabel;
-    private final Set.Immutable<EdgeOrData<L>> allLabels;
+    private final java.util.Set<L> edgeLabels;
 
     private final LabelWF<L> labelWF; // default: true
     private final LabelOrder<L> labelOrder; // default: false
@@ -33,38 +35,100 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
 
     private final Predicate2<S, EdgeOrData<L>> isComplete; // default: true
 
+    private final @Nullable EnvCache<S, L, D> envCache; // default: none
+
     public FastNameResolution(IScopeGraph<S, L, D> scopeGraph, java.util.Set<L> edgeLabels, LabelWF<L> labelWF,
             LabelOrder<L> labelOrder, DataWF<D> dataWF, DataLeq<D> dataEquiv, Predicate2<S, EdgeOrData<L>> isComplete) {
+        this(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete, null);
+    }
+
+    public FastNameResolution(IScopeGraph<S, L, D> scopeGraph, java.util.Set<L> edgeLabels, LabelWF<L> labelWF,
+            LabelOrder<L> labelOrder, DataWF<D> dataWF, DataLeq<D> dataEquiv, Predicate2<S, EdgeOrData<L>> isComplete,
+            @Nullable EnvCache<S, L, D> envCache) {
         this.scopeGraph = scopeGraph;
         this.dataLabel = EdgeOrData.data();
-        this.allLabels =
-                edgeLabels.stream().map(EdgeOrData::edge).collect(CapsuleCollectors.toSet()).__insert(dataLabel);
+        this.edgeLabels = edgeLabels;
         this.labelWF = labelWF;
         this.labelOrder = labelOrder;
         this.dataWF = dataWF;
         this.dataEquiv = dataEquiv;
         this.isComplete = isComplete;
+        this.envCache = envCache;
     }
 
     @Override public Env<S, L, D> resolve(S scope, ICancel cancel) throws ResolutionException, InterruptedException {
         return env(labelWF, new ScopePath<>(scope), Env.empty(), cancel);
     }
 
+    /**
+     * Compute the environment of the target scope of the path. Environments are computed from the target scope, and
+     * memoized per scope, label well-formedness state, and shadowing data, so that scopes reached through different
+     * paths, e.g., in diamonds, are resolved only once. The memoized environment is extended with the path, unless the
+     * path visits any of the scopes that were visited to compute the environment. In that case, cycle detection could
+     * give a different result, and the environment is computed for the path instead.
+     */
     private Env<S, L, D> env(LabelWF<L> re, ScopePath<S, L> path, Iterable<ResolutionPath<S, L, D>> specifics,
             ICancel cancel) throws ResolutionException, InterruptedException {
-        return env_L(allLabels, re, path, specifics, cancel);
+        final CompiledLabelOrder.LabelSet<L> L = allLabels();
+        final S scope = path.getTarget();
+        final EnvCache.Key<S, L, D> key = new EnvCache.Key<>(dataWF, dataEquiv, scope, re, L, data(specifics));
+        EnvCache.Entry<S, L, D> entry;
+        if((entry = envs.get(key)) == null && envCache != null
+                && (entry = envCache.get(scopeGraph, key)) != null) {
+            envs.put(key, entry);
+        }
+        if(entry == null) {
+            if(!pendingEnvs.add(key)) {
+                // the environment is being computed, and this is a cycle from its scope
+                return env_L(L, re, path, specifics, cancel);
+            }
+            final Set.Transient<S> outerFootprint = footprint;
+            final Set.Transient<S> envFootprint = CapsuleUtil.transientSet();
+            footprint = envFootprint;
+            Env<S, L, D> env = null;
+            ResolutionException ex = null;
+            try {
+                env = env_L(L, re, new ScopePath<>(scope), specifics, cancel);
+            } catch(ResolutionException e) {
+                ex = e;
+            } finally {
+                pendingEnvs.remove(key);
+                footprint = outerFootprint;
+            }
+            final Set.Immutable<S> envScopes = envFootprint.freeze();
+            if(outerFootprint != null) {
+                outerFootprint.__insertAll(envScopes);
+            }
+            if(ex != null) {
+                if(EnvCache.Entry.disjoint(path.scopeSet(), envScopes, scope)) {
+                    throw ex;
+                }
+                return env_L(L, re, path, specifics, cancel);
+            }
+            entry = new EnvCache.Entry<>(scope, env, envScopes);
+            envs.put(key, entry);
+            if(envCache != null) {
+                envCache.put(scopeGraph, key, entry);
+            }
+        } else if(footprint != null) {
+            footprint.__insertAll(entry.footprint());
+        }
+        final Env<S, L, D> env;
+        if((env = entry.extend(path)) != null) {
+            return env;
+        }
+        return env_L(L, re, path, specifics, cancel);
     }
 
-    // FIXME Use caching of single label environments to prevent recalculation in case of diamonds in
-    // the graph
-    private Env<S, L, D> env_L(Set.Immutable<EdgeOrData<L>> L, LabelWF<L> re, ScopePath<S, L> path,
+    private Env<S, L, D> env_L(CompiledLabelOrder.LabelSet<L> L, LabelWF<L> re, ScopePath<S, L> path,
             Iterable<ResolutionPath<S, L, D>> specifics, ICancel cancel)
             throws ResolutionException, InterruptedException {
         cancel.throwIfCancelled();
         final Env.Builder<S, L, D> env = Env.builder();
-        final Set.Immutable<EdgeOrData<L>> max_L = max(L);
-        for(EdgeOrData<L> l : max_L) {
-            final Set.Immutable<EdgeOrData<L>> smaller = smaller(L, l);
+        final int maxCount = L.maxCount();
+        for(int i = 0; i < maxCount; i++) {
+            final EdgeOrData<L> l = L.max(i);
+            final CompiledLabelOrder.LabelSet<L> smaller = L.smaller(i);
             final Env<S, L, D> env1 = env_L(smaller, re, path, specifics, cancel);
             env.addAll(env1);
             if(env1.isEmpty() || !dataEquiv.alwaysTrue()) {
@@ -112,6 +176,9 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
         }
         final Env.Builder<S, L, D> env = Env.builder();
         for(S nextScope : getEdges(re, path, l)) {
+            if(footprint != null) {
+                footprint.__insert(nextScope);
+            }
             final Optional<ScopePath<S, L>> p = path.step(l, nextScope);
             if(p.isPresent()) {
                 env.addAll(env(re, p.get(), specifics, cancel));
@@ -130,73 +197,55 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
         return false;
     }
 
+    private Set.Immutable<D> data(Iterable<ResolutionPath<S, L, D>> specifics) {
+        if(Iterables.isEmpty(specifics)) {
+            return CapsuleUtil.immutableSet();
+        }
+        final Set.Transient<D> data = CapsuleUtil.transientSet();
+        for(ResolutionPath<S, L, D> p : specifics) {
+            data.__insert(p.getDatum());
+        }
+        return data.freeze();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
-    // edges and data                                                        //
+    // memoized environments                                                 //
     ///////////////////////////////////////////////////////////////////////////
 
-    protected Optional<D> getData(@SuppressWarnings("unused") LabelWF<L> re, ScopePath<S, L> path) {
-        return scopeGraph.getData(path.getTarget());
-    }
+    private final Map<EnvCache.Key<S, L, D>, EnvCache.Entry<S, L, D>> envs = Maps.newHashMap();
+    private final java.util.Set<EnvCache.Key<S, L, D>> pendingEnvs = Sets.newHashSet();
 
-    protected Iterable<S> getEdges(@SuppressWarnings("unused") LabelWF<L> re, ScopePath<S, L> path, L l) {
-        return scopeGraph.getEdges(path.getTarget(), l);
-    }
+    /**
+     * The scopes visited by the environment that is being computed.
+     */
+    private @Nullable Set.Transient<S> footprint = null;
 
     ///////////////////////////////////////////////////////////////////////////
-    // max labels                                                            //
+    // edges and data                                                        //
     ///////////////////////////////////////////////////////////////////////////
 
-    private final Map<Set.Immutable<EdgeOrData<L>>, Set.Immutable<EdgeOrData<L>>> maxCache = Maps.newHashMap();
-
-    private Set.Immutable<EdgeOrData<L>> max(Set.Immutable<EdgeOrData<L>> L)
-            throws ResolutionException, InterruptedException {
-        Set.Immutable<EdgeOrData<L>> max;
-        if((max = maxCache.get(L)) == null) {
-            maxCache.put(L, (max = computeMax(L)));
-        }
-        return max;
+    protected Optional<D> getData(@SuppressWarnings("unused") LabelWF<L> re, ScopePath<S, L> path) {
+        return scopeGraph.getData(path.getTarget());
     }
 
-    private Set.Immutable<EdgeOrData<L>> computeMax(Set.Immutable<EdgeOrData<L>> L)
-            throws ResolutionException, InterruptedException {
-        final Set.Transient<EdgeOrData<L>> max = CapsuleUtil.transientSet();
-        outer: for(EdgeOrData<L> l1 : L) {
-            for(EdgeOrData<L> l2 : L) {
-                if(labelOrder.lt(l1, l2)) {
-                    continue outer;
-                }
-            }
-            max.__insert(l1);
-        }
-        return max.freeze();
+    protected Iterable<S> getEdges(@SuppressWarnings("unused") LabelWF<L> re, ScopePath<S, L> path, L l) {
+        return scopeGraph.getEdges(path.getTarget(), l);
     }
 
     ///////////////////////////////////////////////////////////////////////////
-    // smaller labels                                                        //
+    // label order                                                           //
     ///////////////////////////////////////////////////////////////////////////
 
-    private final Map<Tuple2<Set.Immutable<EdgeOrData<L>>, EdgeOrData<L>>, Set.Immutable<EdgeOrData<L>>> smallerCache =
-            Maps.newHashMap();
-
-    private Set.Immutable<EdgeOrData<L>> smaller(Set.Immutable<EdgeOrData<L>> L, EdgeOrData<L> l1)
-            throws ResolutionException, InterruptedException {
-        Tuple2<Set.Immutable<EdgeOrData<L>>, EdgeOrData<L>> key = Tuple2.of(L, l1);
-        Set.Immutable<EdgeOrData<L>> smaller;
-        if(null == (smaller = smallerCache.get(key))) {
-            smallerCache.put(key, (smaller = computeSmaller(L, l1)));
-        }
-        return smaller;
-    }
+    private CompiledLabelOrder<L> compiledOrder;
 
-    private Set.Immutable<EdgeOrData<L>> computeSmaller(Set.Immutable<EdgeOrData<L>> L, EdgeOrData<L> l1)
-            throws ResolutionException, InterruptedException {
-        final Set.Transient<EdgeOrData<L>> smaller = CapsuleUtil.transientSet();
-        for(EdgeOrData<L> l2 : L) {
-            if(labelOrder.lt(l2, l1)) {
-                smaller.__insert(l2);
-            }
+    /**
+     * The set of all labels in the compiled label order, which is compiled on first use.
+     */
+    private CompiledLabelOrder.LabelSet<L> allLabels() throws ResolutionException, InterruptedException {
+        if(compiledOrder == null) {
+            compiledOrder = labelOrder.compile(edgeLabels);
         }
-        return smaller.freeze();
+        return compiledOrder.all();
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -217,6 +266,8 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
 
         private Predicate2<S, EdgeOrData<L>> isComplete = (s, l) -> true;
 
+        private @Nullable EnvCache<S, L, D> envCache = null;
+
         @Override public Builder<S, L, D> withLabelWF(LabelWF<L> labelWF) {
             this.labelWF = labelWF;
             return this;
@@ -242,9 +293,15 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
             return this;
         }
 
+        @Override public Builder<S, L, D> withEnvCache(EnvCache<S, L, D> envCache) {
+            this.envCache = envCache;
+            return this;
+        }
+
         @Override public FastNameResolution<S, L, D> build(IScopeGraph<S, L, D> scopeGraph,
                 java.util.Set<L> edgeLabels) {
-            return new FastNameResolution<>(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete);
+            return new FastNameResolution<>(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete,
+                    envCache);
         }
 
     }
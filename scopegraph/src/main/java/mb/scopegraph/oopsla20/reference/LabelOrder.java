@@ -4,6 +4,14 @@ public interface LabelOrder<L> {
 
     boolean lt(EdgeOrData<L> l1, EdgeOrData<L> l2) throws ResolutionException, InterruptedException;
 
+    /**
+     * Compile this order for the data label and the given edge labels.
+     */
+    default CompiledLabelOrder<L> compile(java.util.Set<L> edgeLabels)
+            throws ResolutionException, InterruptedException {
+        return CompiledLabelOrder.of(edgeLabels, this);
+    }
+
     static <L> LabelOrder<L> NONE() {
         return (l1, l2) -> false;
     }
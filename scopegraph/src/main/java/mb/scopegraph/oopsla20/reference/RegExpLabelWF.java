@@ -1,23 +1,63 @@
 package mb.scopegraph.oopsla20.reference;
 
+import java.util.Objects;
 import java.util.Optional;
 
 import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.regexp.RegExpMatcher;
 
 public class RegExpLabelWF<L> implements LabelWF<L> {
 
     private final IRegExpMatcher<L> re;
 
-    private RegExpLabelWF(IRegExpMatcher<L> re) {
+    /**
+     * The shared instances for all states of the automaton, if the matcher is a {@link RegExpMatcher}. The family is
+     * shared by all uses of the automaton. Steps return these instances, so that stepping does not allocate.
+     */
+    private final RegExpLabelWF<L>[] family;
+
+    /**
+     * The step results per symbol index of the automaton, with the default transition at index 0. Entries are computed
+     * on first use.
+     */
+    private final Optional<LabelWF<L>>[] steps;
+
+    @SuppressWarnings("unchecked") private RegExpLabelWF(IRegExpMatcher<L> re, RegExpLabelWF<L>[] family) {
         this.re = re;
+        this.family = family;
+        this.steps = family != null ? new Optional[((RegExpMatcher<L>) re).symbolCount() + 1] : null;
     }
 
     @Override public Optional<LabelWF<L>> step(L l) throws ResolutionException, InterruptedException {
-        final IRegExpMatcher<L> re = this.re.match(l);
-        if(re.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(new RegExpLabelWF<>(re));
+        if(family == null) {
+            final IRegExpMatcher<L> re = this.re.match(l);
+            if(re.isEmpty()) {
+                return Optional.empty();
+            } else {
+                return Optional.of(new RegExpLabelWF<>(re, null));
+            }
+        }
+        final int index = ((RegExpMatcher<L>) re).symbolIndex(l) + 1;
+        final Optional<LabelWF<L>> step = steps[index];
+        if(step != null) {
+            return step;
+        }
+        return computeStep(index);
+    }
+
+    private Optional<LabelWF<L>> computeStep(int index) {
+        synchronized(family) {
+            Optional<LabelWF<L>> step;
+            if((step = steps[index]) == null) {
+                final RegExpMatcher<L> re = ((RegExpMatcher<L>) this.re).matchIndex(index - 1);
+                if(re.isEmpty()) {
+                    step = Optional.empty();
+                } else {
+                    step = Optional.of(get(re, family));
+                }
+                steps[index] = step;
+            }
+            return step;
         }
     }
 
@@ -25,12 +65,53 @@ public class RegExpLabelWF<L> implements LabelWF<L> {
         return re.isAccepting();
     }
 
+    @Override public int hashCode() {
+        return re.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+        if(obj == null)
+            return false;
+        if(getClass() != obj.getClass())
+            return false;
+        RegExpLabelWF<?> other = (RegExpLabelWF<?>) obj;
+        return Objects.equals(re, other.re);
+    }
+
     @Override public String toString() {
         return re.toString();
     }
 
-    public static <L> RegExpLabelWF<L> of(IRegExpMatcher<L> re) {
-        return new RegExpLabelWF<>(re);
+    /**
+     * Get the label well-formedness for the given matcher. For a {@link RegExpMatcher}, this returns the shared
+     * instance for its state.
+     */
+    @SuppressWarnings("unchecked") public static <L> RegExpLabelWF<L> of(IRegExpMatcher<L> re) {
+        if(re instanceof RegExpMatcher) {
+            final RegExpMatcher<L> matcher = (RegExpMatcher<L>) re;
+            return get(matcher, matcher.shared(RegExpLabelWF.class, key -> new RegExpLabelWF[matcher.stateCount()]));
+        } else {
+            return new RegExpLabelWF<>(re, null);
+        }
+    }
+
+    /**
+     * Get the instance for the state of the given matcher from the family. Instances are created while synchronized on
+     * the family, and are immutable apart from their step cache, so they can be read without synchronization.
+     */
+    private static <L> RegExpLabelWF<L> get(RegExpMatcher<L> re, RegExpLabelWF<L>[] family) {
+        RegExpLabelWF<L> labelWF;
+        if((labelWF = family[re.stateId()]) != null) {
+            return labelWF;
+        }
+        synchronized(family) {
+            if((labelWF = family[re.stateId()]) == null) {
+                family[re.stateId()] = labelWF = new RegExpLabelWF<>(re, family);
+            }
+            return labelWF;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -14,6 +14,14 @@ public class RelationLabelOrder<L> implements LabelOrder<L> {
         return labelOrd.contains(l1, l2);
     }
 
+    @Override public CompiledLabelOrder<L> compile(java.util.Set<L> edgeLabels)
+            throws ResolutionException, InterruptedException {
+        if(labelOrd instanceof IRelation.Immutable) {
+            return CompiledLabelOrder.of(edgeLabels, (IRelation.Immutable<EdgeOrData<L>>) labelOrd);
+        }
+        return LabelOrder.super.compile(edgeLabels);
+    }
+
     @Override public String toString() {
         return labelOrd.toString();
     }
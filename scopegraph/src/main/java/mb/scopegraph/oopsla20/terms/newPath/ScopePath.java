@@ -69,6 +69,29 @@ public class ScopePath<S, L> implements IScopePath<S, L> {
         return Optional.of(new ScopePath<>(source, newPath, size + 1, scopeSet.__insert(target)));
     }
 
+    /**
+     * Replace the first steps of this path by another path. The given prefix size is the number of steps to replace,
+     * and the new prefix must end in the scope that is reached after these steps.
+     *
+     * @return The new path, or empty if the new path would contain a cycle.
+     */
+    public Optional<ScopePath<S, L>> rebase(int prefixSize, ScopePath<S, L> newPrefix) {
+        Path<S, L> suffix = reverse(this.path);
+        for(int i = 0; i < prefixSize; i++) {
+            suffix = suffix.prefix;
+        }
+        ScopePath<S, L> result = newPrefix;
+        while(suffix != null) {
+            final Optional<ScopePath<S, L>> next = result.step(suffix.label, suffix.target);
+            if(!next.isPresent()) {
+                return Optional.empty();
+            }
+            result = next.get();
+            suffix = suffix.prefix;
+        }
+        return Optional.of(result);
+    }
+
     public <D> ResolutionPath<S, L, D> resolve(D datum) {
         return new ResolutionPath<>(this, datum);
     }
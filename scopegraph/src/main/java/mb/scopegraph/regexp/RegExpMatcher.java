@@ -6,7 +6,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -32,7 +33,55 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
     }
 
     @Override public RegExpMatcher<S> match(S symbol) {
-        return new RegExpMatcher<>(state.symbolTransitions.getOrDefault(symbol, state.defaultTransition));
+        return matchIndex(symbolIndex(symbol));
+    }
+
+    /**
+     * Return the index of the given symbol in the alphabet of this matcher, or -1 if the symbol is not part of the
+     * alphabet. Indices are in the range [-1, symbolCount()).
+     */
+    public int symbolIndex(S symbol) {
+        final Integer index = state.symbols.get(symbol);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Match the symbol with the given index, as returned by {@link #symbolIndex(Object)}. Matchers are shared per state
+     * of the automaton, so this does not allocate.
+     */
+    public RegExpMatcher<S> matchIndex(int symbolIndex) {
+        final State<S> next = symbolIndex >= 0 ? state.symbolTransitions[symbolIndex] : state.defaultTransition;
+        return next.matcher;
+    }
+
+    /**
+     * The number of symbols in the alphabet of this matcher.
+     */
+    public int symbolCount() {
+        return state.symbols.size();
+    }
+
+    /**
+     * The id of the current state, in the range [0, stateCount()). Matchers created from the same automaton are equal
+     * if and only if their state ids are equal.
+     */
+    public int stateId() {
+        return state.id;
+    }
+
+    /**
+     * The number of states in the automaton of this matcher.
+     */
+    public int stateCount() {
+        return state.stateCount;
+    }
+
+    /**
+     * Get the value for the given key that is shared by all matchers of the automaton of this matcher, creating it on
+     * first use. Shared values are not serialized.
+     */
+    @SuppressWarnings("unchecked") public <T> T shared(Object key, Function<Object, T> create) {
+        return (T) state.automaton.shared().computeIfAbsent(key, create);
     }
 
     @Override public IRegExpMatcher<S> match(Iterable<S> symbols) {
@@ -123,22 +172,31 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
         final Set<IRegExp<S>> isNullable =
                 stateTransitions.keySet().stream().filter(RegExps::isNullable).collect(ImmutableSet.toImmutableSet());
 
-        // convert maps to object graph
-        Map<IRegExp<S>, State<S>> states = Maps.newHashMapWithExpectedSize(stateTransitions.size());
+        // index the alphabet
+        final Map<S, Integer> symbols = Maps.newHashMapWithExpectedSize(derivers.size());
+        for(Deriver<S> deriver : derivers) {
+            symbols.put(deriver.getSymbol(), symbols.size());
+        }
+
+        // convert maps to object graph, with transition tables indexed by symbol
+        final int stateCount = stateTransitions.size();
+        final Automaton automaton = new Automaton();
+        Map<IRegExp<S>, State<S>> states = Maps.newHashMapWithExpectedSize(stateCount);
         for(IRegExp<S> state : stateTransitions.keySet()) {
             final State<S> _state;
-            states.put(state, _state = new State<>(state));
+            states.put(state, _state = new State<>(state, states.size(), stateCount, symbols, automaton));
             _state.isNullable = isNullable.contains(state);
             _state.nonFinal = nonFinal.contains(state);
         }
         for(IRegExp<S> state : stateTransitions.keySet()) {
             final State<S> _state = states.get(state);
             _state.defaultTransition = states.get(defaultTransitions.get(state));
-            _state.symbolTransitions = stateTransitions.get(state).entrySet().stream()
-                    .collect(Collectors.toMap(e -> e.getKey(), e -> states.get(e.getValue())));
+            for(Map.Entry<S, IRegExp<S>> e : stateTransitions.get(state).entrySet()) {
+                _state.symbolTransitions[symbols.get(e.getKey())] = states.get(e.getValue());
+            }
         }
 
-        return new RegExpMatcher<>(states.get(initial));
+        return states.get(initial).matcher;
     }
 
     private static class State<S> implements Serializable {
@@ -146,18 +204,32 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
         private static final long serialVersionUID = 1L;
 
         private final IRegExp<S> regexp;
-
-        private Map<S, State<S>> symbolTransitions;
+        private final int hashCode;
+        private final int id;
+        private final int stateCount;
+        private final Map<S, Integer> symbols;
+        private final Automaton automaton;
+        private final RegExpMatcher<S> matcher;
+
+        private final State<S>[] symbolTransitions;
         private State<S> defaultTransition;
         private boolean nonFinal;
         private boolean isNullable;
 
-        private State(IRegExp<S> regexp) {
+        @SuppressWarnings("unchecked") private State(IRegExp<S> regexp, int id, int stateCount,
+                Map<S, Integer> symbols, Automaton automaton) {
             this.regexp = regexp;
+            this.hashCode = Objects.hash(regexp);
+            this.id = id;
+            this.stateCount = stateCount;
+            this.symbols = symbols;
+            this.automaton = automaton;
+            this.symbolTransitions = new State[symbols.size()];
+            this.matcher = new RegExpMatcher<>(this);
         }
 
         @Override public int hashCode() {
-            return Objects.hash(regexp);
+            return hashCode;
         }
 
         @Override public boolean equals(Object obj) {
@@ -168,7 +240,11 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
             if(getClass() != obj.getClass())
                 return false;
             State<?> other = (State<?>) obj;
-            return Objects.equals(regexp, other.regexp);
+            if(symbols == other.symbols) {
+                // states of the same automaton
+                return id == other.id;
+            }
+            return hashCode == other.hashCode && Objects.equals(regexp, other.regexp);
         }
 
         @Override public String toString() {
@@ -177,6 +253,29 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
 
     }
 
+    /**
+     * The values shared by all states of an automaton.
+     */
+    private static class Automaton implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient volatile ConcurrentHashMap<Object, Object> shared;
+
+        private ConcurrentHashMap<Object, Object> shared() {
+            ConcurrentHashMap<Object, Object> shared;
+            if((shared = this.shared) == null) {
+                synchronized(this) {
+                    if((shared = this.shared) == null) {
+                        this.shared = shared = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+            return shared;
+        }
+
+    }
+
     @Override public boolean equals(Object o) {
         if(this == o)
             return true;
@@ -187,7 +286,7 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
     }
 
     @Override public int hashCode() {
-        return Objects.hash(state);
+        return state.hashCode;
     }
 
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.io.Serializable;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.collection.HashTrieRelation2;
 import org.metaborg.util.collection.IRelation2;
@@ -13,6 +15,7 @@ import org.metaborg.util.tuple.Tuple2;
 
 import com.google.common.collect.Sets;
 
+import io.usethesource.capsule.Map;
 import io.usethesource.capsule.Set;
 import mb.scopegraph.relations.ARelationDescription.Reflexivity;
 import mb.scopegraph.relations.ARelationDescription.Symmetry;
@@ -30,15 +33,40 @@ public abstract class Relation<T> implements IRelation<T> {
     protected Relation() {
     }
 
+    /**
+     * Returns the elements that are larger than the given element in the transitive closure of the entries. The element
+     * itself is only included if it has an entry to itself, or is on a cycle. Only used for transitive relations.
+     */
+    protected abstract Set.Immutable<T> largerClosure(T t);
+
+    /**
+     * Returns the elements that are smaller than the given element in the transitive closure of the entries. The
+     * element itself is only included if it has an entry to itself, or is on a cycle. Only used for transitive
+     * relations.
+     */
+    protected abstract Set.Immutable<T> smallerClosure(T t);
+
+    private boolean isTransitive() {
+        return getDescription().getTransitivity().equals(Transitivity.TRANSITIVE);
+    }
+
     @Override public boolean isEmpty() {
         return entries().isEmpty();
     }
 
     @Override public Set.Immutable<T> smaller(T t) {
-        Set.Transient<T> ts = CapsuleUtil.transientSet();
-        smaller(t, ts, Sets.newHashSet());
-        if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
-            larger(t, ts, Sets.newHashSet());
+        Set.Transient<T> ts;
+        if(isTransitive()) {
+            ts = smallerClosure(t).asTransient();
+            if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
+                ts.__insertAll(largerClosure(t));
+            }
+        } else {
+            ts = CapsuleUtil.transientSet();
+            smaller(t, ts, Sets.newHashSet());
+            if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
+                larger(t, ts, Sets.newHashSet());
+            }
         }
         if(getDescription().getReflexivity().equals(Reflexivity.REFLEXIVE)) {
             ts.__insert(t);
@@ -60,10 +88,18 @@ public abstract class Relation<T> implements IRelation<T> {
 
 
     @Override public Set.Immutable<T> larger(T t) {
-        Set.Transient<T> ts = CapsuleUtil.transientSet();
-        larger(t, ts, Sets.newHashSet());
-        if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
-            smaller(t, ts, Sets.newHashSet());
+        Set.Transient<T> ts;
+        if(isTransitive()) {
+            ts = largerClosure(t).asTransient();
+            if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
+                ts.__insertAll(smallerClosure(t));
+            }
+        } else {
+            ts = CapsuleUtil.transientSet();
+            larger(t, ts, Sets.newHashSet());
+            if(getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
+                smaller(t, ts, Sets.newHashSet());
+            }
         }
         if(getDescription().getReflexivity().equals(Reflexivity.REFLEXIVE)) {
             ts.__insert(t);
@@ -95,6 +131,10 @@ public abstract class Relation<T> implements IRelation<T> {
                     break;
             }
         }
+        if(isTransitive()) {
+            return largerClosure(t1).contains(t2) || (getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)
+                    && largerClosure(t2).contains(t1));
+        }
         boolean hit = contains(t1, t2, Sets.newHashSet());
         if(!hit && getDescription().getSymmetry().equals(Symmetry.SYMMETRIC)) {
             hit |= contains(t2, t1, Sets.newHashSet());
@@ -150,10 +190,9 @@ public abstract class Relation<T> implements IRelation<T> {
             logger.warn("Lub must be called on partial-order, ignored.");
             return Optional.empty();
         }
-        java.util.Set<T> bounds = Sets.newHashSet();
-        bounds.addAll(larger(t1));
-        bounds.retainAll(larger(t2));
-        return bounds.stream().filter(l -> bounds.stream().allMatch(g -> contains(l, g))).findFirst();
+        final Set.Immutable<T> bounds = intersect(larger(t1), larger(t2));
+        // in a partial order, the least bound is the only bound that is smaller than or equal to all bounds
+        return bounds.stream().filter(l -> sizeWithout(largerClosure(l), l) + 1 == bounds.size()).findFirst();
     }
 
     @Override public Optional<T> greatestLowerBound(T t1, T t2) {
@@ -161,10 +200,26 @@ public abstract class Relation<T> implements IRelation<T> {
             logger.warn("Glb must be called on partial-order, ignored.");
             return Optional.empty();
         }
-        java.util.Set<T> bounds = Sets.newHashSet();
-        bounds.addAll(smaller(t1));
-        bounds.retainAll(smaller(t2));
-        return bounds.stream().filter(g -> bounds.stream().allMatch(l -> contains(l, g))).findFirst();
+        final Set.Immutable<T> bounds = intersect(smaller(t1), smaller(t2));
+        // in a partial order, the greatest bound is the only bound that is larger than or equal to all bounds
+        return bounds.stream().filter(g -> sizeWithout(smallerClosure(g), g) + 1 == bounds.size()).findFirst();
+    }
+
+    private static <T> int sizeWithout(Set.Immutable<T> ts, T t) {
+        return ts.contains(t) ? ts.size() - 1 : ts.size();
+    }
+
+    private static <T> Set.Immutable<T> intersect(Set.Immutable<T> ts1, Set.Immutable<T> ts2) {
+        if(ts1.size() > ts2.size()) {
+            return intersect(ts2, ts1);
+        }
+        final Set.Transient<T> ts = CapsuleUtil.transientSet();
+        for(T t : ts1) {
+            if(ts2.contains(t)) {
+                ts.__insert(t);
+            }
+        }
+        return ts.freeze();
     }
 
 
@@ -192,9 +247,17 @@ public abstract class Relation<T> implements IRelation<T> {
         protected final RelationDescription description;
         protected final IRelation2.Immutable<T, T> entries;
 
+        private transient volatile Closure<T> closure;
+
         public Immutable(RelationDescription description, IRelation2.Immutable<T, T> entries) {
+            this(description, entries, null);
+        }
+
+        private Immutable(RelationDescription description, IRelation2.Immutable<T, T> entries,
+                @Nullable Closure<T> closure) {
             this.description = description;
             this.entries = entries;
+            this.closure = closure;
         }
 
         @Override public RelationDescription getDescription() {
@@ -205,8 +268,34 @@ public abstract class Relation<T> implements IRelation<T> {
             return entries;
         }
 
+        @Override protected Set.Immutable<T> largerClosure(T t) {
+            return closure().larger.getOrDefault(t, Set.Immutable.of());
+        }
+
+        @Override protected Set.Immutable<T> smallerClosure(T t) {
+            return closure().smaller.getOrDefault(t, Set.Immutable.of());
+        }
+
+        /**
+         * The closure is not serialized, and computed on demand.
+         */
+        private Closure<T> closure() {
+            Closure<T> result = closure;
+            if(result == null) {
+                final Closure.Transient<T> _closure = new Closure.Transient<>();
+                entries.stream().forEach(e -> _closure.add(e._1(), e._2()));
+                result = _closure.freeze();
+                closure = result;
+            }
+            return result;
+        }
+
         @Override public IRelation.Transient<T> melt() {
-            return new Relation.Transient<>(description, entries.melt());
+            final Closure<T> closure = this.closure;
+            if(closure == null) {
+                return new Relation.Transient<>(description, entries.melt());
+            }
+            return new Relation.Transient<>(description, entries.melt(), closure.melt());
         }
 
         public static <T> Relation.Immutable<T> of(RelationDescription description) {
@@ -244,9 +333,25 @@ public abstract class Relation<T> implements IRelation<T> {
         protected final RelationDescription description;
         protected final IRelation2.Transient<T, T> entries;
 
+        private final @Nullable Closure.Transient<T> closure;
+
         public Transient(RelationDescription description, IRelation2.Transient<T, T> entries) {
             this.description = description;
             this.entries = entries;
+            if(description.getTransitivity().equals(Transitivity.TRANSITIVE)) {
+                final Closure.Transient<T> closure = new Closure.Transient<>();
+                entries.stream().forEach(e -> closure.add(e._1(), e._2()));
+                this.closure = closure;
+            } else {
+                this.closure = null;
+            }
+        }
+
+        private Transient(RelationDescription description, IRelation2.Transient<T, T> entries,
+                Closure.Transient<T> closure) {
+            this.description = description;
+            this.entries = entries;
+            this.closure = closure;
         }
 
         @Override public RelationDescription getDescription() {
@@ -258,13 +363,27 @@ public abstract class Relation<T> implements IRelation<T> {
             return entries;
         }
 
+        @Override protected Set.Immutable<T> largerClosure(T t) {
+            return closure.larger.getOrDefault(t, Set.Immutable.of());
+        }
+
+        @Override protected Set.Immutable<T> smallerClosure(T t) {
+            return closure.smaller.getOrDefault(t, Set.Immutable.of());
+        }
+
         @Override public boolean add(T t1, T t2) throws RelationException {
             canAddOrThrow(t1, t2);
-            return entries.put(t1, t2);
+            if(!entries.put(t1, t2)) {
+                return false;
+            }
+            if(closure != null) {
+                closure.add(t1, t2);
+            }
+            return true;
         }
 
         @Override public IRelation.Immutable<T> freeze() {
-            return new Relation.Immutable<>(description, entries.freeze());
+            return new Relation.Immutable<>(description, entries.freeze(), closure != null ? closure.freeze() : null);
         }
 
         public static <T> IRelation.Transient<T> of(RelationDescription description) {
@@ -273,4 +392,60 @@ public abstract class Relation<T> implements IRelation<T> {
 
     }
 
+
+    /**
+     * Transitive closure of the entries of a transitive relation, indexed in both directions, and maintained
+     * incrementally when entries are added.
+     */
+    private static class Closure<T> {
+
+        private final Map.Immutable<T, Set.Immutable<T>> larger;
+        private final Map.Immutable<T, Set.Immutable<T>> smaller;
+
+        private Closure(Map.Immutable<T, Set.Immutable<T>> larger, Map.Immutable<T, Set.Immutable<T>> smaller) {
+            this.larger = larger;
+            this.smaller = smaller;
+        }
+
+        private Closure.Transient<T> melt() {
+            return new Closure.Transient<>(larger.asTransient(), smaller.asTransient());
+        }
+
+        private static class Transient<T> {
+
+            private final Map.Transient<T, Set.Immutable<T>> larger;
+            private final Map.Transient<T, Set.Immutable<T>> smaller;
+
+            private Transient() {
+                this(Map.Transient.of(), Map.Transient.of());
+            }
+
+            private Transient(Map.Transient<T, Set.Immutable<T>> larger, Map.Transient<T, Set.Immutable<T>> smaller) {
+                this.larger = larger;
+                this.smaller = smaller;
+            }
+
+            /**
+             * Add the entry t1 < t2, which makes everything smaller than or equal to t1 smaller than everything larger
+             * than or equal to t2.
+             */
+            private void add(T t1, T t2) {
+                final Set.Immutable<T> ts1 = smaller.getOrDefault(t1, Set.Immutable.of()).__insert(t1);
+                final Set.Immutable<T> ts2 = larger.getOrDefault(t2, Set.Immutable.of()).__insert(t2);
+                for(T t : ts1) {
+                    larger.__put(t, larger.getOrDefault(t, Set.Immutable.of()).__insertAll(ts2));
+                }
+                for(T t : ts2) {
+                    smaller.__put(t, smaller.getOrDefault(t, Set.Immutable.of()).__insertAll(ts1));
+                }
+            }
+
+            private Closure<T> freeze() {
+                return new Closure<>(larger.freeze(), smaller.freeze());
+            }
+
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package mb.scopegraph.oopsla20.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
+import mb.scopegraph.relations.IRelation;
+import mb.scopegraph.relations.RelationDescription;
+import mb.scopegraph.relations.RelationException;
+import mb.scopegraph.relations.impl.Relation;
+
+public class BatchNameResolutionTest {
+
+    private final Set<String> labels = ImmutableSet.of("P", "I");
+
+    @Test public void testSameAsSeparate() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .addEdge("s0", "I", "s2")
+                .addEdge("s1", "P", "s2")
+                .addEdge("s2", "P", "s1")
+                .addEdge("s2", "I", "s3")
+                .setDatum("s1", "x")
+                .setDatum("s2", "y")
+                .setDatum("s3", "x");
+        // @formatter:on
+        final DataWF<String> isX = d -> d.equals("x");
+        final DataWF<String> isY = d -> d.equals("y");
+        final DataLeq<String> same = new DataLeq<String>() {
+
+            @Override public boolean leq(String d1, String d2) {
+                return d1.equals(d2);
+            }
+
+            @Override public boolean alwaysTrue() {
+                return false;
+            }
+
+        };
+        // @formatter:off
+        final List<BatchNameResolution.Query<String>> queries = ImmutableList.of(
+                new BatchNameResolution.Query<>(DataWF.ANY(), DataLeq.NONE()),
+                new BatchNameResolution.Query<>(DataWF.ANY(), DataLeq.ALL()),
+                new BatchNameResolution.Query<>(isX, same),
+                new BatchNameResolution.Query<>(isY, DataLeq.NONE())
+        );
+        // @formatter:on
+        final List<BatchNameResolution.Result<String, String, String>> results =
+                new BatchNameResolution<>(scopeGraph, labels, LabelWF.ANY(), labelOrder(), (s, l) -> true)
+                        .resolve("s0", queries, new NullCancel());
+        assertEquals(queries.size(), results.size());
+        assertEquals(separate(scopeGraph, DataWF.ANY(), DataLeq.NONE()), Sets.newHashSet(results.get(0).env()));
+        assertEquals(separate(scopeGraph, DataWF.ANY(), DataLeq.ALL()), Sets.newHashSet(results.get(1).env()));
+        assertEquals(separate(scopeGraph, isX, same), Sets.newHashSet(results.get(2).env()));
+        assertEquals(separate(scopeGraph, isY, DataLeq.NONE()), Sets.newHashSet(results.get(3).env()));
+    }
+
+    @Test public void testFailuresArePerQuery() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .setDatum("s1", "x");
+        // @formatter:on
+        final DataWF<String> failing = d -> {
+            throw new ResolutionException("Failing data well-formedness.");
+        };
+        final List<BatchNameResolution.Query<String>> queries =
+                ImmutableList.of(new BatchNameResolution.Query<>(failing, DataLeq.NONE()),
+                        new BatchNameResolution.Query<>(DataWF.ANY(), DataLeq.NONE()));
+        final List<BatchNameResolution.Result<String, String, String>> results =
+                new BatchNameResolution<>(scopeGraph, labels, LabelWF.ANY(), labelOrder(), (s, l) -> true)
+                        .resolve("s0", queries, new NullCancel());
+        try {
+            results.get(0).env();
+            fail("Expected resolution exception.");
+        } catch(ResolutionException e) {
+            // expected
+        }
+        assertEquals(1, results.get(1).env().size());
+    }
+
+    @Test public void testIncompleteFailsAll() throws InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .setDatum("s1", "x");
+        // @formatter:on
+        final List<BatchNameResolution.Query<String>> queries =
+                ImmutableList.of(new BatchNameResolution.Query<>(DataWF.ANY(), DataLeq.NONE()),
+                        new BatchNameResolution.Query<>(DataWF.ANY(), DataLeq.ALL()));
+        final List<BatchNameResolution.Result<String, String, String>> results =
+                new BatchNameResolution<>(scopeGraph, labels, LabelWF.ANY(), labelOrder(),
+                        (s, l) -> !s.equals("s1")).resolve("s0", queries, new NullCancel());
+        for(BatchNameResolution.Result<String, String, String> result : results) {
+            try {
+                result.env();
+                fail("Expected incomplete exception.");
+            } catch(IncompleteException e) {
+                assertEquals("s1", e.scope());
+            } catch(ResolutionException e) {
+                fail("Expected incomplete exception.");
+            }
+        }
+    }
+
+    private ScopeGraph.Immutable<String, String, String> emptyScopeGraph() {
+        return ScopeGraph.Immutable.of();
+    }
+
+    private Set<ResolutionPath<String, String, String>> separate(
+            IScopeGraph.Immutable<String, String, String> scopeGraph, DataWF<String> dataWF, DataLeq<String> dataEquiv)
+            throws ResolutionException, InterruptedException, RelationException {
+        return Sets.newHashSet(FastNameResolution.<String, String, String>builder().withLabelOrder(labelOrder())
+                .withDataWF(dataWF).withDataEquiv(dataEquiv).build(scopeGraph, labels).resolve("s0", new NullCancel()));
+    }
+
+    private LabelOrder<String> labelOrder() throws RelationException {
+        final IRelation.Transient<EdgeOrData<String>> relation =
+                Relation.Transient.of(RelationDescription.STRICT_PARTIAL_ORDER);
+        relation.add(EdgeOrData.data(), EdgeOrData.edge("I"));
+        relation.add(EdgeOrData.edge("I"), EdgeOrData.edge("P"));
+        return new RelationLabelOrder<>(relation.freeze());
+    }
+
+}
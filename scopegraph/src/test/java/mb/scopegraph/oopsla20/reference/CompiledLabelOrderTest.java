@@ -0,0 +1,90 @@
+package mb.scopegraph.oopsla20.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import io.usethesource.capsule.Set;
+import mb.scopegraph.relations.IRelation;
+import mb.scopegraph.relations.RelationDescription;
+import mb.scopegraph.relations.RelationException;
+import mb.scopegraph.relations.impl.Relation;
+
+public class CompiledLabelOrderTest {
+
+    private final EdgeOrData<String> D = EdgeOrData.data();
+    private final EdgeOrData<String> P = EdgeOrData.edge("P");
+    private final EdgeOrData<String> I = EdgeOrData.edge("I");
+    private final EdgeOrData<String> X = EdgeOrData.edge("X");
+
+    private final java.util.Set<String> edgeLabels = ImmutableSet.of("P", "I", "X");
+
+    @Test public void testMaxAndSmaller() throws ResolutionException, InterruptedException, RelationException {
+        // D < I < P, X unordered
+        final CompiledLabelOrder<String> order = CompiledLabelOrder.of(edgeLabels, order());
+        final CompiledLabelOrder.LabelSet<String> all = order.all();
+        assertEquals(Set.Immutable.of(D, P, I, X), all.labels());
+        assertEquals(2, all.maxCount());
+        for(int i = 0; i < all.maxCount(); i++) {
+            if(all.max(i).equals(P)) {
+                assertEquals(Set.Immutable.of(D, I), all.smaller(i).labels());
+            } else {
+                assertEquals(X, all.max(i));
+                assertTrue(all.smaller(i).isEmpty());
+            }
+        }
+    }
+
+    @Test public void testSharedLabelSets() throws ResolutionException, InterruptedException, RelationException {
+        final CompiledLabelOrder<String> order = CompiledLabelOrder.of(edgeLabels, order());
+        final CompiledLabelOrder.LabelSet<String> all = order.all();
+        final CompiledLabelOrder.LabelSet<String> smallerP = all.smaller(indexOfMax(all, P));
+        final CompiledLabelOrder.LabelSet<String> smallerI = smallerP.smaller(indexOfMax(smallerP, I));
+        assertEquals(Set.Immutable.of(D), smallerI.labels());
+        assertSame(smallerP, all.smaller(indexOfMax(all, P)));
+        assertSame(smallerI, smallerP.smaller(indexOfMax(smallerP, I)));
+    }
+
+    @Test public void testCachedRelationOrders() throws RelationException {
+        final IRelation.Immutable<EdgeOrData<String>> relation = relation();
+        assertSame(CompiledLabelOrder.of(edgeLabels, relation), CompiledLabelOrder.of(edgeLabels, relation));
+        assertNotSame(CompiledLabelOrder.of(edgeLabels, relation), CompiledLabelOrder.of(edgeLabels, relation()));
+    }
+
+    @Test public void testCachedRelationOrdersConcurrently() throws RelationException {
+        final IRelation.Immutable<EdgeOrData<String>> relation = relation();
+        final java.util.Set<CompiledLabelOrder<String>> orders = IntStream.range(0, 64).parallel()
+                .mapToObj(i -> CompiledLabelOrder.of(edgeLabels, relation)).collect(Collectors.toSet());
+        assertEquals(1, orders.size());
+    }
+
+    private int indexOfMax(CompiledLabelOrder.LabelSet<String> labels, EdgeOrData<String> label) {
+        for(int i = 0; i < labels.maxCount(); i++) {
+            if(labels.max(i).equals(label)) {
+                return i;
+            }
+        }
+        throw new AssertionError(label + " is not maximal in " + labels);
+    }
+
+    private LabelOrder<String> order() throws RelationException {
+        return new RelationLabelOrder<>(relation());
+    }
+
+    private IRelation.Immutable<EdgeOrData<String>> relation() throws RelationException {
+        final IRelation.Transient<EdgeOrData<String>> relation =
+                Relation.Transient.of(RelationDescription.STRICT_PARTIAL_ORDER);
+        relation.add(D, I);
+        relation.add(I, P);
+        return relation.freeze();
+    }
+
+}
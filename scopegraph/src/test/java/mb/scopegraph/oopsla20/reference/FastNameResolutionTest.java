@@ -0,0 +1,131 @@
+package mb.scopegraph.oopsla20.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
+import mb.scopegraph.relations.IRelation;
+import mb.scopegraph.relations.RelationDescription;
+import mb.scopegraph.relations.RelationException;
+import mb.scopegraph.relations.impl.Relation;
+
+public class FastNameResolutionTest {
+
+    private final Set<String> labels = ImmutableSet.of("P", "I");
+
+    @Test public void testDiamond() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .addEdge("s0", "P", "s2")
+                .addEdge("s1", "P", "s3")
+                .addEdge("s2", "P", "s3")
+                .setDatum("s3", "x");
+        // @formatter:on
+        final Env<String, String, String> env = fast(DataLeq.NONE()).build(scopeGraph, labels).resolve("s0",
+                new NullCancel());
+        assertEquals(2, env.size());
+        assertEquals(reference(DataLeq.NONE(), scopeGraph), Sets.newHashSet(env));
+    }
+
+    @Test public void testCycles() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .addEdge("s0", "I", "s2")
+                .addEdge("s1", "P", "s2")
+                .addEdge("s2", "P", "s1")
+                .addEdge("s2", "I", "s0")
+                .addEdge("s1", "I", "s3")
+                .addEdge("s2", "I", "s3")
+                .setDatum("s1", "x")
+                .setDatum("s2", "y")
+                .setDatum("s3", "z");
+        // @formatter:on
+        assertEquals(reference(DataLeq.ALL(), scopeGraph),
+                Sets.newHashSet(fast(DataLeq.ALL()).build(scopeGraph, labels).resolve("s0", new NullCancel())));
+        for(String scope : ImmutableSet.of("s0", "s1", "s2", "s3")) {
+            assertEquals(reference(DataLeq.NONE(), scopeGraph, scope), Sets.newHashSet(
+                    fast(DataLeq.NONE()).build(scopeGraph, labels).resolve(scope, new NullCancel())));
+        }
+    }
+
+    @Test public void testEnvCache() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s2")
+                .addEdge("s1", "P", "s2")
+                .setDatum("s2", "x");
+        // @formatter:on
+        final EnvCache<String, String, String> envCache = new EnvCache<>();
+        final DataLeq<String> dataEquiv = DataLeq.NONE();
+        final DataWF<String> dataWF = DataWF.ANY();
+        final FastNameResolution.Builder<String, String, String> builder =
+                fast(dataEquiv).withDataWF(dataWF).withEnvCache(envCache);
+        assertEquals(1, builder.build(scopeGraph, labels).resolve("s0", new NullCancel()).size());
+        final long hits = envCache.hits();
+        assertEquals(1, builder.build(scopeGraph, labels).resolve("s1", new NullCancel()).size());
+        assertTrue(envCache.hits() > hits);
+
+        // changing the scope graph invalidates the cache
+        final IScopeGraph.Immutable<String, String, String> newScopeGraph = scopeGraph.setDatum("s1", "y");
+        assertEquals(2, builder.build(newScopeGraph, labels).resolve("s1", new NullCancel()).size());
+    }
+
+    @Test public void testEnvCacheBounded() throws ResolutionException, InterruptedException, RelationException {
+        // @formatter:off
+        final IScopeGraph.Immutable<String, String, String> scopeGraph = emptyScopeGraph()
+                .addEdge("s0", "P", "s1")
+                .addEdge("s1", "P", "s2")
+                .setDatum("s2", "x");
+        // @formatter:on
+        final EnvCache<String, String, String> envCache = new EnvCache<>(1);
+        final FastNameResolution.Builder<String, String, String> builder =
+                fast(DataLeq.NONE()).withDataWF(DataWF.ANY()).withEnvCache(envCache);
+        assertEquals(1, builder.build(scopeGraph, labels).resolve("s0", new NullCancel()).size());
+        assertEquals(1, envCache.size());
+        assertEquals(1, builder.build(scopeGraph, labels).resolve("s1", new NullCancel()).size());
+        assertEquals(1, envCache.size());
+    }
+
+    private ScopeGraph.Immutable<String, String, String> emptyScopeGraph() {
+        return ScopeGraph.Immutable.of();
+    }
+
+    private FastNameResolution.Builder<String, String, String> fast(DataLeq<String> dataEquiv)
+            throws RelationException {
+        return FastNameResolution.<String, String, String>builder().withLabelOrder(labelOrder())
+                .withDataEquiv(dataEquiv);
+    }
+
+    private Set<ResolutionPath<String, String, String>> reference(DataLeq<String> dataEquiv,
+            IScopeGraph.Immutable<String, String, String> scopeGraph)
+            throws ResolutionException, InterruptedException, RelationException {
+        return reference(dataEquiv, scopeGraph, "s0");
+    }
+
+    private Set<ResolutionPath<String, String, String>> reference(DataLeq<String> dataEquiv,
+            IScopeGraph.Immutable<String, String, String> scopeGraph, String scope)
+            throws ResolutionException, InterruptedException, RelationException {
+        return Sets.newHashSet(NameResolution.<String, String, String>builder().withLabelOrder(labelOrder())
+                .withDataEquiv(dataEquiv).build(scopeGraph, labels).resolve(scope, new NullCancel()));
+    }
+
+    private LabelOrder<String> labelOrder() throws RelationException {
+        final IRelation.Transient<EdgeOrData<String>> relation =
+                Relation.Transient.of(RelationDescription.STRICT_PARTIAL_ORDER);
+        relation.add(EdgeOrData.data(), EdgeOrData.edge("I"));
+        relation.add(EdgeOrData.edge("I"), EdgeOrData.edge("P"));
+        return new RelationLabelOrder<>(relation.freeze());
+    }
+
+}
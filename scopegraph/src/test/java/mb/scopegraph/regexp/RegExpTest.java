@@ -1,6 +1,8 @@
 package mb.scopegraph.regexp;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
@@ -8,6 +10,9 @@ import org.junit.Test;
 
 import com.google.common.collect.Lists;
 
+import mb.scopegraph.ecoop21.LabelWf;
+import mb.scopegraph.ecoop21.RegExpLabelWf;
+import mb.scopegraph.oopsla20.reference.RegExpLabelWF;
 import mb.scopegraph.regexp.impl.RegExpBuilder;
 
 public class RegExpTest {
@@ -121,4 +126,29 @@ public class RegExpTest {
         assertFalse(m.isAccepting());
     }
 
+    @Test public void testSharedStates() {
+        IRegExp<Integer> re = b.concat(b.closure(b.symbol(1)), b.symbol(3));
+        IRegExpMatcher<Integer> m = RegExpMatcher.create(re);
+        assertSame(m.match(1), m.match(1).match(1));
+        assertSame(m.match(7), m.match(3).match(3));
+        assertNotSame(m.match(1), m.match(3));
+    }
+
+    @Test public void testSharedLabelWfStates() {
+        IRegExp<Integer> re = b.concat(b.closure(b.symbol(1)), b.symbol(3));
+        LabelWf<Integer> wf = RegExpLabelWf.of(RegExpMatcher.create(re));
+        assertSame(wf.step(1).get(), wf.step(1).get().step(1).get());
+        assertSame(wf.step(3).get(), wf.step(1).get().step(3).get());
+        assertFalse(wf.step(7).isPresent());
+        assertTrue(wf.step(3).get().accepting());
+    }
+
+    @Test public void testLabelWfSharedBetweenUses() {
+        IRegExp<Integer> re = b.concat(b.closure(b.symbol(1)), b.symbol(3));
+        IRegExpMatcher<Integer> m = RegExpMatcher.create(re);
+        assertSame(RegExpLabelWf.of(m), RegExpLabelWf.of(m));
+        assertSame(RegExpLabelWf.of(m).step(1).get(), RegExpLabelWf.of(m.match(1)));
+        assertSame(RegExpLabelWF.of(m), RegExpLabelWF.of(m));
+    }
+
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package mb.scopegraph.relations;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import org.metaborg.util.collection.HashTrieRelation2;
+import org.metaborg.util.collection.IRelation2;
 
 import com.google.common.collect.Iterables;
 
@@ -176,4 +179,82 @@ public class RelationTest {
         r.add(3, 1);
     }
 
-}
\ No newline at end of file
+    @Test public void testNonreflexiveTransitive_Refl() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription
+                .of(Reflexivity.NON_REFLEXIVE, Symmetry.NON_SYMMETRIC, Transitivity.TRANSITIVE));
+        r.add(1, 1);
+        r.add(1, 2);
+        assertTrue(r.contains(1, 1));
+        assertFalse(r.contains(2, 2));
+        assertTrue(Iterables.contains(r.larger(1), 1));
+    }
+
+    // bounds
+
+    @Test public void testPartialOrder_BoundsWithRefl() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription.PARTIAL_ORDER);
+        r.add(1, 1);
+        r.add(1, 2);
+        assertEquals(1, (int) r.leastUpperBound(1, 1).orElse(Integer.MIN_VALUE));
+        assertEquals(2, (int) r.leastUpperBound(1, 2).orElse(Integer.MIN_VALUE));
+        assertEquals(1, (int) r.greatestLowerBound(1, 1).orElse(Integer.MIN_VALUE));
+        assertEquals(1, (int) r.greatestLowerBound(1, 2).orElse(Integer.MIN_VALUE));
+        assertEquals(2, (int) r.freeze().leastUpperBound(1, 2).orElse(Integer.MIN_VALUE));
+    }
+
+    @Test public void testPartialOrder_BoundsDiamond() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription.PARTIAL_ORDER);
+        r.add(1, 2);
+        r.add(1, 3);
+        r.add(2, 4);
+        r.add(3, 4);
+        assertEquals(4, (int) r.leastUpperBound(2, 3).orElse(Integer.MIN_VALUE));
+        assertEquals(1, (int) r.greatestLowerBound(2, 3).orElse(Integer.MIN_VALUE));
+        assertEquals(4, (int) r.leastUpperBound(1, 4).orElse(Integer.MIN_VALUE));
+        assertEquals(1, (int) r.greatestLowerBound(1, 4).orElse(Integer.MIN_VALUE));
+    }
+
+    @Test public void testPartialOrder_NoBounds() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription.PARTIAL_ORDER);
+        r.add(1, 2);
+        r.add(3, 4);
+        assertFalse(r.leastUpperBound(1, 3).isPresent());
+        assertFalse(r.greatestLowerBound(2, 4).isPresent());
+    }
+
+    @Test public void testPartialOrder_NoLeastBound() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription.PARTIAL_ORDER);
+        r.add(1, 3);
+        r.add(1, 4);
+        r.add(2, 3);
+        r.add(2, 4);
+        assertFalse(r.leastUpperBound(1, 2).isPresent());
+        assertFalse(r.greatestLowerBound(3, 4).isPresent());
+    }
+
+    // persistence
+
+    @Test public void testTransitive_MeltFreeze() throws RelationException {
+        IRelation.Transient<Integer> r = Relation.Transient.of(RelationDescription
+                .of(Reflexivity.NON_REFLEXIVE, Symmetry.NON_SYMMETRIC, Transitivity.TRANSITIVE));
+        r.add(1, 2);
+        IRelation.Immutable<Integer> r1 = r.freeze();
+        IRelation.Transient<Integer> r2 = r1.melt();
+        r2.add(2, 3);
+        assertTrue(r2.contains(1, 3));
+        assertFalse(r1.contains(1, 3));
+        assertEquals(r2.larger(1), r2.freeze().larger(1));
+    }
+
+    @Test public void testTransitive_ImmutableFromEntries() throws RelationException {
+        IRelation2.Transient<Integer, Integer> entries = HashTrieRelation2.Transient.of();
+        entries.put(1, 2);
+        entries.put(2, 3);
+        IRelation.Immutable<Integer> r1 = new Relation.Immutable<>(RelationDescription
+                .of(Reflexivity.NON_REFLEXIVE, Symmetry.NON_SYMMETRIC, Transitivity.TRANSITIVE), entries.freeze());
+        assertTrue(r1.contains(1, 3));
+        assertTrue(Iterables.contains(r1.smaller(3), 1));
+        assertTrue(r1.melt().contains(1, 3));
+    }
+
+}
@@ -3,6 +3,9 @@ package mb.statix.concurrent;
 import static mb.nabl2.terms.build.TermBuild.B;
 import static mb.nabl2.terms.matching.TermMatch.M;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Set;
 
@@ -22,9 +25,23 @@ public interface IStatixLibrary extends IScopeGraphLibrary<Scope, ITerm, ITerm>
 
     IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph();
 
+    /**
+     * Match a library term, or a reference to a library snapshot file, which is memory mapped instead of read as a term.
+     */
     static IMatcher<IStatixLibrary> matcher() {
-        return M.appl3("Library", M.listElems(Scope.matcher()), M.listElems(Scope.matcher()), StatixTerms.scopeGraph(),
-                (t, rootScopes, ownScopes, scopeGraph) -> new StatixLibrary(rootScopes, ownScopes, scopeGraph));
+        // @formatter:off
+        return M.cases(
+            M.appl3("Library", M.listElems(Scope.matcher()), M.listElems(Scope.matcher()), StatixTerms.scopeGraph(),
+                    (t, rootScopes, ownScopes, scopeGraph) -> new StatixLibrary(rootScopes, ownScopes, scopeGraph)),
+            M.appl1("LibrarySnapshot", M.stringValue(), (t, file) -> {
+                try {
+                    return StatixLibrarySnapshot.map(Paths.get(file));
+                } catch(IOException e) {
+                    throw new UncheckedIOException("Cannot read library snapshot " + file, e);
+                }
+            })
+        );
+        // @formatter:on
     }
 
     static ITerm toTerm(IStatixLibrary library) {
@@ -0,0 +1,574 @@
+package mb.statix.concurrent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+import org.metaborg.util.functions.Function1;
+import org.metaborg.util.tuple.Tuple2;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.Terms;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.statix.scopegraph.Scope;
+
+/**
+ * Statix library in a compact binary format, which is read directly from a (memory mapped) buffer.
+ *
+ * The format consists of a string table, a term table, a scope table, and the edges and data of the scope graph in flat
+ * int arrays. All references between these are int indices. Terms are stored once, and refer to their subterms by
+ * index. References to library scopes in terms are stored as indices in the scope table, so that renaming the library
+ * scopes when the library is initialized only replaces the scope table, instead of substituting all data terms. Terms
+ * that do not refer to library scopes are decoded once, and shared between initializations.
+ *
+ * Term attachments are not stored, and blob terms are not supported.
+ *
+ * Layout, where all numbers are big-endian ints:
+ *
+ * <pre>
+ * magic version
+ * stringCount stringOffsets[stringCount + 1] stringBytes (padded to a multiple of four)
+ * termCount termOffsets[termCount] termWordCount termWords[termWordCount]
+ * scopeCount ownStart scopeStrings[2 * scopeCount]
+ * rootCount roots[rootCount]
+ * labelCount labels[labelCount]
+ * { edgeOffsets[scopeCount + 1] edgeTargets[edgeOffsets[scopeCount]] } for every label
+ * data[scopeCount]
+ * </pre>
+ *
+ * Scopes with indices below ownStart are the distinct root scopes, the others are the library's own scopes. Terms refer
+ * only to terms with a lower index.
+ */
+public class StatixLibrarySnapshot implements IStatixLibrary {
+
+    private static final int MAGIC = 0x53544c42; // STLB
+    private static final int VERSION = 1;
+
+    private static final int APPL = 0;
+    private static final int LIST = 1;
+    private static final int NIL = 2;
+    private static final int STRING = 3;
+    private static final int INT = 4;
+    private static final int VAR = 5;
+    private static final int SCOPE = 6;
+
+    private static final int KIND_MASK = 0xff;
+    private static final int SCOPED = 0x100;
+
+    private static final int NO_DATUM = -1;
+
+    private static final String SCOPE_OP = "Scope";
+
+    private final ByteBuffer buffer;
+
+    private final int stringCount;
+    private final int stringOffsets;
+    private final int stringBytes;
+
+    private final int termCount;
+    private final int termOffsets;
+    private final int termWords;
+
+    private final int scopeCount;
+    private final int ownStart;
+    private final int scopeStrings;
+
+    private final int rootCount;
+    private final int roots;
+
+    private final ITerm[] labels;
+    private final int[] edgeOffsets;
+
+    private final int data;
+
+    // Caches of decoded strings and scope-free terms. Races between threads are benign, because the values are
+    // immutable, and are equal regardless of which thread decoded them.
+    private final String[] strings;
+    private final ITerm[] terms;
+
+    private volatile @Nullable Scope[] libraryScopes;
+    private volatile @Nullable IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph;
+
+    private StatixLibrarySnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int pos = 0;
+        if(buffer.getInt(pos) != MAGIC) {
+            throw new IllegalArgumentException("Not a library snapshot.");
+        }
+        pos += 4;
+        if(buffer.getInt(pos) != VERSION) {
+            throw new IllegalArgumentException("Unsupported library snapshot version " + buffer.getInt(pos) + ".");
+        }
+        pos += 4;
+
+        this.stringCount = buffer.getInt(pos);
+        this.stringOffsets = pos + 4;
+        this.stringBytes = stringOffsets + 4 * (stringCount + 1);
+        pos = stringBytes + pad(buffer.getInt(stringOffsets + 4 * stringCount));
+
+        this.termCount = buffer.getInt(pos);
+        this.termOffsets = pos + 4;
+        pos = termOffsets + 4 * termCount;
+        final int termWordCount = buffer.getInt(pos);
+        this.termWords = pos + 4;
+        pos = termWords + 4 * termWordCount;
+
+        this.scopeCount = buffer.getInt(pos);
+        this.ownStart = buffer.getInt(pos + 4);
+        this.scopeStrings = pos + 8;
+        pos = scopeStrings + 8 * scopeCount;
+
+        this.rootCount = buffer.getInt(pos);
+        this.roots = pos + 4;
+        pos = roots + 4 * rootCount;
+
+        this.strings = new String[stringCount];
+        this.terms = new ITerm[termCount];
+
+        final int labelCount = buffer.getInt(pos);
+        this.labels = new ITerm[labelCount];
+        for(int i = 0; i < labelCount; i++) {
+            labels[i] = term(buffer.getInt(pos + 4 + 4 * i), null, null);
+        }
+        pos += 4 + 4 * labelCount;
+
+        this.edgeOffsets = new int[labelCount];
+        for(int i = 0; i < labelCount; i++) {
+            edgeOffsets[i] = pos;
+            pos += 4 * (scopeCount + 1) + 4 * buffer.getInt(pos + 4 * scopeCount);
+        }
+
+        this.data = pos;
+    }
+
+    @Override public List<Scope> rootScopes() {
+        final Scope[] scopes = libraryScopes();
+        final List<Scope> rootScopes = new ArrayList<>(rootCount);
+        for(int i = 0; i < rootCount; i++) {
+            rootScopes.add(scopes[buffer.getInt(roots + 4 * i)]);
+        }
+        return Collections.unmodifiableList(rootScopes);
+    }
+
+    @Override public java.util.Set<Scope> ownScopes() {
+        final Scope[] scopes = libraryScopes();
+        return CapsuleUtil.toSet(Arrays.asList(scopes).subList(ownStart, scopeCount));
+    }
+
+    @Override public IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph() {
+        IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph;
+        if((scopeGraph = this.scopeGraph) == null) {
+            this.scopeGraph = scopeGraph = scopeGraph(libraryScopes(), 0);
+        }
+        return scopeGraph;
+    }
+
+    @Override public Tuple2<Set.Immutable<Scope>, IScopeGraph.Immutable<Scope, ITerm, ITerm>>
+            initialize(List<Scope> rootScopes, Function1<String, Scope> freshScope) {
+        if(rootCount != rootScopes.size()) {
+            throw new IllegalArgumentException("Number of root scopes does not match.");
+        }
+
+        // map library scopes to actual scopes
+
+        final Scope[] scopes = new Scope[scopeCount];
+        for(int i = 0; i < rootCount; i++) {
+            final int scope = buffer.getInt(roots + 4 * i);
+            if(scopes[scope] == null) {
+                scopes[scope] = rootScopes.get(i);
+            }
+        }
+        final Set.Transient<Scope> ownScopes = CapsuleUtil.transientSet();
+        for(int i = ownStart; i < scopeCount; i++) {
+            final Scope scope = freshScope.apply(string(buffer.getInt(scopeStrings + 8 * i + 4)));
+            ownScopes.__insert(scope);
+            scopes[i] = scope;
+        }
+
+        return Tuple2.of(ownScopes.freeze(), scopeGraph(scopes, ownStart));
+    }
+
+    /**
+     * Build the scope graph for the given scope table, with the data of scopes from the given index onward.
+     */
+    private IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph(Scope[] scopes, int dataStart) {
+        final IScopeGraph.Transient<Scope, ITerm, ITerm> scopeGraph = ScopeGraph.Transient.of();
+        final ITerm[] scopedTerms = new ITerm[termCount];
+        for(int i = dataStart; i < scopeCount; i++) {
+            final int datum;
+            if((datum = buffer.getInt(data + 4 * i)) != NO_DATUM) {
+                scopeGraph.setDatum(scopes[i], term(datum, scopes, scopedTerms));
+            }
+        }
+        for(int l = 0; l < labels.length; l++) {
+            final ITerm label = labels[l];
+            final int offsets = edgeOffsets[l];
+            final int targets = offsets + 4 * (scopeCount + 1);
+            for(int i = 0; i < scopeCount; i++) {
+                // edges are prepended, so add them in reverse to preserve their order
+                final int start = buffer.getInt(offsets + 4 * i);
+                for(int j = buffer.getInt(offsets + 4 * (i + 1)) - 1; j >= start; j--) {
+                    scopeGraph.addEdge(scopes[i], label, scopes[buffer.getInt(targets + 4 * j)]);
+                }
+            }
+        }
+        return scopeGraph.freeze();
+    }
+
+    private Scope[] libraryScopes() {
+        Scope[] scopes;
+        if((scopes = libraryScopes) == null) {
+            scopes = new Scope[scopeCount];
+            for(int i = 0; i < scopeCount; i++) {
+                final int pos = scopeStrings + 8 * i;
+                scopes[i] = Scope.of(string(buffer.getInt(pos)), string(buffer.getInt(pos + 4)));
+            }
+            libraryScopes = scopes;
+        }
+        return scopes;
+    }
+
+    private String string(int id) {
+        String string;
+        if((string = strings[id]) == null) {
+            final int start = buffer.getInt(stringOffsets + 4 * id);
+            final byte[] bytes = new byte[buffer.getInt(stringOffsets + 4 * (id + 1)) - start];
+            final ByteBuffer stringBuffer = buffer.duplicate();
+            stringBuffer.position(stringBytes + start);
+            stringBuffer.get(bytes);
+            strings[id] = string = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+
+    /**
+     * Decode a term. Terms that refer to library scopes are decoded with the given scope table, and cached in the given
+     * array, which is specific to that scope table.
+     */
+    private ITerm term(int id, @Nullable Scope[] scopes, @Nullable ITerm[] scopedTerms) {
+        ITerm term;
+        if((term = terms[id]) != null || (scopedTerms != null && (term = scopedTerms[id]) != null)) {
+            return term;
+        }
+        final int pos = termWords + 4 * buffer.getInt(termOffsets + 4 * id);
+        final int tag = buffer.getInt(pos);
+        switch(tag & KIND_MASK) {
+            case APPL: {
+                final int arity = buffer.getInt(pos + 8);
+                final List<ITerm> args = new ArrayList<>(arity);
+                for(int i = 0; i < arity; i++) {
+                    args.add(term(buffer.getInt(pos + 12 + 4 * i), scopes, scopedTerms));
+                }
+                term = B.newAppl(string(buffer.getInt(pos + 4)), args);
+                break;
+            }
+            case LIST: {
+                final int size = buffer.getInt(pos + 4);
+                final List<ITerm> elems = new ArrayList<>(size);
+                for(int i = 0; i < size; i++) {
+                    elems.add(term(buffer.getInt(pos + 8 + 4 * i), scopes, scopedTerms));
+                }
+                final IListTerm tail = (IListTerm) term(buffer.getInt(pos + 8 + 4 * size), scopes, scopedTerms);
+                term = B.newListTail(elems, tail);
+                break;
+            }
+            case NIL:
+                term = B.newNil();
+                break;
+            case STRING:
+                term = B.newString(string(buffer.getInt(pos + 4)));
+                break;
+            case INT:
+                term = B.newInt(buffer.getInt(pos + 4));
+                break;
+            case VAR:
+                term = B.newVar(string(buffer.getInt(pos + 4)), string(buffer.getInt(pos + 8)));
+                break;
+            case SCOPE:
+                if(scopes == null) {
+                    throw new IllegalStateException("Scope reference in library label.");
+                }
+                term = scopes[buffer.getInt(pos + 4)];
+                break;
+            default:
+                throw new IllegalStateException("Invalid term tag " + tag + ".");
+        }
+        if((tag & SCOPED) == 0) {
+            terms[id] = term;
+        } else if(scopedTerms != null) {
+            scopedTerms[id] = term;
+        }
+        return term;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading & writing
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Read a library snapshot from the given buffer. The buffer is not copied, and must not be modified afterwards.
+     */
+    public static StatixLibrarySnapshot of(ByteBuffer buffer) {
+        return new StatixLibrarySnapshot(buffer.slice());
+    }
+
+    /**
+     * Memory map a library snapshot file.
+     */
+    public static StatixLibrarySnapshot map(Path file) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StatixLibrarySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void write(IStatixLibrary library, OutputStream out) throws IOException {
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        new Writer(library).write(dataOut);
+        dataOut.flush();
+    }
+
+    private static int pad(int size) {
+        return (size + 3) & ~3;
+    }
+
+    private static class Writer {
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+
+        private final Map<ITerm, Integer> termIds = new HashMap<>();
+        private final List<Integer> termOffsets = new ArrayList<>();
+        private int[] termWords = new int[1024];
+        private int termWordCount = 0;
+
+        private final Map<Scope, Integer> scopeIds = new HashMap<>();
+        private final List<Scope> scopes = new ArrayList<>();
+        private final int ownStart;
+        private final int[] roots;
+
+        private final List<ITerm> labels;
+        private final int[] labelIds;
+        private final int[][] edgeOffsets;
+        private final int[][] edgeTargets;
+        private final int[] data;
+
+        private Writer(IStatixLibrary library) {
+            final IScopeGraph<Scope, ITerm, ITerm> scopeGraph = library.scopeGraph();
+
+            final List<Scope> rootScopes = library.rootScopes();
+            this.roots = new int[rootScopes.size()];
+            for(int i = 0; i < roots.length; i++) {
+                roots[i] = scopeId(rootScopes.get(i));
+            }
+            this.ownStart = scopes.size();
+            for(Scope scope : library.ownScopes()) {
+                if(scopeIds.containsKey(scope)) {
+                    throw new IllegalArgumentException("Root scope " + scope + " is also an own scope.");
+                }
+                scopeId(scope);
+            }
+
+            this.labels = new ArrayList<>(scopeGraph.getLabels());
+            this.labelIds = new int[labels.size()];
+            this.edgeOffsets = new int[labels.size()][];
+            this.edgeTargets = new int[labels.size()][];
+            for(int l = 0; l < labels.size(); l++) {
+                final ITerm label = labels.get(l);
+                labelIds[l] = term(label);
+                final int[] offsets = new int[scopes.size() + 1];
+                final List<Integer> targets = new ArrayList<>();
+                for(int i = 0; i < scopes.size(); i++) {
+                    offsets[i] = targets.size();
+                    for(Scope target : scopeGraph.getEdges(scopes.get(i), label)) {
+                        final Integer targetId;
+                        if((targetId = scopeIds.get(target)) == null) {
+                            throw new IllegalArgumentException("Edge target " + target + " is not a library scope.");
+                        }
+                        targets.add(targetId);
+                    }
+                }
+                offsets[scopes.size()] = targets.size();
+                edgeOffsets[l] = offsets;
+                edgeTargets[l] = targets.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            this.data = new int[scopes.size()];
+            for(int i = 0; i < scopes.size(); i++) {
+                final ITerm datum = scopeGraph.getData(scopes.get(i)).orElse(null);
+                data[i] = datum != null ? term(datum) : NO_DATUM;
+            }
+        }
+
+        private int scopeId(Scope scope) {
+            Integer id;
+            if((id = scopeIds.get(scope)) == null) {
+                scopeIds.put(scope, id = scopes.size());
+                scopes.add(scope);
+                string(scope.getResource());
+                string(scope.getName());
+            }
+            return id;
+        }
+
+        private int string(String string) {
+            Integer id;
+            if((id = stringIds.get(string)) == null) {
+                stringIds.put(string, id = strings.size());
+                strings.add(string.getBytes(StandardCharsets.UTF_8));
+            }
+            return id;
+        }
+
+        private int term(ITerm term) {
+            final Integer id;
+            if((id = termIds.get(term)) != null) {
+                return id;
+            }
+            // @formatter:off
+            final int[] words = term.match(Terms.<int[]>cases(
+                appl -> appl(appl),
+                list -> list(list),
+                string -> new int[] { STRING, string(string.getValue()) },
+                integer -> new int[] { INT, integer.getValue() },
+                blob -> {
+                    throw new IllegalArgumentException("Cannot write blob " + blob + " in library snapshot.");
+                },
+                var -> new int[] { VAR, string(var.getResource()), string(var.getName()) }
+            ));
+            // @formatter:on
+            return add(term, words);
+        }
+
+        private int[] appl(IApplTerm appl) {
+            final Integer scope;
+            if(appl.getOp().equals(SCOPE_OP) && appl.getArity() == 2 && (scope = Scope.matcher().match(appl)
+                    .map(scopeIds::get).orElse(null)) != null) {
+                return new int[] { SCOPE | SCOPED, scope };
+            }
+            final int arity = appl.getArity();
+            final int[] words = new int[3 + arity];
+            words[0] = APPL;
+            words[1] = string(appl.getOp());
+            words[2] = arity;
+            for(int i = 0; i < arity; i++) {
+                words[3 + i] = scoped(term(appl.getArgs().get(i)), words);
+            }
+            return words;
+        }
+
+        private int[] list(IListTerm list) {
+            final List<ITerm> elems = new ArrayList<>();
+            IListTerm tail = list;
+            while(tail instanceof IConsTerm) {
+                elems.add(((IConsTerm) tail).getHead());
+                tail = ((IConsTerm) tail).getTail();
+            }
+            if(elems.isEmpty()) {
+                return new int[] { NIL };
+            }
+            final int[] words = new int[3 + elems.size()];
+            words[0] = LIST;
+            words[1] = elems.size();
+            for(int i = 0; i < elems.size(); i++) {
+                words[2 + i] = scoped(term(elems.get(i)), words);
+            }
+            words[2 + elems.size()] = scoped(term(tail), words);
+            return words;
+        }
+
+        /**
+         * Mark the given term words as scoped if the given subterm is scoped.
+         */
+        private int scoped(int subterm, int[] words) {
+            if((termWords[termOffsets.get(subterm)] & SCOPED) != 0) {
+                words[0] |= SCOPED;
+            }
+            return subterm;
+        }
+
+        private int add(ITerm term, int[] words) {
+            final int id = termOffsets.size();
+            termOffsets.add(termWordCount);
+            if(termWordCount + words.length > termWords.length) {
+                termWords = Arrays.copyOf(termWords, Math.max(2 * termWords.length, termWordCount + words.length));
+            }
+            System.arraycopy(words, 0, termWords, termWordCount, words.length);
+            termWordCount += words.length;
+            termIds.put(term, id);
+            return id;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            int stringOffset = 0;
+            out.writeInt(stringOffset);
+            for(byte[] string : strings) {
+                stringOffset += string.length;
+                out.writeInt(stringOffset);
+            }
+            for(byte[] string : strings) {
+                out.write(string);
+            }
+            for(int i = stringOffset; i < pad(stringOffset); i++) {
+                out.writeByte(0);
+            }
+
+            out.writeInt(termOffsets.size());
+            for(int offset : termOffsets) {
+                out.writeInt(offset);
+            }
+            writeInts(out, Arrays.copyOf(termWords, termWordCount), true);
+
+            out.writeInt(scopes.size());
+            out.writeInt(ownStart);
+            for(Scope scope : scopes) {
+                out.writeInt(stringIds.get(scope.getResource()));
+                out.writeInt(stringIds.get(scope.getName()));
+            }
+
+            writeInts(out, roots, true);
+            writeInts(out, labelIds, true);
+            for(int l = 0; l < labels.size(); l++) {
+                writeInts(out, edgeOffsets[l], false);
+                writeInts(out, edgeTargets[l], false);
+            }
+            writeInts(out, data, false);
+        }
+
+        private static void writeInts(DataOutputStream out, int[] ints, boolean withSize) throws IOException {
+            if(withSize) {
+                out.writeInt(ints.length);
+            }
+            for(int i : ints) {
+                out.writeInt(i);
+            }
+        }
+
+    }
+
+}
@@ -46,8 +46,8 @@ import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.stratego.TermOrigin;
+import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
-import mb.nabl2.terms.substitution.Renaming;
 import mb.nabl2.terms.unification.OccursException;
 import mb.nabl2.terms.unification.RigidException;
 import mb.nabl2.terms.unification.u.IUnifier;
@@ -91,6 +91,7 @@ import mb.statix.solver.IState;
 import mb.statix.solver.ITermProperty;
 import mb.statix.solver.ITermProperty.Multiplicity;
 import mb.statix.solver.completeness.Completeness;
+import mb.statix.solver.completeness.CompletenessTracker;
 import mb.statix.solver.completeness.CompletenessUtil;
 import mb.statix.solver.completeness.ICompleteness;
 import mb.statix.solver.log.IDebugContext;
@@ -105,7 +106,6 @@ import mb.statix.solver.persistent.State;
 import mb.statix.solver.query.QueryFilter;
 import mb.statix.solver.query.QueryMin;
 import mb.statix.solver.query.ResolutionDelayException;
-import mb.statix.solver.store.BaseConstraintStore;
 import mb.statix.spec.ApplyMode;
 import mb.statix.spec.ApplyMode.Safety;
 import mb.statix.spec.ApplyResult;
@@ -141,7 +141,7 @@ public class StatixSolver {
     private final int flags;
 
     private IState.Immutable state;
-    private ICompleteness.Immutable completeness;
+    private final CompletenessTracker completeness;
     private Map<ITermVar, ITermVar> existentials = null;
     private final List<ITermVar> updatedVars = Lists.newArrayList();
     private final Map<IConstraint, IMessage> failed = Maps.newHashMap();
@@ -162,7 +162,7 @@ public class StatixSolver {
         this.scopeGraph = scopeGraph;
         this.state = state;
         this.debug = debug;
-        this.constraints = new BaseConstraintStore(debug);
+        this.constraints = Solver.newConstraintStore(debug);
         final ICompleteness.Transient _completeness = completeness.melt();
         if(INCREMENTAL_CRITICAL_EDGES) {
             final Tuple2<IConstraint, ICompleteness.Immutable> initialConstraintAndCriticalEdges =
@@ -173,7 +173,7 @@ public class StatixSolver {
             constraints.add(constraint);
             _completeness.add(constraint, spec, state.unifier());
         }
-        this.completeness = _completeness.freeze();
+        this.completeness = new CompletenessTracker(_completeness.freeze());
         this.result = new CompletableFuture<>();
         this.progress = progress;
         this.cancel = cancel;
@@ -299,9 +299,7 @@ public class StatixSolver {
 
         // updates from unified variables
         if(!updatedVars.isEmpty()) {
-            final ICompleteness.Transient _completeness = completeness.melt();
-            _completeness.updateAll(updatedVars, unifier);
-            this.completeness = _completeness.freeze();
+            completeness.updateAll(updatedVars, unifier);
             constraints.activateFromVars(updatedVars, debug);
             this.updatedVars.addAll(updatedVars);
         }
@@ -309,13 +307,11 @@ public class StatixSolver {
         // add new constraints
         if(!newConstraints.isEmpty()) {
             // no constraints::addAll, instead recurse in tail position
-            final ICompleteness.Transient _completeness = completeness.melt();
             if(INCREMENTAL_CRITICAL_EDGES) {
-                _completeness.addAll(newCriticalEdges, unifier); // must come before ICompleteness::remove
+                completeness.addAll(newCriticalEdges, unifier); // must come before ICompleteness::remove
             } else {
-                _completeness.addAll(newConstraints, spec, unifier); // must come before ICompleteness::remove
+                completeness.addAll(newConstraints, spec, unifier); // must come before ICompleteness::remove
             }
-            this.completeness = _completeness.freeze();
             if(subDebug.isEnabled(Level.Debug) && !newConstraints.isEmpty()) {
                 subDebug.debug("Simplified to:");
                 for(IConstraint newConstraint : newConstraints) {
@@ -389,19 +385,17 @@ public class StatixSolver {
 
     private void removeCompleteness(IConstraint constraint) throws InterruptedException {
         final Set.Immutable<CriticalEdge> removedEdges;
-        final ICompleteness.Transient _completeness = completeness.melt();
         if(INCREMENTAL_CRITICAL_EDGES) {
             if(!constraint.ownCriticalEdges().isPresent()) {
                 throw new IllegalArgumentException("Solver only accepts constraints with pre-computed critical edges.");
             }
-            removedEdges = _completeness.removeAll(constraint.ownCriticalEdges().get(), state.unifier());
+            removedEdges = completeness.removeAll(constraint.ownCriticalEdges().get(), state.unifier());
         } else {
-            removedEdges = _completeness.remove(constraint, spec, state.unifier());
+            removedEdges = completeness.remove(constraint, spec, state.unifier());
         }
         for(CriticalEdge criticalEdge : removedEdges) {
             closeEdge(criticalEdge);
         }
-        this.completeness = _completeness.freeze();
     }
 
     private boolean queue(IConstraint constraint) {
@@ -498,15 +492,9 @@ public class StatixSolver {
             }
 
             @Override public Boolean caseExists(CExists c) throws InterruptedException {
-                final Renaming.Builder _existentials = Renaming.builder();
-                IState.Immutable newState = state;
-                for(ITermVar var : c.vars()) {
-                    final Tuple2<ITermVar, IState.Immutable> varAndState = newState.freshVar(var);
-                    final ITermVar freshVar = varAndState._1();
-                    newState = varAndState._2();
-                    _existentials.put(var, freshVar);
-                }
-                final Renaming existentials = _existentials.build();
+                final Tuple2<IRenaming, IState.Immutable> existentialsAndState = state.freshVars(c.vars());
+                final IRenaming existentials = existentialsAndState._1();
+                final IState.Immutable newState = existentialsAndState._2();
 
                 final ISubstitution.Immutable subst = existentials.asSubstitution();
                 final IConstraint newConstraint = c.constraint().apply(subst).withCause(c.cause().orElse(null));
@@ -589,7 +577,7 @@ public class StatixSolver {
                 final Scope scope = AScope.matcher().match(scopeTerm, unifier).orElseThrow(
                         () -> new IllegalArgumentException("Expected scope, got " + unifier.toString(scopeTerm)));
 
-                final LabelWf<ITerm> labelWF = new RegExpLabelWf<>(filter.getLabelWF());
+                final LabelWf<ITerm> labelWF = RegExpLabelWf.of(filter.getLabelWF());
                 final LabelOrder<ITerm> labelOrder = new RelationLabelOrder<>(min.getLabelOrder());
                 final DataWf<Scope, ITerm, ITerm> dataWF = new ConstraintDataWF(spec, dataWfRule);
                 final DataLeq<Scope, ITerm, ITerm> dataEquiv = new ConstraintDataEquiv(spec, dataLeqRule);
@@ -736,8 +724,8 @@ public class StatixSolver {
                 final IDebugContext subDebug = debug.subContext();
                 final ITypeCheckerContext<Scope, ITerm, ITerm> subContext = scopeGraph.subContext("try");
                 final IState.Immutable subState = state.subState().withResource(subContext.id());
-                final StatixSolver subSolver = new StatixSolver(c.constraint(), spec, subState, completeness, subDebug,
-                        progress, cancel, subContext, RETURN_ON_FIRST_ERROR);
+                final StatixSolver subSolver = new StatixSolver(c.constraint(), spec, subState,
+                        completeness.freeze(), subDebug, progress, cancel, subContext, RETURN_ON_FIRST_ERROR);
                 final IFuture<SolverResult> subResult = subSolver.entail();
                 final K<SolverResult> k = (r, ex, fuel) -> {
                     if(ex != null) {
@@ -773,7 +761,7 @@ public class StatixSolver {
 
                 final LazyDebugContext proxyDebug = new LazyDebugContext(debug);
 
-                final List<Rule> rules = spec.rules().getRules(name);
+                final List<Rule> rules = spec.rules().getRules(name, args, state.unifier());
                 // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
                 final Tuple3<Rule, ApplyResult, Boolean> result;
                 if((result = RuleUtil.applyOrderedOne(state.unifier(), rules, args, c, ApplyMode.RELAXED, Safety.UNSAFE)
@@ -1049,6 +1037,21 @@ public class StatixSolver {
             }
         }
 
+        @Override public int hashCode() {
+            return constraint.hashCode();
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            ConstraintDataWF other = (ConstraintDataWF) obj;
+            return spec == other.spec && constraint.equals(other.constraint);
+        }
+
         @Override public String toString() {
             return constraint.toString();
         }
@@ -1169,6 +1172,21 @@ public class StatixSolver {
             return alwaysTrue;
         }
 
+        @Override public int hashCode() {
+            return constraint.hashCode();
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            ConstraintDataEquiv other = (ConstraintDataEquiv) obj;
+            return spec == other.spec && constraint.equals(other.constraint);
+        }
+
         @Override public String toString() {
             return constraint.toString(state.unifier()::toString);
         }
@@ -30,6 +30,8 @@ public class CArith implements IConstraint, Serializable {
     private final @Nullable IConstraint cause;
     private final @Nullable IMessage message;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CArith(ArithExpr expr1, ArithTest op, ArithExpr expr2) {
         this(expr1, op, expr2, null, null);
     }
@@ -84,13 +86,18 @@ public class CArith implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
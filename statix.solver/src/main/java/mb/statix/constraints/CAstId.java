@@ -25,6 +25,8 @@ public class CAstId implements IConstraint, Serializable {
 
     private final @Nullable IConstraint cause;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CAstId(ITerm term, ITerm idTerm) {
         this(term, idTerm, null);
     }
@@ -60,13 +62,18 @@ public class CAstId implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
@@ -27,6 +27,8 @@ public class CEqual implements IConstraint, Serializable {
     private final @Nullable IConstraint cause;
     private final @Nullable IMessage message;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CEqual(ITerm term1, ITerm term2) {
         this(term1, term2, null, null);
     }
@@ -40,10 +42,16 @@ public class CEqual implements IConstraint, Serializable {
     }
 
     private CEqual(ITerm term1, ITerm term2, @Nullable IConstraint cause, @Nullable IMessage message) {
+        this(term1, term2, cause, message, null);
+    }
+
+    private CEqual(ITerm term1, ITerm term2, @Nullable IConstraint cause, @Nullable IMessage message,
+            @Nullable Set.Immutable<ITermVar> freeVars) {
         this.term1 = term1;
         this.term2 = term2;
         this.cause = cause;
         this.message = message;
+        this.freeVars = freeVars;
     }
 
     public ITerm term1() {
@@ -59,7 +67,7 @@ public class CEqual implements IConstraint, Serializable {
     }
 
     @Override public CEqual withCause(@Nullable IConstraint cause) {
-        return new CEqual(term1, term2, cause, message);
+        return new CEqual(term1, term2, cause, message, freeVars);
     }
 
     @Override public Optional<IMessage> message() {
@@ -79,13 +87,18 @@ public class CEqual implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
@@ -97,7 +110,8 @@ public class CEqual implements IConstraint, Serializable {
     }
 
     @Override public CEqual apply(ISubstitution.Immutable subst) {
-        return new CEqual(subst.apply(term1), subst.apply(term2), cause, message == null ? null : message.apply(subst));
+        return new CEqual(subst.apply(term1), subst.apply(term2), cause, message == null ? null : message.apply(subst),
+                Constraints.applyFreeVars(freeVars, subst));
     }
 
     @Override public CEqual unsafeApply(ISubstitution.Immutable subst) {
@@ -105,7 +119,8 @@ public class CEqual implements IConstraint, Serializable {
     }
 
     @Override public CEqual apply(IRenaming subst) {
-        return new CEqual(subst.apply(term1), subst.apply(term2), cause, message == null ? null : message.apply(subst));
+        return new CEqual(subst.apply(term1), subst.apply(term2), cause, message == null ? null : message.apply(subst),
+                Constraints.applyFreeVars(freeVars, subst));
     }
 
     @Override public String toString(TermFormatter termToString) {
@@ -30,6 +30,8 @@ public class CInequal implements IConstraint, Serializable {
     private final @Nullable IConstraint cause;
     private final @Nullable IMessage message;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CInequal(Iterable<ITermVar> universals, ITerm term1, ITerm term2) {
         this(universals, term1, term2, null, null);
     }
@@ -84,13 +86,18 @@ public class CInequal implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
@@ -28,6 +28,8 @@ public class CTellEdge implements IConstraint, Serializable {
     private final @Nullable IConstraint cause;
     private final @Nullable ICompleteness.Immutable ownCriticalEdges;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CTellEdge(ITerm sourceTerm, ITerm label, ITerm targetTerm) {
         this(sourceTerm, label, targetTerm, null, null);
     }
@@ -78,13 +80,18 @@ public class CTellEdge implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
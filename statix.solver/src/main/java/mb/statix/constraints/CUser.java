@@ -32,6 +32,8 @@ public class CUser implements IConstraint, Serializable {
     private final @Nullable IMessage message;
     private final @Nullable ICompleteness.Immutable ownCriticalEdges;
 
+    private volatile Set.Immutable<ITermVar> freeVars;
+
     public CUser(String name, Iterable<? extends ITerm> args) {
         this(name, args, null, null, null);
     }
@@ -42,11 +44,17 @@ public class CUser implements IConstraint, Serializable {
 
     public CUser(String name, Iterable<? extends ITerm> args, @Nullable IConstraint cause, @Nullable IMessage message,
             @Nullable ICompleteness.Immutable ownCriticalEdges) {
+        this(name, args, cause, message, ownCriticalEdges, null);
+    }
+
+    private CUser(String name, Iterable<? extends ITerm> args, @Nullable IConstraint cause, @Nullable IMessage message,
+            @Nullable ICompleteness.Immutable ownCriticalEdges, @Nullable Set.Immutable<ITermVar> freeVars) {
         this.name = name;
         this.args = ImmutableList.copyOf(args);
         this.cause = cause;
         this.message = message;
         this.ownCriticalEdges = ownCriticalEdges;
+        this.freeVars = freeVars;
     }
 
     public String name() {
@@ -62,7 +70,7 @@ public class CUser implements IConstraint, Serializable {
     }
 
     @Override public CUser withCause(@Nullable IConstraint cause) {
-        return new CUser(name, args, cause, message, ownCriticalEdges);
+        return new CUser(name, args, cause, message, ownCriticalEdges, freeVars);
     }
 
     @Override public Optional<IMessage> message() {
@@ -78,7 +86,7 @@ public class CUser implements IConstraint, Serializable {
     }
 
     @Override public CUser withOwnCriticalEdges(ICompleteness.Immutable criticalEdges) {
-        return new CUser(name, args, cause, message, criticalEdges);
+        return new CUser(name, args, cause, message, criticalEdges, freeVars);
     }
 
     @Override public <R> R match(Cases<R> cases) {
@@ -90,13 +98,18 @@ public class CUser implements IConstraint, Serializable {
     }
 
     @Override public Set.Immutable<ITermVar> freeVars() {
-        Set.Transient<ITermVar> freeVars = CapsuleUtil.transientSet();
-        doVisitFreeVars(freeVars::__insert);
-        return freeVars.freeze();
+        Set.Immutable<ITermVar> result = freeVars;
+        if(result == null) {
+            Set.Transient<ITermVar> _freeVars = CapsuleUtil.transientSet();
+            doVisitFreeVars(_freeVars::__insert);
+            result = _freeVars.freeze();
+            freeVars = result;
+        }
+        return result;
     }
 
     @Override public void visitFreeVars(Action1<ITermVar> onFreeVar) {
-        doVisitFreeVars(onFreeVar);
+        freeVars().forEach(onFreeVar::apply);
     }
 
     private void doVisitFreeVars(Action1<ITermVar> onFreeVar) {
@@ -108,7 +121,8 @@ public class CUser implements IConstraint, Serializable {
 
     @Override public CUser apply(ISubstitution.Immutable subst) {
         return new CUser(name, subst.apply(args), cause, message == null ? null : message.apply(subst),
-                ownCriticalEdges == null ? null : ownCriticalEdges.apply(subst));
+                ownCriticalEdges == null ? null : ownCriticalEdges.apply(subst),
+                Constraints.applyFreeVars(freeVars, subst));
     }
 
     @Override public CUser unsafeApply(ISubstitution.Immutable subst) {
@@ -118,7 +132,8 @@ public class CUser implements IConstraint, Serializable {
 
     @Override public CUser apply(IRenaming subst) {
         return new CUser(name, subst.apply(args), cause, message == null ? null : message.apply(subst),
-                ownCriticalEdges == null ? null : ownCriticalEdges.apply(subst));
+                ownCriticalEdges == null ? null : ownCriticalEdges.apply(subst),
+                Constraints.applyFreeVars(freeVars, subst));
     }
 
     @Override public String toString(TermFormatter termToString) {
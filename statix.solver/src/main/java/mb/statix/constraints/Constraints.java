@@ -20,6 +20,7 @@ import com.google.common.collect.Lists;
 
 import io.usethesource.capsule.Set;
 import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
 import mb.nabl2.util.TermFormatter;
 import mb.statix.solver.IConstraint;
@@ -608,6 +609,42 @@ public final class Constraints {
         constraints.forEach(c -> c.visitFreeVars(onFreeVar));
     }
 
+    /**
+     * Compute the free variables of a constraint after capture avoiding substitution, from the free variables before
+     * substitution. Returns null if the free variables before substitution are not known.
+     */
+    static @Nullable Set.Immutable<ITermVar> applyFreeVars(@Nullable Set.Immutable<ITermVar> freeVars,
+            ISubstitution.Immutable subst) {
+        if(freeVars == null || subst.isEmpty()) {
+            return freeVars;
+        }
+        final Set.Transient<ITermVar> newFreeVars = CapsuleUtil.transientSet();
+        for(ITermVar var : freeVars) {
+            if(subst.contains(var)) {
+                subst.apply(var).getVars().forEach(newFreeVars::__insert);
+            } else {
+                newFreeVars.__insert(var);
+            }
+        }
+        return newFreeVars.freeze();
+    }
+
+    /**
+     * Compute the free variables of a constraint after renaming, from the free variables before renaming. Returns null
+     * if the free variables before renaming are not known.
+     */
+    static @Nullable Set.Immutable<ITermVar> applyFreeVars(@Nullable Set.Immutable<ITermVar> freeVars,
+            IRenaming renaming) {
+        if(freeVars == null || renaming.isEmpty()) {
+            return freeVars;
+        }
+        final Set.Transient<ITermVar> newFreeVars = CapsuleUtil.transientSet();
+        for(ITermVar var : freeVars) {
+            newFreeVars.__insert(renaming.rename(var));
+        }
+        return newFreeVars.freeze();
+    }
+
     public static Set.Immutable<ITermVar> vars(IConstraint constraint) {
         Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
         vars(constraint, vars::__insert);
@@ -10,6 +10,10 @@ public interface IConstraintStore {
 
     int activeSize();
 
+    /**
+     * Return the number of delayed constraints. A constraint delayed on several variables or critical edges is counted
+     * once.
+     */
     int delayedSize();
 
     void add(IConstraint constraint);
@@ -8,7 +8,6 @@ import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.substitution.IRenaming;
-import mb.nabl2.terms.substitution.Renaming;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
 import mb.scopegraph.oopsla20.IScopeGraph;
 import mb.statix.scopegraph.Scope;
@@ -35,6 +34,12 @@ public interface IState {
 
         Tuple2<ITermVar, IState.Immutable> freshVar(ITermVar var);
 
+        /**
+         * Create fresh variables for all given variables at once, returning a renaming from the given variables to the
+         * fresh variables, and a single new state.
+         */
+        Tuple2<IRenaming, IState.Immutable> freshVars(Iterable<ITermVar> vars);
+
         Tuple2<Scope, IState.Immutable> freshScope(String base);
 
         IState.Immutable add(IState.Immutable other);
@@ -119,11 +124,9 @@ public interface IState {
 
         public IRenaming freshVars(java.util.Set<ITermVar> vars) {
             freezeTwiceShameOnYou();
-            Renaming.Builder renaming = Renaming.builder();
-            for(ITermVar var : vars) {
-                renaming.put(var, freshVar(var));
-            }
-            return renaming.build();
+            final Tuple2<IRenaming, Immutable> result = state.freshVars(vars);
+            state = result._2();
+            return result._1();
         }
 
         public ITermVar freshWld() {
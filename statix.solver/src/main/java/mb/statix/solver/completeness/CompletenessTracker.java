@@ -0,0 +1,112 @@
+package mb.statix.solver.completeness;
+
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+import org.metaborg.util.collection.MultiSet;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.statix.scopegraph.Scope;
+import mb.statix.solver.CriticalEdge;
+import mb.statix.solver.IConstraint;
+import mb.statix.spec.Spec;
+
+/**
+ * Completeness that is updated in place during solving. Updates are applied to a transient completeness, which is only
+ * frozen when a snapshot is requested with {@link #freeze()}. The next update after a snapshot melts it again. Updates
+ * that do not change anything do not melt the snapshot.
+ */
+public class CompletenessTracker implements ICompleteness {
+
+    private @Nullable ICompleteness.Immutable snapshot;
+    private @Nullable ICompleteness.Transient completeness;
+
+    public CompletenessTracker(ICompleteness.Immutable completeness) {
+        this.snapshot = completeness;
+        this.completeness = null;
+    }
+
+    private ICompleteness current() {
+        return completeness != null ? completeness : snapshot;
+    }
+
+    private ICompleteness.Transient mutable() {
+        if(completeness == null) {
+            completeness = snapshot.melt();
+            snapshot = null;
+        }
+        return completeness;
+    }
+
+    @Override public boolean isEmpty() {
+        return current().isEmpty();
+    }
+
+    @Override public MultiSet<EdgeOrData<ITerm>> get(ITerm varOrScope, IUnifier unifier) {
+        return current().get(varOrScope, unifier);
+    }
+
+    @Override public boolean isComplete(Scope scope, EdgeOrData<ITerm> label, IUnifier unifier) {
+        return current().isComplete(scope, label, unifier);
+    }
+
+    @Override public java.util.Set<Entry<ITerm, MultiSet.Immutable<EdgeOrData<ITerm>>>> entrySet() {
+        return current().entrySet();
+    }
+
+    public void add(IConstraint constraint, Spec spec, IUnifier unifier) {
+        mutable().add(constraint, spec, unifier);
+    }
+
+    public void addAll(Iterable<? extends IConstraint> constraints, Spec spec, IUnifier unifier) {
+        mutable().addAll(constraints, spec, unifier);
+    }
+
+    public void addAll(ICompleteness.Immutable criticalEdges, IUnifier unifier) {
+        if(criticalEdges.isEmpty()) {
+            return;
+        }
+        mutable().addAll(criticalEdges, unifier);
+    }
+
+    public Set.Immutable<CriticalEdge> remove(IConstraint constraint, Spec spec, IUnifier unifier) {
+        return mutable().remove(constraint, spec, unifier);
+    }
+
+    public Set.Immutable<CriticalEdge> removeAll(ICompleteness.Immutable criticalEdges, IUnifier unifier) {
+        if(criticalEdges.isEmpty()) {
+            return CapsuleUtil.immutableSet();
+        }
+        return mutable().removeAll(criticalEdges, unifier);
+    }
+
+    public void updateAll(Iterable<? extends ITermVar> vars, IUnifier unifier) {
+        if(current().isEmpty()) {
+            return;
+        }
+        mutable().updateAll(vars, unifier);
+    }
+
+    /**
+     * Return a snapshot of the current completeness. Consecutive calls without intermediate updates return the same
+     * snapshot.
+     */
+    public ICompleteness.Immutable freeze() {
+        if(snapshot == null) {
+            snapshot = completeness.freeze();
+            completeness = null;
+        }
+        return snapshot;
+    }
+
+    @Override public String toString() {
+        return current().toString();
+    }
+
+}
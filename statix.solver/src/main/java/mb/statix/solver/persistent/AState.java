@@ -15,6 +15,8 @@ import mb.nabl2.terms.IAttachments;
 import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.substitution.IRenaming;
+import mb.nabl2.terms.substitution.Renaming;
 import mb.nabl2.terms.unification.OccursException;
 import mb.nabl2.terms.unification.Unifiers;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
@@ -81,12 +83,28 @@ public abstract class AState implements IState.Immutable {
 
     private Tuple2<ITermVar, IState.Immutable> freshVar(String name, @Nullable IAttachments attachments) {
         final int i = __varCounter() + 1;
-        final String newName = name.replace('-', '_') + "-" + i;
-        final ITermVar newVar = B.newVar(resource(), newName, attachments);
+        final ITermVar newVar = B.newVar(resource(), freshName(name, i), attachments);
         final Set.Immutable<ITermVar> vars = __vars().__insert(newVar);
         return Tuple2.of(newVar, State.builder().from(this).__varCounter(i).__vars(vars).build());
     }
 
+    @Override public Tuple2<IRenaming, IState.Immutable> freshVars(Iterable<ITermVar> vars) {
+        final String resource = resource();
+        final Renaming.Builder renaming = Renaming.builder();
+        final Set.Transient<ITermVar> newVars = __vars().asTransient();
+        int i = __varCounter();
+        for(ITermVar var : vars) {
+            final ITermVar newVar = B.newVar(resource, freshName(var.getName(), ++i), var.getAttachments());
+            newVars.__insert(newVar);
+            renaming.put(var, newVar);
+        }
+        if(i == __varCounter()) {
+            return Tuple2.of(renaming.build(), this);
+        }
+        return Tuple2.of(renaming.build(),
+                State.builder().from(this).__varCounter(i).__vars(newVars.freeze()).build());
+    }
+
     @Override public Set.Immutable<ITermVar> vars() {
         return __vars();
     }
@@ -103,8 +121,7 @@ public abstract class AState implements IState.Immutable {
 
     @Override public Tuple2<Scope, IState.Immutable> freshScope(String base) {
         final int i = __scopeCounter() + 1;
-        final String name = base.replace('-', '_') + "-" + i;
-        final Scope scope = Scope.of(resource(), name);
+        final Scope scope = Scope.of(resource(), freshName(base, i));
         final Set.Immutable<Scope> scopes = __scopes().__insert(scope);
         return Tuple2.of(scope, State.builder().from(this).__scopeCounter(i).__scopes(scopes).build());
     }
@@ -113,6 +130,10 @@ public abstract class AState implements IState.Immutable {
         return __scopes();
     }
 
+    private static String freshName(String base, int i) {
+        return new StringBuilder(base.length() + 8).append(base.replace('-', '_')).append('-').append(i).toString();
+    }
+
     // --- solution ---
 
     @Value.Parameter @Override public abstract IUniDisunifier.Immutable unifier();
@@ -3,6 +3,7 @@ package mb.statix.solver.persistent;
 import static mb.nabl2.terms.build.TermBuild.B;
 import static mb.nabl2.terms.matching.TermMatch.M;
 import static mb.statix.constraints.Constraints.disjoin;
+import static mb.statix.solver.persistent.Solver.BATCH_QUERIES;
 import static mb.statix.solver.persistent.Solver.INCREMENTAL_CRITICAL_EDGES;
 import static mb.statix.solver.persistent.Solver.RETURN_ON_FIRST_ERROR;
 
@@ -32,8 +33,8 @@ import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.stratego.TermOrigin;
+import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
-import mb.nabl2.terms.substitution.Renaming;
 import mb.nabl2.terms.unification.OccursException;
 import mb.nabl2.terms.unification.RigidException;
 import mb.nabl2.terms.unification.u.IUnifier;
@@ -41,9 +42,14 @@ import mb.nabl2.terms.unification.ud.Diseq;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
 import mb.scopegraph.oopsla20.INameResolution;
 import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.BatchNameResolution;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.oopsla20.reference.Env;
+import mb.scopegraph.oopsla20.reference.EnvCache;
 import mb.scopegraph.oopsla20.reference.IncompleteException;
 import mb.scopegraph.oopsla20.reference.ResolutionException;
+import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.relations.IRelation;
 import mb.statix.constraints.CArith;
 import mb.statix.constraints.CAstId;
 import mb.statix.constraints.CAstProperty;
@@ -71,6 +77,7 @@ import mb.statix.solver.IState;
 import mb.statix.solver.ITermProperty;
 import mb.statix.solver.ITermProperty.Multiplicity;
 import mb.statix.solver.completeness.Completeness;
+import mb.statix.solver.completeness.CompletenessTracker;
 import mb.statix.solver.completeness.CompletenessUtil;
 import mb.statix.solver.completeness.ICompleteness;
 import mb.statix.solver.completeness.IsComplete;
@@ -81,7 +88,6 @@ import mb.statix.solver.persistent.query.ConstraintQueries;
 import mb.statix.solver.query.QueryFilter;
 import mb.statix.solver.query.QueryMin;
 import mb.statix.solver.query.ResolutionDelayException;
-import mb.statix.solver.store.BaseConstraintStore;
 import mb.statix.spec.ApplyMode;
 import mb.statix.spec.ApplyMode.Safety;
 import mb.statix.spec.ApplyResult;
@@ -112,7 +118,7 @@ class GreedySolver {
     private final int flags;
 
     private IState.Immutable state;
-    private ICompleteness.Immutable completeness;
+    private final CompletenessTracker completeness;
     private Map<ITermVar, ITermVar> existentials = null;
     private final List<ITermVar> updatedVars = Lists.newArrayList();
     private final List<CriticalEdge> removedEdges = Lists.newArrayList();
@@ -121,6 +127,10 @@ class GreedySolver {
     private int solved = 0;
     private int criticalEdges = 0;
 
+    private final EnvCache<Scope, ITerm, ITerm> envCache = new EnvCache<>();
+    private final Map<Tuple3<Scope, IRegExpMatcher<ITerm>, IRelation.Immutable<EdgeOrData<ITerm>>>, //
+            List<BatchedQuery>> batchedQueries = Maps.newLinkedHashMap();
+
     public GreedySolver(Spec spec, IState.Immutable state, IConstraint initialConstraint, IsComplete _isComplete,
             IDebugContext debug, IProgress progress, ICancel cancel, int flags) {
         if(INCREMENTAL_CRITICAL_EDGES && !spec.hasPrecomputedCriticalEdges()) {
@@ -131,7 +141,7 @@ class GreedySolver {
         }
         this.state = state;
         this.debug = debug;
-        this.constraints = new BaseConstraintStore(debug);
+        this.constraints = Solver.newConstraintStore(debug);
         final ICompleteness.Transient _completeness = Completeness.Transient.of();
         if(INCREMENTAL_CRITICAL_EDGES) {
             final Tuple2<IConstraint, ICompleteness.Immutable> initialConstraintAndCriticalEdges =
@@ -142,7 +152,7 @@ class GreedySolver {
             constraints.add(initialConstraint);
             _completeness.add(initialConstraint, spec, state.unifier());
         }
-        this.completeness = _completeness.freeze();
+        this.completeness = new CompletenessTracker(_completeness.freeze());
         final IsComplete isComplete = (s, l, st) -> {
             return this.completeness.isComplete(s, l, st.unifier()) && _isComplete.test(s, l, st);
         };
@@ -158,10 +168,10 @@ class GreedySolver {
         this.spec = spec;
         this.state = state;
         this.debug = debug;
-        this.constraints = new BaseConstraintStore(debug);
+        this.constraints = Solver.newConstraintStore(debug);
         this.constraints.addAll(constraints);
         this.constraints.delayAll(delays.entrySet());
-        this.completeness = completeness;
+        this.completeness = new CompletenessTracker(completeness);
         // the constraints should already be reflected in completeness
         final IsComplete isComplete = (s, l, st) -> {
             return this.completeness.isComplete(s, l, st.unifier()) && _isComplete.test(s, l, st);
@@ -175,9 +185,18 @@ class GreedySolver {
     public SolverResult solve() throws InterruptedException {
         debug.debug("Solving constraints");
 
-        IConstraint constraint;
-        while((constraint = constraints.remove()) != null) {
-            if(!k(constraint, MAX_DEPTH)) {
+        while(true) {
+            IConstraint constraint;
+            while((constraint = constraints.remove()) != null) {
+                if(!k(constraint, MAX_DEPTH)) {
+                    debug.debug("Finished fast.");
+                    return finishSolve();
+                }
+            }
+            if(batchedQueries.isEmpty()) {
+                break;
+            }
+            if(!resolveBatchedQueries()) {
                 debug.debug("Finished fast.");
                 return finishSolve();
             }
@@ -202,7 +221,8 @@ class GreedySolver {
         }
 
         final Map<ITermVar, ITermVar> existentials = Optional.ofNullable(this.existentials).orElse(NO_EXISTENTIALS);
-        return SolverResult.of(spec, state, failed, delayed, existentials, updatedVars, removedEdges, completeness)
+        return SolverResult.of(spec, state, failed, delayed, existentials, updatedVars, removedEdges,
+                completeness.freeze())
                 .withTotalSolved(solved).withTotalCriticalEdges(criticalEdges);
     }
 
@@ -225,9 +245,7 @@ class GreedySolver {
 
         // updates from unified variables
         if(!updatedVars.isEmpty()) {
-            final ICompleteness.Transient _completeness = completeness.melt();
-            _completeness.updateAll(updatedVars, unifier);
-            this.completeness = _completeness.freeze();
+            completeness.updateAll(updatedVars, unifier);
             constraints.activateFromVars(updatedVars, debug);
             this.updatedVars.addAll(updatedVars);
         }
@@ -235,13 +253,11 @@ class GreedySolver {
         // add new constraints
         if(!newConstraints.isEmpty()) {
             // no constraints::addAll, instead recurse in tail position
-            final ICompleteness.Transient _completeness = completeness.melt();
             if(INCREMENTAL_CRITICAL_EDGES) {
-                _completeness.addAll(newCriticalEdges, unifier); // must come before ICompleteness::remove
+                completeness.addAll(newCriticalEdges, unifier); // must come before ICompleteness::remove
             } else {
-                _completeness.addAll(newConstraints, spec, unifier); // must come before ICompleteness::remove
+                completeness.addAll(newConstraints, spec, unifier); // must come before ICompleteness::remove
             }
-            this.completeness = _completeness.freeze();
             if(subDebug.isEnabled(Level.Debug) && !newConstraints.isEmpty()) {
                 subDebug.debug("Simplified to:");
                 for(IConstraint newConstraint : newConstraints) {
@@ -279,18 +295,16 @@ class GreedySolver {
 
     private void removeCompleteness(IConstraint constraint) {
         final Set<CriticalEdge> removedEdges;
-        final ICompleteness.Transient _completeness = completeness.melt();
         if(INCREMENTAL_CRITICAL_EDGES) {
             if(!constraint.ownCriticalEdges().isPresent()) {
                 throw new IllegalArgumentException("Solver only accepts constraints with pre-computed critical edges.");
             }
             criticalEdges +=
                     constraint.ownCriticalEdges().get().entrySet().stream().mapToInt(e -> e.getValue().size()).sum();
-            removedEdges = _completeness.removeAll(constraint.ownCriticalEdges().get(), state.unifier());
+            removedEdges = completeness.removeAll(constraint.ownCriticalEdges().get(), state.unifier());
         } else {
-            removedEdges = _completeness.remove(constraint, spec, state.unifier());
+            removedEdges = completeness.remove(constraint, spec, state.unifier());
         }
-        this.completeness = _completeness.freeze();
         constraints.activateFromEdges(removedEdges, debug);
         this.removedEdges.addAll(removedEdges);
     }
@@ -300,6 +314,106 @@ class GreedySolver {
         return true;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // queries
+    ///////////////////////////////////////////////////////////////////////////
+
+    private boolean queryResolved(CResolveQuery c, Env<Scope, ITerm, ITerm> paths, int fuel)
+            throws InterruptedException {
+        final List<ITerm> pathTerms = Streams.stream(paths).map(p -> StatixTerms.pathToTerm(p, spec.dataLabels()))
+                .collect(ImmutableList.toImmutableList());
+        final IConstraint C = new CEqual(c.resultTerm(), B.newList(pathTerms), c);
+        return success(c, state, NO_UPDATED_VARS, ImmutableList.of(C), NO_NEW_CRITICAL_EDGES, NO_EXISTENTIALS, fuel);
+    }
+
+    private boolean queryFailed(CResolveQuery c, ResolutionException ex) {
+        // pattern matching for the brave and stupid
+        try {
+            throw ex;
+        } catch(IncompleteException e) {
+            params.debug().debug("Query resolution delayed: {}", e.getMessage());
+            return delay(c, Delay.ofCriticalEdge(CriticalEdge.of(e.scope(), e.label())));
+        } catch(ResolutionDelayException e) {
+            params.debug().debug("Query resolution delayed: {}", e.getMessage());
+            return delay(c, e.getCause());
+        } catch(ResolutionException e) {
+            params.debug().debug("Query resolution failed: {}", e.getMessage());
+            return fail(c);
+        }
+    }
+
+    /**
+     * Queue a query that is ready to be resolved. Batched queries are resolved when there are no more active
+     * constraints, grouped by scope, label well-formedness, and label order.
+     */
+    private boolean batchQuery(CResolveQuery c, Scope scope, Rule dataWfRule, Rule dataLeqRule) {
+        final Tuple3<Scope, IRegExpMatcher<ITerm>, IRelation.Immutable<EdgeOrData<ITerm>>> key =
+                Tuple3.of(scope, c.filter().getLabelWF(), c.min().getLabelOrder());
+        batchedQueries.computeIfAbsent(key, k -> Lists.newArrayList())
+                .add(new BatchedQuery(c, scope, dataWfRule, dataLeqRule));
+        return true;
+    }
+
+    private boolean resolveBatchedQueries() throws InterruptedException {
+        final List<List<BatchedQuery>> batches = Lists.newArrayList(batchedQueries.values());
+        batchedQueries.clear();
+        for(List<BatchedQuery> batch : batches) {
+            if(!resolveBatch(batch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean resolveBatch(List<BatchedQuery> batch) throws InterruptedException {
+        final BatchedQuery first = batch.get(0);
+        final IState.Immutable state = this.state;
+        final ConstraintQueries cq = new ConstraintQueries(spec, state, params::isComplete);
+        final List<BatchNameResolution.Query<ITerm>> queries = Lists.newArrayListWithCapacity(batch.size());
+        for(BatchedQuery query : batch) {
+            queries.add(new BatchNameResolution.Query<>(cq.getDataWF(query.dataWfRule),
+                    cq.getDataEquiv(query.dataLeqRule)));
+        }
+        final BatchNameResolution<Scope, ITerm, ITerm> nameResolution =
+                new BatchNameResolution<>(state.scopeGraph(), spec.allLabels(),
+                        cq.getLabelWF(first.query.filter().getLabelWF()),
+                        cq.getLabelOrder(first.query.min().getLabelOrder()), (s, l) -> params.isComplete(s, l, state));
+        final List<BatchNameResolution.Result<Scope, ITerm, ITerm>> results =
+                nameResolution.resolve(first.scope, queries, cancel);
+        for(int i = 0; i < batch.size(); i++) {
+            final CResolveQuery c = batch.get(i).query;
+            final Env<Scope, ITerm, ITerm> paths;
+            try {
+                paths = results.get(i).env();
+            } catch(ResolutionException e) {
+                if(!queryFailed(c, e)) {
+                    return false;
+                }
+                continue;
+            }
+            if(!queryResolved(c, paths, MAX_DEPTH)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class BatchedQuery {
+
+        private final CResolveQuery query;
+        private final Scope scope;
+        private final Rule dataWfRule;
+        private final Rule dataLeqRule;
+
+        private BatchedQuery(CResolveQuery query, Scope scope, Rule dataWfRule, Rule dataLeqRule) {
+            this.query = query;
+            this.scope = scope;
+            this.dataWfRule = dataWfRule;
+            this.dataLeqRule = dataLeqRule;
+        }
+
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // k
     ///////////////////////////////////////////////////////////////////////////
@@ -387,15 +501,9 @@ class GreedySolver {
             }
 
             @Override public Boolean caseExists(CExists c) throws InterruptedException {
-                final Renaming.Builder _existentials = Renaming.builder();
-                IState.Immutable newState = state;
-                for(ITermVar var : c.vars()) {
-                    final Tuple2<ITermVar, IState.Immutable> varAndState = newState.freshVar(var);
-                    final ITermVar freshVar = varAndState._1();
-                    newState = varAndState._2();
-                    _existentials.put(var, freshVar);
-                }
-                final Renaming existentials = _existentials.build();
+                final Tuple2<IRenaming, IState.Immutable> existentialsAndState = state.freshVars(c.vars());
+                final IRenaming existentials = existentialsAndState._1();
+                final IState.Immutable newState = existentialsAndState._2();
 
                 final ISubstitution.Immutable subst = existentials.asSubstitution();
                 final IConstraint newConstraint = c.constraint().apply(subst).withCause(c.cause().orElse(null));
@@ -463,7 +571,6 @@ class GreedySolver {
                 final QueryFilter filter = c.filter();
                 final QueryMin min = c.min();
                 final ITerm scopeTerm = c.scopeTerm();
-                final ITerm resultTerm = c.resultTerm();
 
                 final IUniDisunifier unifier = state.unifier();
                 if(!unifier.isGround(scopeTerm)) {
@@ -490,6 +597,11 @@ class GreedySolver {
                     fail(constraint);
                 }
 
+                if((flags & BATCH_QUERIES) != 0) {
+                    return batchQuery(c, scope, dataWfRule, dataLeqRule);
+                }
+
+                final Env<Scope, ITerm, ITerm> paths;
                 try {
                     final ConstraintQueries cq = new ConstraintQueries(spec, state, params::isComplete);
                     // @formatter:off
@@ -499,25 +611,14 @@ class GreedySolver {
                                 .withLabelOrder(cq.getLabelOrder(min.getLabelOrder()))
                                 .withDataEquiv(cq.getDataEquiv(dataLeqRule))
                                 .withIsComplete((s, l) -> params.isComplete(s, l, state))
+                                .withEnvCache(envCache)
                                 .build(state.scopeGraph(), spec.allLabels());
                     // @formatter:on
-                    final Env<Scope, ITerm, ITerm> paths = nameResolution.resolve(scope, cancel);
-                    final List<ITerm> pathTerms =
-                            Streams.stream(paths).map(p -> StatixTerms.pathToTerm(p, spec.dataLabels()))
-                                    .collect(ImmutableList.toImmutableList());
-                    final IConstraint C = new CEqual(resultTerm, B.newList(pathTerms), c);
-                    return success(c, state, NO_UPDATED_VARS, ImmutableList.of(C), NO_NEW_CRITICAL_EDGES,
-                            NO_EXISTENTIALS, fuel);
-                } catch(IncompleteException e) {
-                    params.debug().debug("Query resolution delayed: {}", e.getMessage());
-                    return delay(c, Delay.ofCriticalEdge(CriticalEdge.of(e.scope(), e.label())));
-                } catch(ResolutionDelayException e) {
-                    params.debug().debug("Query resolution delayed: {}", e.getMessage());
-                    return delay(c, e.getCause());
+                    paths = nameResolution.resolve(scope, cancel);
                 } catch(ResolutionException e) {
-                    params.debug().debug("Query resolution failed: {}", e.getMessage());
-                    return fail(c);
+                    return queryFailed(c, e);
                 }
+                return queryResolved(c, paths, fuel);
             }
 
             @Override public Boolean caseTellEdge(CTellEdge c) throws InterruptedException {
@@ -649,7 +750,7 @@ class GreedySolver {
                 final LazyDebugContext proxyDebug = new LazyDebugContext(debug);
                 final IDebugContext debug = params.debug();
 
-                final List<Rule> rules = spec.rules().getRules(name);
+                final List<Rule> rules = spec.rules().getRules(name, args, state.unifier());
                 // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
                 final Tuple3<Rule, ApplyResult, Boolean> result;
                 if((result = RuleUtil.applyOrderedOne(state.unifier(), rules, args, c, ApplyMode.RELAXED, Safety.UNSAFE)
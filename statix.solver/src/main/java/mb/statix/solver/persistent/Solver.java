@@ -33,11 +33,13 @@ import mb.statix.constraints.messages.IMessage;
 import mb.statix.scopegraph.Scope;
 import mb.statix.solver.Delay;
 import mb.statix.solver.IConstraint;
+import mb.statix.solver.IConstraintStore;
 import mb.statix.solver.IState;
 import mb.statix.solver.completeness.Completeness;
 import mb.statix.solver.completeness.ICompleteness;
 import mb.statix.solver.completeness.IsComplete;
 import mb.statix.solver.log.IDebugContext;
+import mb.statix.solver.store.IndexedConstraintStore;
 import mb.statix.spec.PreSolvedConstraint;
 import mb.statix.spec.Spec;
 
@@ -45,6 +47,13 @@ public class Solver {
 
     public static final int RETURN_ON_FIRST_ERROR = 1;
 
+    /**
+     * Resolve queries in batches. Queries that are ready are queued, and resolved when there are no more active
+     * constraints. Queries from the same scope, with the same label well-formedness and label order, share a single
+     * traversal of the scope graph.
+     */
+    public static final int BATCH_QUERIES = 2;
+
     public static final int TERM_FORMAT_DEPTH = 4;
 
     public static final boolean INCREMENTAL_CRITICAL_EDGES = true;
@@ -218,6 +227,10 @@ public class Solver {
         return sb.toString();
     }
 
+    public static IConstraintStore newConstraintStore(IDebugContext debug) {
+        return IndexedConstraintStore.prioritized(debug);
+    }
+
     public static INameResolution.Builder<Scope, ITerm, ITerm> nameResolutionBuilder() {
         return FastNameResolution.builder();
 
@@ -60,6 +60,25 @@ class ConstraintDataLeq implements DataLeq<ITerm> {
         return constraint.isAlways().orElse(false);
     }
 
+    /**
+     * Predicates are equal if they check the same constraint in the same state, so that environments that were
+     * computed with one can be reused with the other.
+     */
+    @Override public int hashCode() {
+        return 31 * System.identityHashCode(state) + constraint.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+        if(obj == null)
+            return false;
+        if(getClass() != obj.getClass())
+            return false;
+        final ConstraintDataLeq other = (ConstraintDataLeq) obj;
+        return spec == other.spec && state == other.state && constraint.equals(other.constraint);
+    }
+
     @Override public String toString() {
         return constraint.toString(state.unifier()::toString);
     }
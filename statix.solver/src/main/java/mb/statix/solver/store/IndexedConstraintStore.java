@@ -0,0 +1,260 @@
+package mb.statix.solver.store;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import org.metaborg.util.log.Level;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import mb.nabl2.terms.ITermVar;
+import mb.statix.constraints.CArith;
+import mb.statix.constraints.CConj;
+import mb.statix.constraints.CEqual;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CFalse;
+import mb.statix.constraints.CInequal;
+import mb.statix.constraints.CResolveQuery;
+import mb.statix.constraints.CTrue;
+import mb.statix.constraints.CUser;
+import mb.statix.solver.CriticalEdge;
+import mb.statix.solver.Delay;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.IConstraintStore;
+import mb.statix.solver.log.IDebugContext;
+
+/**
+ * A constraint store that schedules active constraints by class, and keeps an index of delayed constraints.
+ *
+ * Active constraints are assigned a class by a classifier. Constraints of a lower class are always removed before
+ * constraints of a higher class, and within a class constraints are removed in LIFO order.
+ *
+ * Delayed constraints are indexed on the variables and critical edges they are delayed on. When a delayed constraint
+ * is activated, it is removed from all index entries, so that the remaining delayed constraints can be returned without
+ * scanning stale entries.
+ */
+public class IndexedConstraintStore implements IConstraintStore {
+
+    // @formatter:off
+    /** Unification, equality, and logical connectives. */
+    public static final int CLASS_UNIFY = 0;
+    /** Scope graph construction, AST properties, and other constraints. */
+    public static final int CLASS_OTHER = 1;
+    /** User constraints, which expand rules. */
+    public static final int CLASS_USER  = 2;
+    /** Queries, which are preferably resolved after the scope graph has been built as far as possible. */
+    public static final int CLASS_QUERY = 3;
+    // @formatter:on
+
+    /**
+     * A classifier that solves cheap constraints first, and queries last.
+     */
+    public static final ToIntFunction<IConstraint> PRIORITIES = IndexedConstraintStore::priority;
+
+    final IDebugContext debug;
+
+    private final ToIntFunction<IConstraint> classifier;
+    private final Deque<IConstraint>[] active;
+    private int activeSize = 0;
+    private int minClass;
+
+    private final Map<ITermVar, Set<Delayed>> stuckOnVar;
+    private final Map<CriticalEdge, Set<Delayed>> stuckOnEdge;
+    private final Set<Delayed> delayed;
+
+    /**
+     * Create a store with a single class.
+     */
+    public IndexedConstraintStore(IDebugContext debug) {
+        this(debug, 1, c -> 0);
+    }
+
+    /**
+     * Create a store with the classes of {@link #PRIORITIES}.
+     */
+    public static IndexedConstraintStore prioritized(IDebugContext debug) {
+        return new IndexedConstraintStore(debug, CLASS_QUERY + 1, PRIORITIES);
+    }
+
+    /**
+     * Create a store with the given number of classes. The classifier must return a class between zero (inclusive)
+     * and the number of classes (exclusive).
+     */
+    @SuppressWarnings("unchecked") public IndexedConstraintStore(IDebugContext debug, int classes,
+            ToIntFunction<IConstraint> classifier) {
+        if(classes < 1) {
+            throw new IllegalArgumentException("At least one constraint class is required.");
+        }
+        this.debug = debug;
+        this.classifier = classifier;
+        this.active = new Deque[classes];
+        for(int i = 0; i < classes; i++) {
+            active[i] = new ArrayDeque<>();
+        }
+        this.minClass = classes;
+        this.stuckOnVar = Maps.newHashMap();
+        this.stuckOnEdge = Maps.newHashMap();
+        this.delayed = Sets.newLinkedHashSet();
+    }
+
+    @Override public int activeSize() {
+        return activeSize;
+    }
+
+    @Override public int delayedSize() {
+        return delayed.size();
+    }
+
+    @Override public void add(IConstraint constraint) {
+        final int c = classifier.applyAsInt(constraint);
+        active[c].push(constraint);
+        activeSize++;
+        if(c < minClass) {
+            minClass = c;
+        }
+    }
+
+    @Override public IConstraint remove() {
+        while(minClass < active.length) {
+            final IConstraint constraint;
+            if((constraint = active[minClass].poll()) != null) {
+                activeSize--;
+                return constraint;
+            }
+            minClass++;
+        }
+        return null;
+    }
+
+    @Override public void delay(IConstraint constraint, Delay delay) {
+        final Delayed delayed;
+        if(!delay.vars().isEmpty()) {
+            if(debug.isEnabled(Level.Debug)) {
+                debug.debug("delayed {} on vars {}", constraint, delay.vars());
+            }
+            delayed = new Delayed(constraint, delay.vars(), Collections.emptySet());
+            for(ITermVar var : delay.vars()) {
+                stuckOnVar.computeIfAbsent(var, v -> newDelayedSet()).add(delayed);
+            }
+        } else if(!delay.criticalEdges().isEmpty()) {
+            if(debug.isEnabled(Level.Debug)) {
+                debug.debug("delayed {} on critical edges {}", constraint, delay.criticalEdges());
+            }
+            delayed = new Delayed(constraint, Collections.emptySet(), delay.criticalEdges());
+            for(CriticalEdge edge : delay.criticalEdges()) {
+                stuckOnEdge.computeIfAbsent(edge, e -> newDelayedSet()).add(delayed);
+            }
+        } else {
+            throw new IllegalArgumentException("delayed for no apparent reason");
+        }
+        this.delayed.add(delayed);
+    }
+
+    @Override public void activateFromVars(Iterable<? extends ITermVar> vars, IDebugContext debug) {
+        for(ITermVar var : vars) {
+            final Set<Delayed> activated = stuckOnVar.remove(var);
+            if(activated != null) {
+                for(Delayed delayed : activated) {
+                    activate(delayed, debug);
+                }
+            }
+        }
+    }
+
+    @Override public void activateFromEdges(Iterable<? extends CriticalEdge> edges, IDebugContext debug) {
+        for(CriticalEdge edge : edges) {
+            final Set<Delayed> activated = stuckOnEdge.remove(edge);
+            if(activated != null) {
+                for(Delayed delayed : activated) {
+                    activate(delayed, debug);
+                }
+            }
+        }
+    }
+
+    private void activate(Delayed delayed, IDebugContext debug) {
+        if(!this.delayed.remove(delayed)) {
+            return;
+        }
+        for(ITermVar var : delayed.vars) {
+            removeDelayed(stuckOnVar, var, delayed);
+        }
+        for(CriticalEdge edge : delayed.edges) {
+            removeDelayed(stuckOnEdge, edge, delayed);
+        }
+        final IConstraint constraint = delayed.constraint;
+        if(debug.isEnabled(Level.Debug)) {
+            debug.debug("activating {}", constraint);
+        }
+        add(constraint);
+    }
+
+    private static <K> void removeDelayed(Map<K, Set<Delayed>> index, K key, Delayed delayed) {
+        final Set<Delayed> entries;
+        if((entries = index.get(key)) != null) {
+            entries.remove(delayed);
+            if(entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    @Override public Map<IConstraint, Delay> delayed() {
+        final Map<IConstraint, Delay> delays = Maps.newLinkedHashMap();
+        for(Delayed d : delayed) {
+            delays.merge(d.constraint, d.delay(), (d1, d2) -> Delay.of(Arrays.asList(d1, d2)));
+        }
+        return ImmutableMap.copyOf(delays);
+    }
+
+    private static Set<Delayed> newDelayedSet() {
+        return Sets.newHashSet();
+    }
+
+    private static int priority(IConstraint constraint) {
+        // @formatter:off
+        if(constraint instanceof CEqual || constraint instanceof CInequal || constraint instanceof CTrue
+                || constraint instanceof CFalse || constraint instanceof CConj || constraint instanceof CExists
+                || constraint instanceof CArith) {
+            return CLASS_UNIFY;
+        }
+        // @formatter:on
+        if(constraint instanceof CUser) {
+            return CLASS_USER;
+        }
+        if(constraint instanceof CResolveQuery) {
+            return CLASS_QUERY;
+        }
+        return CLASS_OTHER;
+    }
+
+    private static class Delayed {
+
+        public final IConstraint constraint;
+        public final Set<ITermVar> vars;
+        public final Set<CriticalEdge> edges;
+
+        public Delayed(IConstraint constraint, Set<ITermVar> vars, Set<CriticalEdge> edges) {
+            this.constraint = constraint;
+            this.vars = vars;
+            this.edges = edges;
+        }
+
+        public Delay delay() {
+            return new Delay(vars, edges);
+        }
+
+        @Override public String toString() {
+            return constraint.toString();
+        }
+
+    }
+
+}
@@ -28,7 +28,6 @@ import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.matching.Pattern;
 import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
-import mb.nabl2.terms.substitution.Renaming;
 import mb.statix.solver.Delay;
 import mb.statix.solver.IConstraint;
 import mb.statix.solver.IState;
@@ -134,11 +133,7 @@ public class IndexedRuleApplication {
 
     public static Optional<IndexedRuleApplication> of(Spec spec, Rule rule) throws Delay, InterruptedException {
         final IState.Transient state = State.of().melt();
-        final Renaming.Builder _renaming = Renaming.builder();
-        for(ITermVar freeVar : rule.freeVars()) {
-            _renaming.put(freeVar, state.freshVar(freeVar));
-        }
-        final IRenaming renaming = _renaming.build();
+        final IRenaming renaming = state.freshVars(rule.freeVars());
         final IndexedRuleApplication newRule;
         try {
             if((newRule = of(state.freeze(), spec, rule.apply(renaming)).orElse(null)) == null) {
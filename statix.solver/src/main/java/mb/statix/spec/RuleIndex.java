@@ -0,0 +1,125 @@
+package mb.statix.spec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.matching.HeadKeys;
+import mb.nabl2.terms.matching.Pattern;
+import mb.nabl2.terms.unification.u.IUnifier;
+
+/**
+ * A discrimination index for an ordered list of rules with the same name, keyed on the outermost constructors of the
+ * rule parameters.
+ *
+ * Looking up the candidate rules for a list of arguments returns the rules, in their original order, that are not
+ * excluded by an argument's outermost constructor. Rules that are excluded can never match the arguments, so applying
+ * the candidates gives the same results as applying the complete list.
+ */
+final class RuleIndex {
+
+    private final ImmutableList<Rule> rules;
+    private final int arity;
+
+    /** Per argument position and rule, the head key of the rule's pattern, or null if the pattern is not constructed. */
+    private final Object[][] keys;
+    /** Per argument position, the indices of the rules that may match an argument with a given head key. */
+    private final List<Map<Object, int[]>> candidates;
+    /** Per argument position, the indices of the rules whose pattern is not constructed. */
+    private final List<int[]> unconstructed;
+
+    RuleIndex(ImmutableList<Rule> rules) {
+        this.rules = rules;
+        this.arity = rules.isEmpty() ? 0 : rules.get(0).params().size();
+        this.keys = new Object[arity][rules.size()];
+        this.candidates = new ArrayList<>(arity);
+        this.unconstructed = new ArrayList<>(arity);
+        for(int i = 0; i < rules.size(); i++) {
+            final List<Pattern> params = rules.get(i).params();
+            if(params.size() != arity) {
+                // rules with a different arity never match; keep them as candidates for every key
+                continue;
+            }
+            for(int pos = 0; pos < arity; pos++) {
+                keys[pos][i] = params.get(pos).headKey();
+            }
+        }
+        for(int pos = 0; pos < arity; pos++) {
+            final Map<Object, List<Integer>> _keyed = new HashMap<>();
+            final List<Integer> _unconstructed = new ArrayList<>();
+            for(int i = 0; i < rules.size(); i++) {
+                final Object key = keys[pos][i];
+                if(key == null) {
+                    // unconstructed patterns match every key, including the ones that came before
+                    _unconstructed.add(i);
+                    for(List<Integer> is : _keyed.values()) {
+                        is.add(i);
+                    }
+                } else {
+                    _keyed.computeIfAbsent(key, k -> new ArrayList<>(_unconstructed)).add(i);
+                }
+            }
+            final Map<Object, int[]> keyed = new HashMap<>();
+            _keyed.forEach((key, is) -> keyed.put(key, toArray(is)));
+            candidates.add(keyed);
+            unconstructed.add(toArray(_unconstructed));
+        }
+    }
+
+    /**
+     * Return the rules that may apply to the given arguments, in the original rule order.
+     */
+    List<Rule> getCandidateRules(List<? extends ITerm> args, IUnifier unifier) {
+        if(args.size() != arity || arity == 0) {
+            return rules;
+        }
+
+        // find the most selective argument position
+        final Object[] argKeys = new Object[arity];
+        int[] best = null;
+        int bestPos = -1;
+        for(int pos = 0; pos < arity; pos++) {
+            final Object key = HeadKeys.of(unifier.findTerm(args.get(pos)));
+            if((argKeys[pos] = key) == null) {
+                continue;
+            }
+            final int[] is = candidates.get(pos).getOrDefault(key, unconstructed.get(pos));
+            if(best == null || is.length < best.length) {
+                best = is;
+                bestPos = pos;
+            }
+        }
+        if(best == null) {
+            return rules;
+        }
+        if(best.length == rules.size() && arity == 1) {
+            return rules;
+        }
+
+        // filter the candidates on the remaining argument positions
+        final ImmutableList.Builder<Rule> result = ImmutableList.builderWithExpectedSize(best.length);
+        RULE: for(int i : best) {
+            for(int pos = 0; pos < arity; pos++) {
+                if(pos == bestPos || argKeys[pos] == null) {
+                    continue;
+                }
+                final Object key = keys[pos][i];
+                if(key != null && !Objects.equals(key, argKeys[pos])) {
+                    continue RULE;
+                }
+            }
+            result.add(rules.get(i));
+        }
+        return result.build();
+    }
+
+    private static int[] toArray(List<Integer> is) {
+        return is.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}
@@ -2,8 +2,9 @@ package mb.statix.spec;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.metaborg.util.tuple.Tuple2;
 
@@ -15,6 +16,7 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.SetMultimap;
 
 import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.unification.u.IUnifier;
 import mb.statix.solver.completeness.CompletenessUtil;
 
 
@@ -29,9 +31,14 @@ public final class RuleSet implements Serializable {
     private final ImmutableListMultimap<String, Rule> rules;
     /**
      * The independent rules. If a rule name is not in this map, an independent version of its rules has not yet been
-     * created.
+     * created. The map is concurrent, because rule sets may be shared between analyses running in parallel.
      */
-    private final Map<String, ImmutableSet<Rule>> independentRules = new HashMap<>();
+    private final Map<String, ImmutableSet<Rule>> independentRules = new ConcurrentHashMap<>();
+    /**
+     * The rule indices, used to select candidate rules based on the arguments. If a rule name is not in this map, an
+     * index for its rules has not yet been created. The map is not serialized, and created on demand.
+     */
+    private transient volatile Map<String, RuleIndex> ruleIndices;
 
     /**
      * Makes a new ruleset from the specified collection of rules.
@@ -103,6 +110,52 @@ public final class RuleSet implements Serializable {
         return this.rules.get(name);
     }
 
+    /**
+     * Gets the rules with the specified name that may apply to the given arguments.
+     *
+     * The rules are returned in order from most specific to least specific guard. Rules are excluded if the outermost
+     * constructor of an instantiated argument does not match the outermost constructor of the corresponding pattern.
+     * Applying the returned rules in order therefore gives the same result as applying all rules from
+     * {@link #getRules(String)}.
+     *
+     * @param name
+     *            the name of the rules to find
+     * @param args
+     *            the arguments the rules will be applied to
+     * @param unifier
+     *            the unifier used to instantiate the arguments
+     * @return the rules with the specified name that may apply
+     */
+    public List<Rule> getRules(String name, List<? extends ITerm> args, IUnifier unifier) {
+        return ruleIndex(name).getCandidateRules(args, unifier);
+    }
+
+    private RuleIndex ruleIndex(String name) {
+        Map<String, RuleIndex> ruleIndices = this.ruleIndices;
+        if(ruleIndices == null) {
+            synchronized(this) {
+                if((ruleIndices = this.ruleIndices) == null) {
+                    this.ruleIndices = ruleIndices = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return ruleIndices.computeIfAbsent(name, n -> new RuleIndex(getRules(n)));
+    }
+
+    /**
+     * Creates the rule indices and the order independent rules for all rule names, which are otherwise created on
+     * demand. This is useful for rule sets that are reused many times, so the solver does not pay for these later.
+     *
+     * @return this rule set
+     */
+    public RuleSet precomputeIndices() {
+        for(String name : rules.keySet()) {
+            ruleIndex(name);
+            getOrderIndependentRules(name);
+        }
+        return this;
+    }
+
     /**
      * Gets a map of lists of rules, where the match order is reflected in (dis)equality constraints in the rule bodies.
      * The resulting rules can be applied independent of the other rules in the set.
@@ -22,7 +22,7 @@ public class STX_solve_constraint extends StatixConstraintPrimitive {
 
     @Override protected SolverResult solve(Spec spec, IConstraint constraint, IDebugContext debug, IProgress progress,
             ICancel cancel) throws InterruptedException, ExecutionException {
-        return Solver.solve(spec, State.of(), constraint, debug, cancel, progress, 0);
+        return Solver.solve(spec, State.of(), constraint, debug, cancel, progress, Solver.BATCH_QUERIES);
     }
 
 }
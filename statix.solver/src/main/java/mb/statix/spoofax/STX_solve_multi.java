@@ -55,9 +55,7 @@ public class STX_solve_multi extends StatixPrimitive {
 
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
-        final Spec spec =
-                StatixTerms.spec().match(terms.get(0)).orElseThrow(() -> new InterpreterException("Expected spec."));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(0));
 
         final IDebugContext debug = getDebugContext(terms.get(1));
         final IProgress progress = getProgress(terms.get(2));
@@ -38,9 +38,7 @@ public class STX_solve_multi_file extends StatixPrimitive {
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
 
-        final Spec spec =
-                StatixTerms.spec().match(terms.get(0)).orElseThrow(() -> new InterpreterException("Expected spec."));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(0));
 
         final SolverResult initial = M.blobValue(SolverResult.class).match(terms.get(1))
                 .orElseThrow(() -> new InterpreterException("Expected solver result."));
@@ -72,7 +70,8 @@ public class STX_solve_multi_file extends StatixPrimitive {
         };
         final SolverResult resultConfig;
         try {
-            resultConfig = Solver.solve(spec, state, constraint, isComplete, debug, cancel, progress, 0);
+            resultConfig = Solver.solve(spec, state, constraint, isComplete, debug, cancel, progress,
+                    Solver.BATCH_QUERIES);
         } catch(InterruptedException e) {
             throw new RuntimeException(e);
         }
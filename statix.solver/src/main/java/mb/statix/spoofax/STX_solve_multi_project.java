@@ -38,9 +38,7 @@ public class STX_solve_multi_project extends StatixPrimitive {
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
 
-        final Spec spec =
-                StatixTerms.spec().match(terms.get(0)).orElseThrow(() -> new InterpreterException("Expected spec."));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(0));
 
         final SolverResult initial = M.blobValue(SolverResult.class).match(terms.get(1))
                 .orElseThrow(() -> new InterpreterException("Expected solver result."));
@@ -71,7 +69,7 @@ public class STX_solve_multi_project extends StatixPrimitive {
         try {
             final double t0 = System.currentTimeMillis();
             resultConfig = Solver.solve(spec, state, Constraints.conjoin(constraints), (s, l, st) -> true, debug,
-                    cancel, progress, 0);
+                    cancel, progress, Solver.BATCH_QUERIES);
             final double dt = System.currentTimeMillis() - t0;
             logger.info("Project analyzed in {} s", (dt / 1_000d));
         } catch(InterruptedException e) {
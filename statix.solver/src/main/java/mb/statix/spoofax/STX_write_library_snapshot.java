@@ -0,0 +1,54 @@
+package mb.statix.spoofax;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermMatch.M;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+import org.spoofax.interpreter.core.IContext;
+import org.spoofax.interpreter.core.InterpreterException;
+
+import com.google.inject.Inject;
+
+import mb.nabl2.terms.ITerm;
+import mb.statix.concurrent.IStatixLibrary;
+import mb.statix.concurrent.StatixLibrarySnapshot;
+
+/**
+ * Write a library to a snapshot file, and return a reference to the snapshot, which can be used in place of the library.
+ */
+public class STX_write_library_snapshot extends StatixPrimitive {
+
+    @Inject public STX_write_library_snapshot() {
+        super(STX_write_library_snapshot.class.getSimpleName(), 1);
+    }
+
+    @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
+            throws InterpreterException {
+        final IStatixLibrary library =
+                IStatixLibrary.matcher().match(term).orElseThrow(() -> new InterpreterException("Expected library."));
+        final String file =
+                M.stringValue().match(terms.get(0)).orElseThrow(() -> new InterpreterException("Expected file name."));
+
+        final Path path = Paths.get(file);
+        try {
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try(final OutputStream out = Files.newOutputStream(path)) {
+                StatixLibrarySnapshot.write(library, out);
+            }
+        } catch(IOException e) {
+            throw new InterpreterException("Cannot write library snapshot " + file, e);
+        }
+
+        return Optional.of(B.newAppl("LibrarySnapshot", B.newString(path.toAbsolutePath().toString())));
+    }
+
+}
@@ -77,11 +77,18 @@ public abstract class StatixPrimitive extends AbstractPrimitive {
         if(sterms.size() != tvars) {
             throw new InterpreterException("Expected " + tvars + " term arguments, but got " + sterms.size());
         }
-        final StrategoTerms strategoTerms = new StrategoTerms(factory);
+        final StrategoTerms strategoTerms = new StrategoTerms(factory, true);
         final ITerm term = strategoTerms.fromStratego(sterm);
-        final List<ITerm> terms =
-                sterms.stream().map(strategoTerms::fromStratego).collect(ImmutableList.toImmutableList());
+        final ImmutableList.Builder<ITerm> termsBuilder = ImmutableList.builder();
+        for(IStrategoTerm sarg : sterms) {
+            final ITerm cachedArg = StatixSpecCache.getTerm(sarg);
+            termsBuilder.add(cachedArg != null ? cachedArg : strategoTerms.fromStratego(sarg));
+        }
+        final List<ITerm> terms = termsBuilder.build();
         final Optional<? extends ITerm> result = call(env, term, terms);
+        for(int i = 0; i < sterms.size(); i++) {
+            StatixSpecCache.putTerm(sterms.get(i), terms.get(i));
+        }
         return result.map(strategoTerms::toStratego);
     }
 
@@ -92,6 +99,21 @@ public abstract class StatixPrimitive extends AbstractPrimitive {
     // Helper methods for checking specs //
     ///////////////////////////////////////
 
+    /**
+     * Get the compiled spec for a spec term. Compiled specs are cached, and rules with overlapping patterns are only
+     * reported when a spec is compiled.
+     */
+    protected Spec getSpec(ITerm specTerm) throws InterpreterException {
+        final Spec cachedSpec = StatixSpecCache.getSpec(specTerm);
+        if(cachedSpec != null) {
+            return cachedSpec;
+        }
+        final Spec spec = StatixTerms.spec().match(specTerm)
+                .orElseThrow(() -> new InterpreterException("Expected spec, got " + specTerm));
+        reportOverlappingRules(spec);
+        return StatixSpecCache.putSpec(specTerm, spec);
+    }
+
     protected void reportOverlappingRules(final Spec spec) {
         final ListMultimap<String, Rule> rulesWithEquivalentPatterns = spec.rules().getAllEquivalentRules();
         if(!rulesWithEquivalentPatterns.isEmpty()) {
@@ -0,0 +1,81 @@
+package mb.statix.spoofax;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import mb.nabl2.terms.ITerm;
+import mb.statix.spec.Spec;
+
+/**
+ * Cache of compiled specifications, shared by all Statix primitives.
+ *
+ * The primitives receive the specification as a Stratego term on every call, which would otherwise be converted and
+ * compiled every time. Specs are found by the identity of the Stratego term, and by the identity of the converted term.
+ * Specs are not found by content, because term equality ignores attachments, such as origins, which may differ in a
+ * reloaded specification. Compiled specs are immutable and may be used by several analyses at the same time.
+ *
+ * The cache holds a few specs at most, and drops specs that have not been used for a while.
+ */
+final class StatixSpecCache {
+
+    private static final int MAX_SPECS = 8;
+    private static final long EXPIRE_MINUTES = 30;
+
+    /** Converted spec terms, by identity of the Stratego term. */
+    private static final Cache<IStrategoTerm, ITerm> terms = newCache().weakKeys().build();
+
+    /** Compiled specs, by identity of the spec term. */
+    private static final Cache<ITerm, Spec> specs = newCache().weakKeys().build();
+
+    private StatixSpecCache() {
+    }
+
+    /**
+     * Get the converted term for a Stratego term, if the Stratego term is a spec that was seen before.
+     */
+    static @Nullable ITerm getTerm(IStrategoTerm sterm) {
+        return terms.getIfPresent(sterm);
+    }
+
+    /**
+     * Remember the conversion of a Stratego term, if the converted term is a compiled spec.
+     */
+    static void putTerm(IStrategoTerm sterm, ITerm term) {
+        if(specs.getIfPresent(term) != null) {
+            terms.put(sterm, term);
+        }
+    }
+
+    static @Nullable Spec getSpec(ITerm specTerm) {
+        return specs.getIfPresent(specTerm);
+    }
+
+    /**
+     * Add a compiled spec to the cache. Indices that are otherwise computed on demand are computed here, so that
+     * analyses using the cached spec do not compute them again.
+     */
+    static Spec putSpec(ITerm specTerm, Spec spec) {
+        spec.rules().precomputeIndices();
+        specs.put(specTerm, spec);
+        return spec;
+    }
+
+    /**
+     * Remove all converted terms and compiled specs from the cache.
+     */
+    static void invalidateAll() {
+        terms.invalidateAll();
+        specs.invalidateAll();
+    }
+
+    private static CacheBuilder<Object, Object> newCache() {
+        return CacheBuilder.newBuilder().maximumSize(MAX_SPECS).expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES);
+    }
+
+}
@@ -0,0 +1,99 @@
+package mb.statix.concurrent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.util.tuple.Tuple2;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.statix.scopegraph.Scope;
+
+public class StatixLibrarySnapshotTest {
+
+    private static final ITerm P = B.newAppl("Label", B.newString("P"));
+    private static final ITerm D = B.newAppl("Label", B.newString("D"));
+
+    private final Scope root = Scope.of("lib", "root");
+    private final Scope s1 = Scope.of("lib", "s1");
+    private final Scope s2 = Scope.of("lib", "s2");
+    private final Scope external = Scope.of("other", "s");
+
+    private final IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph = ScopeGraph.Immutable
+            .<Scope, ITerm, ITerm>of().addEdge(root, D, s1).addEdge(s1, P, root).addEdge(s1, D, s2)
+            .addEdge(s1, D, root).addEdge(s2, P, s1)
+            .setDatum(s1, B.newAppl("Decl", B.newString("x"), B.newInt(-1), B.newList(s2, external)))
+            .setDatum(s2, B.newAppl("Decl", B.newString("y"), B.newListTail(Arrays.asList(s1), B.newVar("", "t"))));
+
+    private final StatixLibrary library =
+            new StatixLibrary(Arrays.asList(root, root), Arrays.asList(s1, s2), scopeGraph);
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test public void testRoundTrip() throws IOException {
+        final StatixLibrarySnapshot snapshot = snapshot(library);
+        assertEquals(library.rootScopes(), snapshot.rootScopes());
+        assertEquals(library.ownScopes(), snapshot.ownScopes());
+        assertEquals(scopeGraph, snapshot.scopeGraph());
+    }
+
+    @Test public void testInitializeRenamesScopes() throws IOException {
+        final Scope newRoot = Scope.of("unit", "root");
+        final Tuple2<Set.Immutable<Scope>, IScopeGraph.Immutable<Scope, ITerm, ITerm>> expected =
+                library.initialize(Arrays.asList(newRoot, newRoot), name -> Scope.of("unit", name));
+        final Tuple2<Set.Immutable<Scope>, IScopeGraph.Immutable<Scope, ITerm, ITerm>> actual =
+                snapshot(library).initialize(Arrays.asList(newRoot, newRoot), name -> Scope.of("unit", name));
+        assertEquals(expected._1(), actual._1());
+        assertEquals(expected._2().getData(), actual._2().getData());
+        for(Scope scope : Arrays.asList(newRoot, Scope.of("unit", "s1"), Scope.of("unit", "s2"))) {
+            for(ITerm label : Arrays.asList(P, D)) {
+                assertEquals(set(expected._2().getEdges(scope, label)), set(actual._2().getEdges(scope, label)));
+            }
+        }
+    }
+
+    @Test public void testMatchSnapshotFile() throws IOException {
+        final File file = folder.newFile("library.stxsnap");
+        try(final OutputStream out = new FileOutputStream(file)) {
+            StatixLibrarySnapshot.write(library, out);
+        }
+        final IStatixLibrary snapshot = IStatixLibrary.matcher()
+                .match(B.newAppl("LibrarySnapshot", B.newString(file.getAbsolutePath()))).get();
+        assertTrue(snapshot instanceof StatixLibrarySnapshot);
+        assertEquals(library.rootScopes(), snapshot.rootScopes());
+        assertEquals(scopeGraph, snapshot.scopeGraph());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testRejectsNonLibraryTargets() throws IOException {
+        snapshot(new StatixLibrary(Collections.singletonList(root), Collections.singletonList(s1),
+                scopeGraph.addEdge(s1, P, external)));
+    }
+
+    private static StatixLibrarySnapshot snapshot(IStatixLibrary library) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatixLibrarySnapshot.write(library, out);
+        return StatixLibrarySnapshot.of(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static java.util.Set<Scope> set(Iterable<Scope> scopes) {
+        final java.util.Set<Scope> set = new java.util.HashSet<>();
+        scopes.forEach(set::add);
+        return set;
+    }
+
+}
@@ -2,6 +2,7 @@ package mb.statix.constraints;
 
 import static mb.nabl2.terms.build.TermBuild.B;
 import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.List;
@@ -13,8 +14,10 @@ import com.google.common.collect.Sets;
 
 import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.ISubstitution;
 import mb.nabl2.terms.substitution.PersistentSubstitution;
+import mb.nabl2.terms.substitution.Renaming;
 import mb.statix.solver.IConstraint;
 import mb.statix.spec.Rule;
 
@@ -143,6 +146,32 @@ public class SubsitutionTest {
     }
 
 
+    @Test public void testCachedFreeVarsUser() {
+        final ISubstitution.Immutable subst = PersistentSubstitution.Immutable.of(a, f(b)).put(b, g(c));
+        final IConstraint p = new CUser("p", list(a, h(b)));
+        p.freeVars();
+        final IConstraint q = p.apply(subst);
+        assertInvariant(p, subst, q);
+        assertEquals(new CUser("p", list(f(b), h(g(c)))).freeVars(), q.freeVars());
+    }
+
+    @Test public void testCachedFreeVarsEqual() {
+        final ISubstitution.Immutable subst = PersistentSubstitution.Immutable.of(a, f());
+        final IConstraint p = new CEqual(a, g(b));
+        p.freeVars();
+        final IConstraint q = p.apply(subst).withCause(p);
+        assertInvariant(p, subst, q);
+        assertEquals(new CEqual(f(), g(b)).freeVars(), q.freeVars());
+    }
+
+    @Test public void testCachedFreeVarsRenaming() {
+        final IRenaming renaming = Renaming.builder().put(a, c).build();
+        final IConstraint p = new CUser("p", list(a, b));
+        p.freeVars();
+        assertEquals(new CUser("p", list(c, b)).freeVars(), p.apply(renaming).freeVars());
+    }
+
+
     ////////////////////////////////////////////////////////////////////////////
 
     private static final ITermVar a = B.newVar("", "a");
@@ -0,0 +1,54 @@
+package mb.statix.solver.completeness;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.statix.scopegraph.Scope;
+import mb.statix.solver.CriticalEdge;
+
+public class CompletenessTrackerTest {
+
+    private final IUnifier unifier = PersistentUnifier.Immutable.of();
+    private final Scope s = Scope.of("", "s");
+    private final EdgeOrData<ITerm> P = EdgeOrData.edge(B.newString("P"));
+
+    @Test public void testSnapshotsAreShared() {
+        final CompletenessTracker completeness = new CompletenessTracker(Completeness.Immutable.of());
+        final ICompleteness.Immutable empty = completeness.freeze();
+        assertSame(empty, completeness.freeze());
+
+        // updates without effect do not create a new snapshot
+        completeness.addAll(Completeness.Immutable.of(), unifier);
+        completeness.removeAll(Completeness.Immutable.of(), unifier);
+        assertSame(empty, completeness.freeze());
+    }
+
+    @Test public void testUpdatesAfterSnapshot() {
+        final CompletenessTracker completeness = new CompletenessTracker(Completeness.Immutable.of());
+        final ICompleteness.Immutable edges = criticalEdges();
+        completeness.addAll(edges, unifier);
+        assertFalse(completeness.isComplete(s, P, unifier));
+
+        final ICompleteness.Immutable snapshot = completeness.freeze();
+        assertEquals(CriticalEdge.of(s, P), completeness.removeAll(edges, unifier).iterator().next());
+        assertTrue(completeness.isComplete(s, P, unifier));
+        assertFalse(snapshot.isComplete(s, P, unifier));
+        assertTrue(completeness.freeze().isEmpty());
+    }
+
+    private ICompleteness.Immutable criticalEdges() {
+        final ICompleteness.Transient edges = Completeness.Transient.of();
+        edges.add(s, P, unifier);
+        return edges.freeze();
+    }
+
+}
@@ -0,0 +1,101 @@
+package mb.statix.solver.persistent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermMatch.M;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+
+import com.google.common.collect.HashMultimap;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.scopegraph.regexp.IRegExp;
+import mb.scopegraph.regexp.impl.RegExpBuilder;
+import mb.scopegraph.relations.RelationDescription;
+import mb.scopegraph.relations.impl.Relation;
+import mb.statix.constraints.CEqual;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CFalse;
+import mb.statix.constraints.CNew;
+import mb.statix.constraints.CResolveQuery;
+import mb.statix.constraints.CTellEdge;
+import mb.statix.constraints.CTrue;
+import mb.statix.constraints.Constraints;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.log.NullDebugContext;
+import mb.statix.solver.query.QueryFilter;
+import mb.statix.solver.query.QueryMin;
+import mb.statix.spec.Rule;
+import mb.statix.spec.RuleSet;
+import mb.statix.spec.Spec;
+
+public class SolverTest {
+
+    private static final ITerm P_LABEL = B.newAppl("Label", B.newString("P"));
+
+    private final ITermVar s1 = B.newVar("", "s1");
+    private final ITermVar s2 = B.newVar("", "s2");
+    private final ITermVar s3 = B.newVar("", "s3");
+    private final ITermVar r1 = B.newVar("", "r1");
+    private final ITermVar r2 = B.newVar("", "r2");
+    private final ITermVar r3 = B.newVar("", "r3");
+    private final ITermVar d = B.newVar("", "d");
+
+    private final Spec spec = Spec.of(RuleSet.of(Collections.emptyList()), Collections.singleton(P_LABEL),
+            Collections.emptySet(), HashMultimap.create());
+
+    @Test public void testBatchedQueriesGiveSameAnswers() throws InterruptedException {
+        final IRegExp<ITerm> wf = new RegExpBuilder<ITerm>().closure(new RegExpBuilder<ITerm>().symbol(P_LABEL));
+        final Rule anyData = Rule.of("", Arrays.asList(P.newWld()), new CTrue());
+        final Rule aData = Rule.of("", Arrays.asList(P.newVar(d)), new CEqual(d, B.newString("a")));
+        final QueryMin min = new QueryMin(Relation.Immutable.<EdgeOrData<ITerm>>of(
+                RelationDescription.STRICT_PARTIAL_ORDER), Rule.of("", Arrays.asList(P.newWld(), P.newWld()),
+                        new CFalse()));
+
+        // @formatter:off
+        final IConstraint body = Constraints.conjoin(Arrays.asList(
+            new CNew(s1, B.newString("a")),
+            new CNew(s2, B.newString("b")),
+            new CNew(s3, B.newString("c")),
+            new CTellEdge(s2, P_LABEL, s1),
+            new CTellEdge(s3, P_LABEL, s2),
+            new CResolveQuery(new QueryFilter(wf, anyData), min, s3, r1),
+            new CResolveQuery(new QueryFilter(wf, aData), min, s3, r2),
+            new CResolveQuery(new QueryFilter(wf, anyData), min, s2, r3)
+        ));
+        // @formatter:on
+        final IConstraint constraint = new CExists(Arrays.asList(s1, s2, s3, r1, r2, r3), body);
+
+        final SolverResult unbatched = solve(constraint, 0);
+        final SolverResult batched = solve(constraint, Solver.BATCH_QUERIES);
+
+        assertTrue(unbatched.messages().isEmpty());
+        assertTrue(batched.messages().isEmpty());
+        assertEquals(3, answer(unbatched, r1).size());
+        for(ITermVar r : Arrays.asList(r1, r2, r3)) {
+            assertEquals(answer(unbatched, r), answer(batched, r));
+        }
+    }
+
+    private SolverResult solve(IConstraint constraint, int flags) throws InterruptedException {
+        return Solver.solve(spec, State.of(), constraint, new NullDebugContext(), new NullCancel(), new NullProgress(),
+                flags);
+    }
+
+    private static Set<ITerm> answer(SolverResult result, ITermVar var) {
+        final ITerm term = result.state().unifier().findRecursive(result.existentials().get(var));
+        return new HashSet<>(M.listElems().match(term).orElseThrow(() -> new AssertionError(term)));
+    }
+
+}
@@ -0,0 +1,45 @@
+package mb.statix.solver.persistent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.metaborg.util.tuple.Tuple2;
+
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.substitution.IRenaming;
+import mb.statix.solver.IState;
+
+public class StateTest {
+
+    private final List<ITermVar> vars = Arrays.asList(B.newVar("", "x"), B.newVar("", "y-1"), B.newVar("", "z"));
+
+    @Test public void testFreshVarsEqualsFreshVar() {
+        final IState.Immutable initial = State.of().withResource("r").freshWld()._2();
+
+        IState.Immutable expectedState = initial;
+        for(ITermVar var : vars) {
+            expectedState = expectedState.freshVar(var)._2();
+        }
+
+        final Tuple2<IRenaming, IState.Immutable> result = initial.freshVars(vars);
+        assertEquals(expectedState, result._2());
+        assertEquals(B.newVar("r", "x-2"), result._1().rename(vars.get(0)));
+        assertEquals(B.newVar("r", "y_1-3"), result._1().rename(vars.get(1)));
+        assertEquals(B.newVar("r", "z-4"), result._1().rename(vars.get(2)));
+    }
+
+    @Test public void testFreshVarsEmpty() {
+        final IState.Immutable initial = State.of();
+        final Tuple2<IRenaming, IState.Immutable> result = initial.freshVars(Collections.emptyList());
+        assertSame(initial, result._2());
+        assertTrue(result._1().isEmpty());
+    }
+
+}
@@ -0,0 +1,76 @@
+package mb.statix.solver.store;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import mb.nabl2.terms.ITermVar;
+import mb.statix.constraints.CEqual;
+import mb.statix.constraints.CTrue;
+import mb.statix.constraints.CUser;
+import mb.statix.solver.Delay;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.log.NullDebugContext;
+
+public class IndexedConstraintStoreTest {
+
+    private static final ITermVar x = B.newVar("", "x");
+    private static final ITermVar y = B.newVar("", "y");
+
+    @Test public void testSingleClassIsLifo() {
+        final IndexedConstraintStore store = new IndexedConstraintStore(new NullDebugContext());
+        final IConstraint c1 = new CTrue();
+        final IConstraint c2 = new CUser("p", Arrays.asList(x));
+        final IConstraint c3 = new CEqual(x, y);
+        store.addAll(Arrays.asList(c1, c2, c3));
+        assertEquals(3, store.activeSize());
+        assertSame(c3, store.remove());
+        assertSame(c2, store.remove());
+        assertSame(c1, store.remove());
+        assertNull(store.remove());
+        assertEquals(0, store.activeSize());
+    }
+
+    @Test public void testPrioritized() {
+        final IndexedConstraintStore store = IndexedConstraintStore.prioritized(new NullDebugContext());
+        final IConstraint user = new CUser("p", Arrays.asList(x));
+        final IConstraint eq1 = new CEqual(x, y);
+        final IConstraint eq2 = new CEqual(y, x);
+        store.addAll(Arrays.asList(eq1, user, eq2));
+        assertSame(eq2, store.remove());
+        assertSame(eq1, store.remove());
+        final IConstraint tt = new CTrue();
+        store.add(tt);
+        assertSame(tt, store.remove());
+        assertSame(user, store.remove());
+        assertNull(store.remove());
+    }
+
+    @Test public void testActivationRemovesAllDelays() {
+        final IndexedConstraintStore store = new IndexedConstraintStore(new NullDebugContext());
+        final IConstraint c = new CUser("p", Arrays.asList(x, y));
+        store.delay(c, Delay.ofVars(ImmutableSet.of(x, y)));
+        assertEquals(1, store.delayedSize());
+        final Map<IConstraint, Delay> delayed = store.delayed();
+        assertEquals(ImmutableSet.of(x, y), delayed.get(c).vars());
+
+        store.activateFromVars(Arrays.asList(x), new NullDebugContext());
+        assertEquals(0, store.delayedSize());
+        assertEquals(1, store.activeSize());
+        assertSame(c, store.remove());
+
+        // activating the other variable does not activate the constraint again
+        store.activateFromVars(Arrays.asList(y), new NullDebugContext());
+        assertEquals(0, store.activeSize());
+        assertEquals(0, store.delayed().size());
+    }
+
+}
@@ -0,0 +1,70 @@
+package mb.statix.spec;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.OccursException;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+import mb.statix.constraints.CTrue;
+
+public class RuleSetTest {
+
+    private static final ITermVar x = B.newVar("", "x");
+    private static final ITermVar y = B.newVar("", "y");
+
+    private final Rule fInt = Rule.of("p", Arrays.asList(P.newAppl("F", P.newInt(1)), P.newWld()), new CTrue());
+    private final Rule fWld = Rule.of("p", Arrays.asList(P.newAppl("F", P.newWld()), P.newWld()), new CTrue());
+    private final Rule gStr = Rule.of("p", Arrays.asList(P.newAppl("G", P.newWld()), P.newString("s")), new CTrue());
+    private final Rule gNil = Rule.of("p", Arrays.asList(P.newAppl("G", P.newWld()), P.newNil()), new CTrue());
+    private final Rule wld = Rule.of("p", Arrays.asList(P.newWld(), P.newWld()), new CTrue());
+
+    private final RuleSet ruleSet = RuleSet.of(Arrays.asList(fInt, fWld, gStr, gNil, wld));
+
+    @Test public void testAllRulesForVariables() {
+        assertEquals(ruleSet.getRules("p"), candidates(x, y, PersistentUnifier.Immutable.of()));
+    }
+
+    @Test public void testSelectOnFirstArgument() {
+        assertEquals(Arrays.asList(fInt, fWld, wld), candidates(B.newAppl("F", x), y, PersistentUnifier.Immutable.of()));
+        assertEquals(Arrays.asList(gStr, gNil, wld), candidates(B.newAppl("G", x), y, PersistentUnifier.Immutable.of()));
+        assertEquals(Arrays.asList(wld), candidates(B.newAppl("H", x), y, PersistentUnifier.Immutable.of()));
+        assertEquals(Arrays.asList(wld), candidates(B.newAppl("F"), y, PersistentUnifier.Immutable.of()));
+    }
+
+    @Test public void testSelectOnAllArguments() {
+        assertEquals(Arrays.asList(gStr, wld),
+                candidates(B.newAppl("G", x), B.newString("s"), PersistentUnifier.Immutable.of()));
+        assertEquals(Arrays.asList(gNil, wld), candidates(x, B.newNil(), PersistentUnifier.Immutable.of()));
+        assertEquals(Arrays.asList(fInt, fWld, wld),
+                candidates(B.newAppl("F", x), B.newList(Arrays.asList(x)), PersistentUnifier.Immutable.of()));
+    }
+
+    @Test public void testSelectOnInstantiatedVariables() throws OccursException {
+        final IUnifier.Immutable unifier =
+                PersistentUnifier.Immutable.of().unify(x, B.newAppl("G", y)).get().unifier();
+        assertEquals(Arrays.asList(gStr, gNil, wld), candidates(x, y, unifier));
+    }
+
+    @Test public void testPrecomputeIndices() {
+        final RuleSet precomputed = RuleSet.of(Arrays.asList(fInt, fWld, gStr, gNil, wld));
+        assertSame(precomputed, precomputed.precomputeIndices());
+        assertEquals(ruleSet.getOrderIndependentRules("p"), precomputed.getOrderIndependentRules("p"));
+        assertEquals(Arrays.asList(gStr, wld), precomputed.getRules("p",
+                Arrays.asList(B.newAppl("G", x), B.newString("s")), PersistentUnifier.Immutable.of()));
+    }
+
+    private List<Rule> candidates(ITerm arg1, ITerm arg2, IUnifier unifier) {
+        return ruleSet.getRules("p", Arrays.asList(arg1, arg2), unifier);
+    }
+
+}
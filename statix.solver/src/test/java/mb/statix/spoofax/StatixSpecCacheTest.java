@@ -0,0 +1,61 @@
+package mb.statix.spoofax;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.stratego.TermOrigin;
+import mb.statix.spec.Spec;
+
+public class StatixSpecCacheTest {
+
+    private final ITermFactory factory = new TermFactory();
+
+    @Before public void setUp() {
+        StatixSpecCache.invalidateAll();
+    }
+
+    @Test public void testSpecIdentityHit() {
+        final ITerm specTerm = B.newAppl("Spec", B.newString("a"));
+        final Spec spec = Spec.of();
+        assertSame(spec, StatixSpecCache.putSpec(specTerm, spec));
+        assertSame(spec, StatixSpecCache.getSpec(specTerm));
+    }
+
+    @Test public void testSpecContentMiss() {
+        final ITerm specTerm = TermOrigin.of("a.stx").put(B.newAppl("Spec", B.newString("a")));
+        final ITerm reloadedTerm = TermOrigin.of("b.stx").put(B.newAppl("Spec", B.newString("a")));
+        assertEquals(specTerm, reloadedTerm);
+        StatixSpecCache.putSpec(specTerm, Spec.of());
+        assertNull(StatixSpecCache.getSpec(reloadedTerm));
+    }
+
+    @Test public void testTermHitForCachedSpec() {
+        final IStrategoTerm sterm = factory.makeAppl(factory.makeConstructor("Spec", 0));
+        final ITerm specTerm = B.newAppl("Spec");
+        StatixSpecCache.putTerm(sterm, specTerm);
+        assertNull(StatixSpecCache.getTerm(sterm));
+        StatixSpecCache.putSpec(specTerm, Spec.of());
+        StatixSpecCache.putTerm(sterm, specTerm);
+        assertSame(specTerm, StatixSpecCache.getTerm(sterm));
+    }
+
+    @Test public void testInvalidateAll() {
+        final IStrategoTerm sterm = factory.makeAppl(factory.makeConstructor("Spec", 0));
+        final ITerm specTerm = B.newAppl("Spec");
+        StatixSpecCache.putSpec(specTerm, Spec.of());
+        StatixSpecCache.putTerm(sterm, specTerm);
+        StatixSpecCache.invalidateAll();
+        assertNull(StatixSpecCache.getSpec(specTerm));
+        assertNull(StatixSpecCache.getTerm(sterm));
+    }
+
+}